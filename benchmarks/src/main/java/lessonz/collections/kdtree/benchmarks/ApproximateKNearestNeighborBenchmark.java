@@ -0,0 +1,85 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures approximate k-nearest neighbor queries in high dimensions. Latency is reported by JMH; the recall of each
+ * parameter combination, the fraction of the true k nearest neighbors found averaged over every target, is computed
+ * during setup and printed to the benchmark's output. The speedup is the ratio of the score with an epsilon of zero
+ * and no bucket limit to the score of the combination.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class ApproximateKNearestNeighborBenchmark {
+
+	private static final int NUMBER_OF_TARGETS = 1024;
+
+	@Param({ "31" })
+	private int bucketSize;
+	@Param({ "UNIFORM", "CLUSTERED" })
+	private Distribution distribution;
+	@Param({ "0", "0.5", "1", "3" })
+	private double epsilon;
+	@Param({ "10" })
+	private int k;
+	@Param({ "16", "128", "2147483647" })
+	private int maxBucketsToVisit;
+	private int nextTarget = 0;
+	@Param({ "16", "64" })
+	private int numberOfDimensions;
+	@Param({ "100000" })
+	private int size;
+	private double[][] targets;
+	private BucketPRKDTree<KDPoint<Integer>> tree;
+
+	@Benchmark
+	public List<KDPoint<Integer>> getApproximateKNearestNeighbors() {
+		return tree.getApproximateKNearestNeighbors(k, targets[nextTarget++ & NUMBER_OF_TARGETS - 1], epsilon,
+				maxBucketsToVisit);
+	}
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(BenchmarkData.SEED);
+		tree =
+				BucketPRKDTree.build(BenchmarkData.toKDPoints(distribution.generate(size, numberOfDimensions, random)),
+						numberOfDimensions, bucketSize);
+		targets = distribution.generate(NUMBER_OF_TARGETS, numberOfDimensions, random);
+
+		long found = 0;
+		for (final double[] target : targets) {
+			final Set<KDPoint<Integer>> exact = new HashSet<>(tree.getKNearestNeighbors(k, target));
+			for (final KDPoint<Integer> neighbor : tree.getApproximateKNearestNeighbors(k, target, epsilon,
+					maxBucketsToVisit)) {
+				if (exact.contains(neighbor)) {
+					found++;
+				}
+			}
+		}
+		System.out.printf("Recall: %.4f%n", (double) found / ((long) k * NUMBER_OF_TARGETS));
+	}
+
+}
@@ -0,0 +1,47 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+
+/**
+ * Conversions of generated points into the forms the benchmarked collections accept.
+ */
+final class BenchmarkData {
+
+	/**
+	 * Every benchmark draws its data from a fixed seed so that runs, and so commits, are comparable.
+	 */
+	static final long SEED = 42;
+
+	/**
+	 * Packs the specified points point after point into one array, as
+	 * {@link lessonz.collections.kdtree.primitive.LongIdKDTree} expects.
+	 */
+	static double[] pack(final double[][] points) {
+		final int numberOfDimensions = points.length == 0 ? 0 : points[0].length;
+		final double[] packed = new double[points.length * numberOfDimensions];
+		for (int i = 0; i < points.length; i++) {
+			System.arraycopy(points[i], 0, packed, i * numberOfDimensions, numberOfDimensions);
+		}
+
+		return packed;
+	}
+
+	/**
+	 * Wraps each of the specified points in a {@link KDPoint} whose data is its index.
+	 */
+	static List<KDPoint<Integer>> toKDPoints(final double[][] points) {
+		final List<KDPoint<Integer>> kdPoints = new ArrayList<>(points.length);
+		for (int i = 0; i < points.length; i++) {
+			kdPoints.add(new KDPoint<>(points[i], i));
+		}
+
+		return kdPoints;
+	}
+
+	private BenchmarkData() {
+	}
+
+}
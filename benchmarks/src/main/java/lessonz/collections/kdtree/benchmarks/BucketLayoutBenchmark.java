@@ -0,0 +1,111 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.distance.PackedDistanceFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two layouts a bucket's coordinates have had: one coordinate array per element, read through
+ * {@link KDPoint#getCoordinatesUnsafe()} as the k-nearest neighbor leaf scan did before buckets were packed, and one
+ * array holding every element's coordinates point after point, swept with a {@link PackedDistanceFunction} as it does
+ * now. The elements are created in random order across many buckets, as a long run of insertions would leave them, so
+ * that each scan moves on to a bucket whose coordinates are not already in cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class BucketLayoutBenchmark {
+
+	/**
+	 * A power of two, so that the next bucket can be chosen with a mask.
+	 */
+	private static final int NUMBER_OF_BUCKETS = 512;
+
+	private List<List<KDPoint<Integer>>> buckets;
+	@Param({ "8", "31", "128" })
+	private int bucketSize;
+	private PackedDistanceFunction distanceFunction;
+	@Param
+	private DistanceFunctionType distanceFunctionType;
+	private double[] distances;
+	private int nextBucket = 0;
+	@Param({ "3", "16", "128" })
+	private int numberOfDimensions;
+	private double[][] packedBuckets;
+	private double[] target;
+
+	@Benchmark
+	public double[] packedSweep() {
+		final double[] packedCoordinates = packedBuckets[nextBucket()];
+		for (int i = 0, offset = 0; i < bucketSize; i++, offset += numberOfDimensions) {
+			distances[i] = distanceFunction.distance(target, packedCoordinates, offset);
+		}
+
+		return distances;
+	}
+
+	@Benchmark
+	public double[] perElementScan() {
+		final List<KDPoint<Integer>> bucket = buckets.get(nextBucket());
+		for (int i = 0; i < bucketSize; i++) {
+			distances[i] = distanceFunction.distance(target, bucket.get(i).getCoordinatesUnsafe());
+		}
+
+		return distances;
+	}
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(BenchmarkData.SEED);
+		final double[][] points =
+				Distribution.UNIFORM.generate(NUMBER_OF_BUCKETS * bucketSize, numberOfDimensions, random);
+		target = Distribution.UNIFORM.generate(1, numberOfDimensions, random)[0];
+		distances = new double[bucketSize];
+		distanceFunction = (PackedDistanceFunction) distanceFunctionType.getDistanceFunction();
+
+		/* Allocate the elements in shuffled order so that neighbors in a bucket are not neighbors in the heap. */
+		final List<Integer> order = new ArrayList<>(points.length);
+		for (int i = 0; i < points.length; i++) {
+			order.add(i);
+		}
+		Collections.shuffle(order, random);
+		final KDPoint<Integer>[] elements = new KDPoint[points.length];
+		for (final int index : order) {
+			elements[index] = new KDPoint<>(points[index], index);
+		}
+
+		buckets = new ArrayList<>(NUMBER_OF_BUCKETS);
+		packedBuckets = new double[NUMBER_OF_BUCKETS][];
+		for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+			final int from = i * bucketSize;
+			buckets.add(Arrays.asList(Arrays.copyOfRange(elements, from, from + bucketSize)));
+			packedBuckets[i] = BenchmarkData.pack(Arrays.copyOfRange(points, from, from + bucketSize));
+		}
+	}
+
+	private int nextBucket() {
+		return nextBucket++ & NUMBER_OF_BUCKETS - 1;
+	}
+
+}
@@ -0,0 +1,74 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+import lessonz.collections.kdtree.primitive.LongIdKDTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures bulk loading a complete set of points on a single thread, both into a {@link BucketPRKDTree} and into a
+ * {@link LongIdKDTree}. See {@link ParallelBuildBenchmark} for building with several threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class BuildBenchmark {
+
+	@Param({ "8", "31", "128" })
+	private int bucketSize;
+	private double[] coordinates;
+	@Param
+	private Distribution distribution;
+	private List<KDPoint<Integer>> elements;
+	private long[] ids;
+	@Param({ "3" })
+	private int numberOfDimensions;
+	@Param({ "100000", "1000000" })
+	private int size;
+
+	@Benchmark
+	public BucketPRKDTree<KDPoint<Integer>> build() {
+		return BucketPRKDTree.build(elements, numberOfDimensions, bucketSize);
+	}
+
+	/**
+	 * A {@link LongIdKDTree} reorders the arrays it is given, so each invocation builds from fresh copies. The copies
+	 * are a small part of the cost.
+	 */
+	@Benchmark
+	public LongIdKDTree buildLongIdKDTree() {
+		return LongIdKDTree.build(Arrays.copyOf(coordinates, coordinates.length), Arrays.copyOf(ids, ids.length),
+				numberOfDimensions, bucketSize);
+	}
+
+	@Setup
+	public void setup() {
+		final double[][] points = distribution.generate(size, numberOfDimensions, new Random(BenchmarkData.SEED));
+		elements = BenchmarkData.toKDPoints(points);
+		coordinates = BenchmarkData.pack(points);
+		ids = new long[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i;
+		}
+	}
+
+}
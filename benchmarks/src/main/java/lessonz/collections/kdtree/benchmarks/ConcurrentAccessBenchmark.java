@@ -0,0 +1,116 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+import lessonz.collections.kdtree.bucketpr.ConcurrentBucketPRKDTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of a {@link ConcurrentBucketPRKDTree} under one writer continually moving elements while
+ * several readers run k-nearest neighbor queries. The readOnly group runs the same readers with no writer, so the
+ * difference between the two shows what contention with the writer costs. Other mixes of readers can be run with the
+ * -tg option, for example -tg 1,15 for one writer and fifteen readers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Group)
+@Warmup(iterations = 3)
+public class ConcurrentAccessBenchmark {
+
+	/**
+	 * A power of two, so that the next target can be chosen with a mask.
+	 */
+	private static final int NUMBER_OF_TARGETS = 1024;
+	private static final int READERS = 7;
+
+	/**
+	 * Each reader moves through the targets on its own.
+	 */
+	@State(Scope.Thread)
+	public static class Reader {
+
+		private int nextTarget = 0;
+
+		private double[] nextTarget(final double[][] targets) {
+			return targets[nextTarget++ & NUMBER_OF_TARGETS - 1];
+		}
+
+	}
+
+	@Param({ "31" })
+	private int bucketSize;
+	private KDPoint<Integer>[] elements;
+	@Param({ "10" })
+	private int k;
+	@Param({ "3", "8" })
+	private int numberOfDimensions;
+	private Random random;
+	@Param({ "100000" })
+	private int size;
+	private double[][] targets;
+	private ConcurrentBucketPRKDTree<KDPoint<Integer>> tree;
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(READERS)
+	public List<KDPoint<Integer>> getKNearestNeighbors(final Reader reader) {
+		return tree.getKNearestNeighbors(k, reader.nextTarget(targets));
+	}
+
+	@Benchmark
+	@Group("readOnly")
+	@GroupThreads(READERS)
+	public List<KDPoint<Integer>> getKNearestNeighborsWithoutWriter(final Reader reader) {
+		return tree.getKNearestNeighbors(k, reader.nextTarget(targets));
+	}
+
+	/**
+	 * Moves a random element to random coordinates. Only the one writer thread touches the elements array.
+	 */
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public boolean replace() {
+		final int index = random.nextInt(size);
+		final double[] coordinates = new double[numberOfDimensions];
+		for (int i = 0; i < numberOfDimensions; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		final KDPoint<Integer> moved = new KDPoint<>(coordinates, index);
+		final boolean replaced = tree.replace(elements[index], moved);
+		elements[index] = moved;
+		return replaced;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setup() {
+		random = new Random(BenchmarkData.SEED);
+		final List<KDPoint<Integer>> kdPoints =
+				BenchmarkData.toKDPoints(Distribution.UNIFORM.generate(size, numberOfDimensions, random));
+		elements = kdPoints.toArray(new KDPoint[size]);
+		tree = new ConcurrentBucketPRKDTree<>(BucketPRKDTree.build(kdPoints, numberOfDimensions, bucketSize));
+		targets = Distribution.UNIFORM.generate(NUMBER_OF_TARGETS, numberOfDimensions, random);
+	}
+
+}
@@ -0,0 +1,84 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.distance.BulkDistanceFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the distances from one target to a bucket's worth of packed points, as a k-nearest neighbor search does
+ * for each bucket it visits, made one call per point and one call per bucket. The bounded benchmark passes the
+ * distance within which a tenth of the points lie, as a search with a full heap would pass its farthest near neighbor,
+ * so that the rest may be abandoned early; in many dimensions its score against distancesPerBucket shows the saving.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class DistanceFunctionBenchmark {
+
+	@Param({ "8", "31", "128" })
+	private int bucketSize;
+	private double bound;
+	private BulkDistanceFunction distanceFunction;
+	@Param
+	private DistanceFunctionType distanceFunctionType;
+	private double[] distances;
+	@Param({ "2", "3", "5", "8", "128" })
+	private int numberOfDimensions;
+	private double[] packedCoordinates;
+	private double[] target;
+
+	@Benchmark
+	public double[] distancePerPoint() {
+		for (int i = 0, offset = 0; i < bucketSize; i++, offset += numberOfDimensions) {
+			distances[i] = distanceFunction.distance(target, packedCoordinates, offset);
+		}
+
+		return distances;
+	}
+
+	@Benchmark
+	public double[] distancesPerBucket() {
+		distanceFunction.distances(target, packedCoordinates, bucketSize, distances);
+
+		return distances;
+	}
+
+	@Benchmark
+	public double[] distancesPerBucketWithBound() {
+		distanceFunction.distances(target, packedCoordinates, bucketSize, bound, distances);
+
+		return distances;
+	}
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(BenchmarkData.SEED);
+		packedCoordinates = BenchmarkData.pack(Distribution.UNIFORM.generate(bucketSize, numberOfDimensions, random));
+		target = Distribution.UNIFORM.generate(1, numberOfDimensions, random)[0];
+		distances = new double[bucketSize];
+		distanceFunction = (BulkDistanceFunction) distanceFunctionType.getDistanceFunction();
+
+		distanceFunction.distances(target, packedCoordinates, bucketSize, distances);
+		final double[] sorted = Arrays.copyOf(distances, bucketSize);
+		Arrays.sort(sorted);
+		bound = sorted[bucketSize / 10];
+	}
+
+}
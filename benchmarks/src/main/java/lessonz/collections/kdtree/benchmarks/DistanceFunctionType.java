@@ -0,0 +1,27 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.DistanceFunctions;
+
+/**
+ * The built-in {@link DistanceFunction}s, by a name usable as a JMH parameter. Each is the one
+ * {@link DistanceFunctions} hands out, so the benchmarks measure the vectorized functions when the collections-vector
+ * module is on the class path and enabled, and the scalar ones otherwise.
+ */
+public enum DistanceFunctionType {
+
+	CHEBYSHEV(DistanceFunctions.chebyshev()),
+	MANHATTAN(DistanceFunctions.manhattan()),
+	SQUARED_EUCLIDEAN(DistanceFunctions.squaredEuclidean());
+
+	private final DistanceFunction distanceFunction;
+
+	private DistanceFunctionType(final DistanceFunction distanceFunction) {
+		this.distanceFunction = distanceFunction;
+	}
+
+	DistanceFunction getDistanceFunction() {
+		return distanceFunction;
+	}
+
+}
@@ -0,0 +1,100 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.Random;
+
+/**
+ * The {@link Distribution}s from which benchmark points are drawn. Every coordinate lies roughly within [0, 1).
+ */
+public enum Distribution {
+
+	/**
+	 * Points spread evenly over the unit hypercube.
+	 */
+	UNIFORM {
+
+		@Override
+		double[][] generate(final int count, final int numberOfDimensions, final Random random) {
+			final double[][] points = new double[count][numberOfDimensions];
+			for (final double[] point : points) {
+				for (int i = 0; i < numberOfDimensions; i++) {
+					point[i] = random.nextDouble();
+				}
+			}
+
+			return points;
+		}
+
+	},
+	/**
+	 * Points gathered in tight Gaussian clusters around a few uniformly placed centers, which leaves most of the space
+	 * empty and the occupied parts dense.
+	 */
+	CLUSTERED {
+
+		private static final int NUMBER_OF_CLUSTERS = 32;
+		private static final double STANDARD_DEVIATION = 0.01;
+
+		@Override
+		double[][] generate(final int count, final int numberOfDimensions, final Random random) {
+			final double[][] centers = UNIFORM.generate(NUMBER_OF_CLUSTERS, numberOfDimensions, random);
+			final double[][] points = new double[count][numberOfDimensions];
+			for (final double[] point : points) {
+				final double[] center = centers[random.nextInt(NUMBER_OF_CLUSTERS)];
+				for (int i = 0; i < numberOfDimensions; i++) {
+					point[i] = center[i] + random.nextGaussian() * STANDARD_DEVIATION;
+				}
+			}
+
+			return points;
+		}
+
+	},
+	/**
+	 * Points whose coordinates are uniform values raised to the eighth power, so that they crowd toward the origin with
+	 * a long, sparse tail, much as population does toward city centers.
+	 */
+	SKEWED {
+
+		private static final double EXPONENT = 8.0;
+
+		@Override
+		double[][] generate(final int count, final int numberOfDimensions, final Random random) {
+			final double[][] points = UNIFORM.generate(count, numberOfDimensions, random);
+			for (final double[] point : points) {
+				for (int i = 0; i < numberOfDimensions; i++) {
+					point[i] = Math.pow(point[i], EXPONENT);
+				}
+			}
+
+			return points;
+		}
+
+	},
+	/**
+	 * Points drawn from a small set of uniformly placed positions, so that on average each position is shared by a
+	 * hundred points. This exercises buckets that cannot be split.
+	 */
+	DUPLICATE_HEAVY {
+
+		private static final int POINTS_PER_POSITION = 100;
+
+		@Override
+		double[][] generate(final int count, final int numberOfDimensions, final Random random) {
+			final double[][] positions =
+					UNIFORM.generate(Math.max(1, count / POINTS_PER_POSITION), numberOfDimensions, random);
+			final double[][] points = new double[count][];
+			for (int i = 0; i < count; i++) {
+				points[i] = positions[random.nextInt(positions.length)].clone();
+			}
+
+			return points;
+		}
+
+	};
+
+	/**
+	 * Generates the specified number of points.
+	 */
+	abstract double[][] generate(int count, int numberOfDimensions, Random random);
+
+}
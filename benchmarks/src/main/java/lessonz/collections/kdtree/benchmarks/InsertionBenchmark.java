@@ -0,0 +1,60 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building a {@link BucketPRKDTree} by adding its elements one at a time, which exercises bucket growth and
+ * splitting.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class InsertionBenchmark {
+
+	@Param({ "8", "31", "128" })
+	private int bucketSize;
+	@Param
+	private Distribution distribution;
+	private List<KDPoint<Integer>> elements;
+	@Param({ "2", "3", "8" })
+	private int numberOfDimensions;
+	@Param({ "100000" })
+	private int size;
+
+	@Benchmark
+	public BucketPRKDTree<KDPoint<Integer>> add() {
+		final BucketPRKDTree<KDPoint<Integer>> tree = new BucketPRKDTree<>(numberOfDimensions, bucketSize);
+		for (final KDPoint<Integer> element : elements) {
+			tree.add(element);
+		}
+
+		return tree;
+	}
+
+	@Setup
+	public void setup() {
+		elements =
+				BenchmarkData.toKDPoints(distribution.generate(size, numberOfDimensions, new Random(BenchmarkData.SEED)));
+	}
+
+}
@@ -0,0 +1,97 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.primitive.LongIdKDTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures k-nearest neighbor queries against a bulk loaded tree. The targets are drawn from the same
+ * {@link Distribution} as the points, and each invocation of a single-query benchmark moves on to the next target so
+ * that no one query is measured in isolation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class KNearestNeighborBenchmark {
+
+	/**
+	 * A power of two, so that the next target can be chosen with a mask.
+	 */
+	private static final int NUMBER_OF_TARGETS = 1024;
+
+	@Param({ "8", "31", "128" })
+	private int bucketSize;
+	@Param
+	private Distribution distribution;
+	private DistanceFunction distanceFunction;
+	@Param
+	private DistanceFunctionType distanceFunctionType;
+	@Param({ "1", "10", "100" })
+	private int k;
+	private LongIdKDTree longIdTree;
+	private int nextTarget = 0;
+	@Param({ "2", "3", "8", "16", "128" })
+	private int numberOfDimensions;
+	@Param({ "100000" })
+	private int size;
+	private double[][] targets;
+	private BucketPRKDTree<KDPoint<Integer>> tree;
+
+	@Benchmark
+	public List<KDPoint<Integer>> getKNearestNeighbors() {
+		return tree.getKNearestNeighbors(k, nextTarget(), distanceFunction);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_TARGETS)
+	public List<List<KDPoint<Integer>>> getKNearestNeighborsBatch() {
+		return tree.getKNearestNeighbors(k, targets, distanceFunction);
+	}
+
+	@Benchmark
+	public long[] getKNearestNeighborsLongIdKDTree() {
+		return longIdTree.getKNearestNeighbors(k, nextTarget(), distanceFunction);
+	}
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(BenchmarkData.SEED);
+		final double[][] points = distribution.generate(size, numberOfDimensions, random);
+		tree = BucketPRKDTree.build(BenchmarkData.toKDPoints(points), numberOfDimensions, bucketSize);
+
+		final long[] ids = new long[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i;
+		}
+		longIdTree = LongIdKDTree.build(BenchmarkData.pack(points), ids, numberOfDimensions, bucketSize);
+
+		targets = distribution.generate(NUMBER_OF_TARGETS, numberOfDimensions, random);
+		distanceFunction = distanceFunctionType.getDistanceFunction();
+	}
+
+	private double[] nextTarget() {
+		return targets[nextTarget++ & NUMBER_OF_TARGETS - 1];
+	}
+
+}
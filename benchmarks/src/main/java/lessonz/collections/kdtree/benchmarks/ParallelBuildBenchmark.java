@@ -0,0 +1,68 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures bulk loading a {@link BucketPRKDTree} with a {@link ForkJoinPool} of varying parallelism. Comparing the
+ * single-thread result with {@link BuildBenchmark#build()} shows the overhead of forking.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class ParallelBuildBenchmark {
+
+	@Param({ "31" })
+	private int bucketSize;
+	@Param({ "UNIFORM" })
+	private Distribution distribution;
+	private List<KDPoint<Integer>> elements;
+	@Param({ "3" })
+	private int numberOfDimensions;
+	@Param({ "8192" })
+	private int parallelThreshold;
+	private ForkJoinPool pool;
+	@Param({ "1000000" })
+	private int size;
+	@Param({ "1", "2", "4", "8" })
+	private int threads;
+
+	@Benchmark
+	public BucketPRKDTree<KDPoint<Integer>> buildInParallel() {
+		return BucketPRKDTree.buildInParallel(elements, numberOfDimensions, bucketSize, parallelThreshold, pool);
+	}
+
+	@Setup
+	public void setup() {
+		elements =
+				BenchmarkData.toKDPoints(distribution.generate(size, numberOfDimensions, new Random(BenchmarkData.SEED)));
+		pool = new ForkJoinPool(threads);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+}
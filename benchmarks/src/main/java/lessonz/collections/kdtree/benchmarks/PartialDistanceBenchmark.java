@@ -0,0 +1,118 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.PackedDistanceFunction;
+import lessonz.collections.kdtree.primitive.LongIdKDTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what abandoning partially measured distances saves k-nearest neighbor queries in many dimensions, such as
+ * those of embeddings. Each query is run once with a built-in distance function, which stops measuring an element as
+ * soon as it is known to be farther than the farthest near neighbor, and once with the same function hidden behind a
+ * plain {@link PackedDistanceFunction}, which measures every element in full. The ratio of the two scores is the
+ * saving.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class PartialDistanceBenchmark {
+
+	/**
+	 * A power of two, so that the next target can be chosen with a mask.
+	 */
+	private static final int NUMBER_OF_TARGETS = 1024;
+
+	@Param({ "31" })
+	private int bucketSize;
+	@Param({ "UNIFORM", "CLUSTERED" })
+	private Distribution distribution;
+	private DistanceFunction distanceFunction;
+	@Param({ "MANHATTAN", "SQUARED_EUCLIDEAN" })
+	private DistanceFunctionType distanceFunctionType;
+	private DistanceFunction fullDistanceFunction;
+	@Param({ "10" })
+	private int k;
+	private LongIdKDTree longIdTree;
+	private int nextTarget = 0;
+	@Param({ "64", "128", "256" })
+	private int numberOfDimensions;
+	@Param({ "20000" })
+	private int size;
+	private double[][] targets;
+	private BucketPRKDTree<KDPoint<Integer>> tree;
+
+	@Benchmark
+	public List<KDPoint<Integer>> getKNearestNeighbors() {
+		return tree.getKNearestNeighbors(k, nextTarget(), distanceFunction);
+	}
+
+	@Benchmark
+	public List<KDPoint<Integer>> getKNearestNeighborsMeasuredInFull() {
+		return tree.getKNearestNeighbors(k, nextTarget(), fullDistanceFunction);
+	}
+
+	@Benchmark
+	public long[] getKNearestNeighborsLongIdKDTree() {
+		return longIdTree.getKNearestNeighbors(k, nextTarget(), distanceFunction);
+	}
+
+	@Benchmark
+	public long[] getKNearestNeighborsLongIdKDTreeMeasuredInFull() {
+		return longIdTree.getKNearestNeighbors(k, nextTarget(), fullDistanceFunction);
+	}
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(BenchmarkData.SEED);
+		final double[][] points = distribution.generate(size, numberOfDimensions, random);
+		tree = BucketPRKDTree.build(BenchmarkData.toKDPoints(points), numberOfDimensions, bucketSize);
+
+		final long[] ids = new long[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i;
+		}
+		longIdTree = LongIdKDTree.build(BenchmarkData.pack(points), ids, numberOfDimensions, bucketSize);
+
+		targets = distribution.generate(NUMBER_OF_TARGETS, numberOfDimensions, random);
+		distanceFunction = distanceFunctionType.getDistanceFunction();
+		final PackedDistanceFunction packedDistanceFunction = (PackedDistanceFunction) distanceFunction;
+		fullDistanceFunction = new PackedDistanceFunction() {
+
+			@Override
+			public double distance(final double[] coordinateSet1, final double[] coordinateSet2) {
+				return packedDistanceFunction.distance(coordinateSet1, coordinateSet2);
+			}
+
+			@Override
+			public double distance(final double[] coordinates, final double[] packedCoordinates, final int offset) {
+				return packedDistanceFunction.distance(coordinates, packedCoordinates, offset);
+			}
+
+		};
+	}
+
+	private double[] nextTarget() {
+		return targets[nextTarget++ & NUMBER_OF_TARGETS - 1];
+	}
+
+}
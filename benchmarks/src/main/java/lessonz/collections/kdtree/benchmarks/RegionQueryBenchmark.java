@@ -0,0 +1,94 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures range and fixed-radius queries against a bulk loaded {@link BucketPRKDTree}. Each query is centered on the
+ * next of a set of targets drawn from the same {@link Distribution} as the points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class RegionQueryBenchmark {
+
+	private static final int NUMBER_OF_TARGETS = 1024;
+
+	@Param({ "31" })
+	private int bucketSize;
+	@Param
+	private Distribution distribution;
+	/**
+	 * The half-width of each range query's box and the radius of each radius query.
+	 */
+	@Param({ "0.01", "0.05" })
+	private double extent;
+	private double[][] maxCoordinates;
+	private double[][] minCoordinates;
+	private int nextTarget = 0;
+	@Param({ "3" })
+	private int numberOfDimensions;
+	@Param({ "100000" })
+	private int size;
+	private double[][] targets;
+	private BucketPRKDTree<KDPoint<Integer>> tree;
+
+	@Benchmark
+	public int countNeighborsWithinRadius() {
+		/* The default distance function is squared, so the radius is squared to match. */
+		return tree.countNeighborsWithinRadius(extent * extent, targets[nextTarget()]);
+	}
+
+	@Benchmark
+	public List<KDPoint<Integer>> getNeighborsWithinRadius() {
+		return tree.getNeighborsWithinRadius(extent * extent, targets[nextTarget()]);
+	}
+
+	@Benchmark
+	public List<KDPoint<Integer>> rangeQuery() {
+		final int target = nextTarget();
+		return tree.rangeQuery(minCoordinates[target], maxCoordinates[target]);
+	}
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(BenchmarkData.SEED);
+		tree =
+				BucketPRKDTree.build(BenchmarkData.toKDPoints(distribution.generate(size, numberOfDimensions, random)),
+						numberOfDimensions, bucketSize);
+
+		targets = distribution.generate(NUMBER_OF_TARGETS, numberOfDimensions, random);
+		minCoordinates = new double[NUMBER_OF_TARGETS][numberOfDimensions];
+		maxCoordinates = new double[NUMBER_OF_TARGETS][numberOfDimensions];
+		for (int i = 0; i < NUMBER_OF_TARGETS; i++) {
+			for (int j = 0; j < numberOfDimensions; j++) {
+				minCoordinates[i][j] = targets[i][j] - extent;
+				maxCoordinates[i][j] = targets[i][j] + extent;
+			}
+		}
+	}
+
+	private int nextTarget() {
+		return nextTarget++ & NUMBER_OF_TARGETS - 1;
+	}
+
+}
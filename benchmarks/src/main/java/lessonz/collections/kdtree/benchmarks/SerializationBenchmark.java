@@ -0,0 +1,83 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+import lessonz.collections.kdtree.bucketpr.ElementCodec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing a {@link BucketPRKDTree} to, and reading one from, memory, which isolates the CPU cost of
+ * serialization from that of storage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class SerializationBenchmark {
+
+	private static final ElementCodec<KDPoint<Integer>> CODEC = new ElementCodec<KDPoint<Integer>>() {
+
+		@Override
+		public KDPoint<Integer> read(final double[] coordinates, final DataInput input) throws IOException {
+			return new KDPoint<>(coordinates, input.readInt());
+		}
+
+		@Override
+		public void write(final KDPoint<Integer> element, final DataOutput output) throws IOException {
+			output.writeInt(element.getData());
+		}
+
+	};
+
+	@Param({ "31" })
+	private int bucketSize;
+	private byte[] bytes;
+	@Param({ "3" })
+	private int numberOfDimensions;
+	@Param({ "1000000" })
+	private int size;
+	private BucketPRKDTree<KDPoint<Integer>> tree;
+
+	@Benchmark
+	public BucketPRKDTree<KDPoint<Integer>> readFrom() throws IOException {
+		return BucketPRKDTree.readFrom(new ByteArrayInputStream(bytes), CODEC);
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		tree =
+				BucketPRKDTree.build(BenchmarkData.toKDPoints(Distribution.UNIFORM.generate(size, numberOfDimensions,
+						new Random(BenchmarkData.SEED))), numberOfDimensions, bucketSize);
+		bytes = writeTo().toByteArray();
+	}
+
+	@Benchmark
+	public ByteArrayOutputStream writeTo() throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream(bytes == null ? 32 : bytes.length);
+		tree.writeTo(output, CODEC);
+
+		return output;
+	}
+
+}
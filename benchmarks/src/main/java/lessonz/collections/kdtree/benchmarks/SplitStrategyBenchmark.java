@@ -0,0 +1,84 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.bucketpr.BucketPRKDTree;
+import lessonz.collections.kdtree.split.SplitStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link SplitStrategy}s by the cost of inserting elements one at a time and by the latency of k-nearest
+ * neighbor queries against the resulting tree. The depth and largest bucket of each tree are printed to the
+ * benchmark's output during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class SplitStrategyBenchmark {
+
+	private static final int NUMBER_OF_TARGETS = 1024;
+
+	@Param({ "31" })
+	private int bucketSize;
+	@Param({ "SKEWED", "UNIFORM" })
+	private Distribution distribution;
+	private List<KDPoint<Integer>> elements;
+	@Param({ "10" })
+	private int k;
+	private int nextTarget = 0;
+	@Param({ "2", "3" })
+	private int numberOfDimensions;
+	@Param({ "100000" })
+	private int size;
+	private SplitStrategy splitStrategy;
+	@Param
+	private SplitStrategyType splitStrategyType;
+	private double[][] targets;
+	private BucketPRKDTree<KDPoint<Integer>> tree;
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public BucketPRKDTree<KDPoint<Integer>> add() {
+		final BucketPRKDTree<KDPoint<Integer>> tree =
+				new BucketPRKDTree<>(numberOfDimensions, bucketSize, splitStrategy);
+		for (final KDPoint<Integer> element : elements) {
+			tree.add(element);
+		}
+
+		return tree;
+	}
+
+	@Benchmark
+	public List<KDPoint<Integer>> getKNearestNeighbors() {
+		return tree.getKNearestNeighbors(k, targets[nextTarget++ & NUMBER_OF_TARGETS - 1]);
+	}
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(BenchmarkData.SEED);
+		elements = BenchmarkData.toKDPoints(distribution.generate(size, numberOfDimensions, random));
+		targets = distribution.generate(NUMBER_OF_TARGETS, numberOfDimensions, random);
+		splitStrategy = splitStrategyType.getSplitStrategy();
+
+		tree = add();
+		System.out.printf("Depth: %d, largest bucket: %d%n", tree.getDepth(), tree.getLargestBucketSize());
+	}
+
+}
@@ -0,0 +1,29 @@
+package lessonz.collections.kdtree.benchmarks;
+
+import lessonz.collections.kdtree.split.MedianSplitStrategy;
+import lessonz.collections.kdtree.split.MidpointSplitStrategy;
+import lessonz.collections.kdtree.split.SlidingMidpointSplitStrategy;
+import lessonz.collections.kdtree.split.SplitStrategy;
+import lessonz.collections.kdtree.split.VarianceSplitStrategy;
+
+/**
+ * The built-in {@link SplitStrategy}s, by a name usable as a JMH parameter.
+ */
+public enum SplitStrategyType {
+
+	MEDIAN(new MedianSplitStrategy()),
+	MIDPOINT(new MidpointSplitStrategy()),
+	SLIDING_MIDPOINT(new SlidingMidpointSplitStrategy()),
+	VARIANCE(new VarianceSplitStrategy());
+
+	private final SplitStrategy splitStrategy;
+
+	private SplitStrategyType(final SplitStrategy splitStrategy) {
+		this.splitStrategy = splitStrategy;
+	}
+
+	SplitStrategy getSplitStrategy() {
+		return splitStrategy;
+	}
+
+}
@@ -47,6 +47,17 @@ public class KDPoint<T> {
 		return Arrays.copyOf(coordinates, coordinates.length);
 	}
 
+	/**
+	 * Retrieve this {@link KDPoint}'s k-dimensional coordinates <strong>without</strong> copying them. The returned
+	 * array is this {@link KDPoint}'s own storage and must be treated as read-only; modifying it will corrupt any
+	 * collection holding this {@link KDPoint}. Prefer {@link #getCoordinates()} unless the copy is a measurable cost.
+	 * 
+	 * @return the {@link KDPoint}'s location.
+	 */
+	public double[] getCoordinatesUnsafe() {
+		return coordinates;
+	}
+
 	/**
 	 * Retrieve this {@link KDPoint}'s stored data.
 	 * 
@@ -0,0 +1,21 @@
+package lessonz.collections.kdtree;
+
+/**
+ * A {@link KDPointFilter} decides which elements a query may return. It is consulted as elements are found, so
+ * rejected elements take no part in the result, rather than being discarded from it afterward.
+ * 
+ * @param <E>
+ *            the type of element filtered.
+ */
+public interface KDPointFilter<E> {
+
+	/**
+	 * Decides whether an element found by a query may be returned.
+	 * 
+	 * @param element
+	 *            the element found.
+	 * @return true if the element may be returned, false if it is to be skipped.
+	 */
+	boolean accept(E element);
+
+}
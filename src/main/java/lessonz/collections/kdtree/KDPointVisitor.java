@@ -0,0 +1,22 @@
+package lessonz.collections.kdtree;
+
+/**
+ * A {@link KDPointVisitor} receives the elements found by a query one at a time, allowing results to be consumed as
+ * they are found rather than gathered into a collection first, and the query to be stopped once enough have been.
+ * 
+ * @param <E>
+ *            the type of element visited.
+ */
+public interface KDPointVisitor<E> {
+
+	/**
+	 * Receives one element found by a query.
+	 * 
+	 * @param element
+	 *            the element found.
+	 * @return true if the query should go on to find more elements, or false if it should stop without searching
+	 *         further.
+	 */
+	boolean visit(E element);
+
+}
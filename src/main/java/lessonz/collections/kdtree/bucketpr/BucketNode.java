@@ -1,50 +1,128 @@
 package lessonz.collections.kdtree.bucketpr;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.split.SplitStrategy;
 
+/**
+ * A {@link BucketNode} is a leaf of the tree. Unless its tree was told not to, alongside its elements it keeps a copy
+ * of their coordinates packed point-major into a single array, the coordinates of the element at index <i>i</i>
+ * beginning at <i>i</i> * numberOfDimensions, so that searches can sweep the whole bucket linearly instead of visiting
+ * each element's own coordinate array.
+ */
 class BucketNode<E extends KDPoint> implements BucketPRKDTreeNode<E> {
 
 	private final int bucketSize;
 	private int capacity;
+	private double[] coordinates;
 	private final List<E> elements;
+	private boolean frozen = false;
 	private final int numberOfDimensions;
+	private final SplitStrategy splitStrategy;
 
 	BucketNode(final int numberOfDimensions, final int bucketSize) {
+		this(numberOfDimensions, bucketSize, BucketPRKDTree.DEFAULT_SPLIT_STRATEGY, true);
+	}
+
+	BucketNode(final int numberOfDimensions, final int bucketSize, final SplitStrategy splitStrategy,
+			final boolean packCoordinates) {
 		this.numberOfDimensions = numberOfDimensions;
 		this.bucketSize = bucketSize;
+		this.splitStrategy = splitStrategy;
 		capacity = bucketSize;
 		elements = new ArrayList<>(bucketSize);
+		coordinates = packCoordinates ? new double[bucketSize * numberOfDimensions] : null;
+	}
+
+	BucketNode(final int numberOfDimensions, final int bucketSize, final List<E> elements) {
+		this(numberOfDimensions, bucketSize, elements, BucketPRKDTree.DEFAULT_SPLIT_STRATEGY, true);
+	}
+
+	BucketNode(final int numberOfDimensions, final int bucketSize, final List<E> elements,
+			final SplitStrategy splitStrategy, final boolean packCoordinates) {
+		this.numberOfDimensions = numberOfDimensions;
+		this.bucketSize = bucketSize;
+		this.splitStrategy = splitStrategy;
+		capacity = Math.max(bucketSize, elements.size());
+		this.elements = new ArrayList<>(capacity);
+		coordinates = packCoordinates ? new double[capacity * numberOfDimensions] : null;
+		for (final E e : elements) {
+			addToBucket(e);
+		}
+	}
+
+	private BucketNode(final BucketNode<E> original) {
+		numberOfDimensions = original.numberOfDimensions;
+		bucketSize = original.bucketSize;
+		splitStrategy = original.splitStrategy;
+		capacity = original.capacity;
+		elements = new ArrayList<>(original.elements);
+		coordinates = original.coordinates == null ? null : Arrays.copyOf(original.coordinates,
+				original.coordinates.length);
 	}
 
 	@Override
-	public BucketPRKDTreeNode<E> add(final E e) {
+	public BucketPRKDTreeNode<E> add(final E e, final double[] minCoordinates, final double[] maxCoordinates) {
 		final BucketPRKDTreeNode<E> node;
 		if (elements.size() >= capacity) {
-			final SplittingPlaneNode<E> splittingPlaneNode =
-					new SplittingPlaneNode<E>(elements, numberOfDimensions, bucketSize);
-			if (splittingPlaneNode.isUnbalanced()) {
-				capacity = capacity * 2;
-				node = this;
+			if (isCoLocated()) {
+				/* No plane can divide the elements, so they are kept together with one copy of their coordinates. */
+				node = new CoLocatedNode<E>(numberOfDimensions, bucketSize, elements, splitStrategy, isPacked());
 			} else {
-				node = splittingPlaneNode;
+				final SplittingPlaneNode<E> splittingPlaneNode =
+						new SplittingPlaneNode<E>(elements, isPacked() ? coordinates : SplittingPlaneNode.pack(
+								elements, numberOfDimensions), numberOfDimensions, bucketSize, splitStrategy,
+								isPacked(), minCoordinates, maxCoordinates);
+				if (splittingPlaneNode.isUnbalanced()) {
+					capacity = capacity * 2;
+					node = this;
+				} else {
+					node = splittingPlaneNode;
+				}
 			}
 
-			node.add(e);
-		} else {
-			elements.add(e);
-			node = this;
+			/* A CoLocatedNode replaces itself when the element lies elsewhere. */
+			return node.add(e, minCoordinates, maxCoordinates);
 		}
 
-		return node;
+		addToBucket(e);
+		return this;
+	}
+
+	@Override
+	public BucketPRKDTreeNode<E> copy() {
+		return new BucketNode<E>(this);
+	}
+
+	@Override
+	public void freeze() {
+		frozen = true;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
 	}
 
 	@Override
 	public Iterator<E> iterator() {
-		return elements.iterator();
+		return new BucketIterator();
+	}
+
+	@Override
+	public boolean remove(final KDPoint o) {
+		final int index = elements.indexOf(o);
+		if (index < 0) {
+			return false;
+		}
+
+		removeFromBucket(index);
+		return true;
 	}
 
 	@Override
@@ -52,8 +130,129 @@ class BucketNode<E extends KDPoint> implements BucketPRKDTreeNode<E> {
 		return elements.size();
 	}
 
+	private void addToBucket(final E e) {
+		if (isPacked()) {
+			final int offset = elements.size() * numberOfDimensions;
+			if (offset + numberOfDimensions > coordinates.length) {
+				coordinates =
+						Arrays.copyOf(coordinates, Math.max(capacity * numberOfDimensions, coordinates.length * 2));
+			}
+
+			System.arraycopy(e.getCoordinatesUnsafe(), 0, coordinates, offset, numberOfDimensions);
+		}
+		elements.add(e);
+	}
+
+	/**
+	 * Determines whether every element shares the coordinates of the first.
+	 */
+	private boolean isCoLocated() {
+		if (!isPacked()) {
+			final double[] firstCoordinates = elements.get(0).getCoordinatesUnsafe();
+			for (final E e : elements) {
+				if (!CoLocatedNode.isAt(e, firstCoordinates)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		final int length = elements.size() * numberOfDimensions;
+		for (int i = numberOfDimensions; i < length; i++) {
+			if (coordinates[i] != coordinates[i % numberOfDimensions]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void removeFromBucket(final int index) {
+		if (isPacked()) {
+			final int offset = index * numberOfDimensions;
+			System.arraycopy(coordinates, offset + numberOfDimensions, coordinates, offset, (elements.size() - index
+					- 1) * numberOfDimensions);
+		}
+		elements.remove(index);
+	}
+
+	/**
+	 * Replaces one element with another in the same position within this bucket. The replacement must belong in this
+	 * bucket.
+	 * 
+	 * @param oldElement
+	 *            the element to be replaced.
+	 * @param newElement
+	 *            the element to take its place.
+	 * @return true if the old element was found and replaced.
+	 */
+	boolean replace(final E oldElement, final E newElement) {
+		final int index = elements.indexOf(oldElement);
+		if (index < 0) {
+			return false;
+		}
+
+		if (isPacked()) {
+			System.arraycopy(newElement.getCoordinatesUnsafe(), 0, coordinates, index * numberOfDimensions,
+					numberOfDimensions);
+		}
+		elements.set(index, newElement);
+		return true;
+	}
+
+	/**
+	 * Retrieves the packed coordinates of this bucket's elements. Only the first {@link #size()} *
+	 * numberOfDimensions values are meaningful, and the array must be treated as read-only.
+	 * 
+	 * @return the packed coordinates, or null if this bucket doesn't pack them.
+	 */
+	double[] getCoordinates() {
+		return coordinates;
+	}
+
+	/**
+	 * Determines whether this bucket keeps a packed copy of its elements' coordinates.
+	 */
+	boolean isPacked() {
+		return coordinates != null;
+	}
+
 	List<E> getElements() {
 		return elements;
 	}
 
+	private class BucketIterator implements Iterator<E> {
+
+		private int lastReturned = -1;
+		private int next = 0;
+
+		@Override
+		public boolean hasNext() {
+			return next < elements.size();
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			lastReturned = next++;
+			return elements.get(lastReturned);
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned < 0) {
+				throw new IllegalStateException();
+			}
+
+			removeFromBucket(lastReturned);
+			next = lastReturned;
+			lastReturned = -1;
+		}
+
+	}
+
 }
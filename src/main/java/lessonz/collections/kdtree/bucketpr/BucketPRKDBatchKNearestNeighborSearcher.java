@@ -0,0 +1,144 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+
+/**
+ * The {@link BucketPRKDBatchKNearestNeighborSearcher} answers k-nearest neighbor queries for many targets at once.
+ * Targets are first ordered by the path each takes down the tree, so that consecutive queries tend to visit the same
+ * buckets while they are still in cache, and each thread runs its share of the queries through a single reused
+ * {@link BucketPRKDKNearestNeighborSearcher}.
+ * 
+ * @param <E>
+ *            the type of element in the tree.
+ */
+class BucketPRKDBatchKNearestNeighborSearcher<E extends KDPoint> {
+
+	/**
+	 * Below this many targets handing queries to another thread costs more than running them in place.
+	 */
+	private static final int PARALLEL_THRESHOLD = 256;
+	/**
+	 * The number of splitting planes recorded in a target's path. Deeper planes are ignored when ordering targets.
+	 */
+	private static final int PATH_LENGTH = Long.SIZE - 1;
+
+	private final DistanceFunction distanceFunction;
+	private final int k;
+	private final List<E>[] results;
+	private final double[][] targetCoordinates;
+	private final BucketPRKDTree<E> tree;
+
+	@SuppressWarnings("unchecked")
+	BucketPRKDBatchKNearestNeighborSearcher(final BucketPRKDTree<E> tree, final int k,
+			final double[][] targetCoordinates, final DistanceFunction distanceFunction) {
+		this.tree = tree;
+		this.k = k;
+		this.targetCoordinates = targetCoordinates;
+		this.distanceFunction = distanceFunction;
+		results = (List<E>[]) new List<?>[targetCoordinates.length];
+	}
+
+	List<List<E>> getKNearestNeighbors() {
+		search(order(), 0, targetCoordinates.length);
+
+		return toList();
+	}
+
+	List<List<E>> getKNearestNeighbors(final ForkJoinPool pool) {
+		pool.invoke(new SearchTask(order(), 0, targetCoordinates.length));
+
+		return toList();
+	}
+
+	/**
+	 * Orders the targets by the path each takes from the root of the tree, recorded one bit per splitting plane with
+	 * the root's plane as the most significant bit. Targets falling in the same bucket share a path and so end up
+	 * adjacent, and targets in neighboring buckets end up near one another.
+	 */
+	private Integer[] order() {
+		final long[] paths = new long[targetCoordinates.length];
+		final Integer[] order = new Integer[targetCoordinates.length];
+		for (int i = 0; i < targetCoordinates.length; i++) {
+			paths[i] = path(targetCoordinates[i]);
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(final Integer o1, final Integer o2) {
+				final long path1 = paths[o1];
+				final long path2 = paths[o2];
+				return path1 < path2 ? -1 : path1 > path2 ? 1 : 0;
+			}
+
+		});
+
+		return order;
+	}
+
+	private long path(final double[] coordinates) {
+		long path = 0L;
+		BucketPRKDTreeNode<E> node = tree.getNode();
+		SplittingPlaneNode<E> splittingPlaneNode;
+		for (int depth = 0; depth < PATH_LENGTH && node instanceof SplittingPlaneNode; depth++) {
+			splittingPlaneNode = (SplittingPlaneNode<E>) node;
+			if (splittingPlaneNode.getSplitDimensionMedian() < coordinates[splittingPlaneNode.getSplitDimensionIndex()]) {
+				path |= 1L << PATH_LENGTH - 1 - depth;
+				node = splittingPlaneNode.getRightBucketPRKDTree().getNode();
+			} else {
+				node = splittingPlaneNode.getLeftBucketPRKDTree().getNode();
+			}
+		}
+
+		return path;
+	}
+
+	private void search(final Integer[] order, final int from, final int to) {
+		final BucketPRKDKNearestNeighborSearcher<E> searcher = new BucketPRKDKNearestNeighborSearcher<>(tree);
+		searcher.setDistanceFunction(distanceFunction);
+		int index;
+		for (int i = from; i < to; i++) {
+			index = order[i];
+			results[index] = searcher.getKNearestNeighbors(k, targetCoordinates[index]);
+		}
+	}
+
+	private List<List<E>> toList() {
+		return Arrays.asList(results);
+	}
+
+	private class SearchTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final Integer[] order;
+		private final int to;
+
+		SearchTask(final Integer[] order, final int from, final int to) {
+			this.order = order;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				search(order, from, to);
+			} else {
+				final int middle = (from + to) >>> 1;
+				invokeAll(new SearchTask(order, from, middle), new SearchTask(order, middle, to));
+			}
+		}
+
+	}
+
+}
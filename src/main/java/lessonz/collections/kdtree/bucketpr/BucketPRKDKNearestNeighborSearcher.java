@@ -1,28 +1,46 @@
 package lessonz.collections.kdtree.bucketpr;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
 
 import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointFilter;
+import lessonz.collections.kdtree.distance.BulkDistanceFunction;
 import lessonz.collections.kdtree.distance.DistanceFunction;
-import lessonz.collections.kdtree.distance.SquaredEuclideanDistanceFunction;
-
+import lessonz.collections.kdtree.distance.DistanceFunctions;
+import lessonz.collections.kdtree.distance.PackedDistanceFunction;
+
+/**
+ * A {@link BucketPRKDKNearestNeighborSearcher} holds the state of a k-nearest neighbor search. Its buffers are reused
+ * from one query to the next, so a single searcher may run many queries in turn, but it is not safe to share an
+ * instance between threads; each concurrent query needs its own searcher.<br>
+ * <br>
+ * A searcher may also be made approximate with {@link #setApproximation(double, int)}, in which case it prunes more
+ * aggressively and may stop before the search is complete. It may be restricted to elements accepted by a
+ * {@link KDPointFilter} with {@link #setFilter(KDPointFilter)}, in which case elements are filtered before they are
+ * considered as neighbors, so the k nearest accepted elements are found in a single search.
+ */
 class BucketPRKDKNearestNeighborSearcher<E extends KDPoint> {
 
-	private static final DistanceFunction DEFAULT_DISTANCE_FUNCTION = new SquaredEuclideanDistanceFunction();
+	private static final DistanceFunction DEFAULT_DISTANCE_FUNCTION = DistanceFunctions.squaredEuclidean();
 
 	static DistanceFunction getDefaultDistanceFunction() {
 		return DEFAULT_DISTANCE_FUNCTION;
 	}
 
-	private int capacity = 0;
+	private int bucketsVisited;
+	private BulkDistanceFunction bulkDistanceFunction = (BulkDistanceFunction) DEFAULT_DISTANCE_FUNCTION;
+	private double[] closestStillPossibleCoordinates = new double[0];
 	private DistanceFunction distanceFunction = DEFAULT_DISTANCE_FUNCTION;
-	private double farthestNearNeighborDistance = Double.POSITIVE_INFINITY;
-	private Queue<E> nearestNeighborList;
+	/*
+	 * Holds the distances to every element of the bucket being searched, when they are measured all at once.
+	 */
+	private double[] distances = new double[0];
+	private NodeDistanceQueue<E> fartherNodes = new NodeDistanceQueue<>(0);
+	private KDPointFilter<? super E> filter;
+	private int maxBucketsToVisit = Integer.MAX_VALUE;
+	private NearestNeighborHeap<E> nearestNeighbors;
+	private PackedDistanceFunction packedDistanceFunction = (PackedDistanceFunction) DEFAULT_DISTANCE_FUNCTION;
+	private double pruningFactor = 1.0;
 	private double[] targetCoordinates = new double[0];
 	private final BucketPRKDTree<E> tree;
 
@@ -31,39 +49,67 @@ class BucketPRKDKNearestNeighborSearcher<E extends KDPoint> {
 	}
 
 	List<E> getKNearestNeighbors(final int k, final double[] targetCoordinates) {
-		capacity = k;
-		this.targetCoordinates = Arrays.copyOf(targetCoordinates, targetCoordinates.length);
-		farthestNearNeighborDistance = Double.POSITIVE_INFINITY;
+		search(k, targetCoordinates);
 
-		nearestNeighborList = new PriorityQueue<>(capacity, new FarthestComparator());
-		findNearestNeighbors();
+		return nearestNeighbors.toList();
+	}
+
+	/**
+	 * Searches as {@link #getKNearestNeighbors(int, double[])} does, but fills the specified {@link NeighborResult}
+	 * with the neighbors found, nearest first, and their distances.
+	 */
+	void getKNearestNeighbors(final int k, final double[] targetCoordinates, final NeighborResult<E> result) {
+		search(k, targetCoordinates);
 
-		return new ArrayList<E>(nearestNeighborList);
+		result.fill(nearestNeighbors);
 	}
 
-	void setDistanceFunction(final DistanceFunction distanceFunction) {
-		this.distanceFunction = distanceFunction;
+	BucketPRKDTree<E> getTree() {
+		return tree;
 	}
 
-	private void addNearestNeighbor(final Queue<E> nearestNeighborList, final E e) {
-		if (nearestNeighborList.size() >= capacity) {
-			nearestNeighborList.poll();
+	/**
+	 * Makes subsequent searches approximate. A region is only searched if its least possible distance from the target,
+	 * multiplied by 1 + epsilon, is less than the distance of the farthest near neighbor found so far, so each
+	 * neighbor returned is within a factor of 1 + epsilon, as measured by the {@link DistanceFunction}, of the true
+	 * neighbor of the same rank. Independently, the search stops once the specified number of buckets has been
+	 * searched, nearest regions first; this bounds the work done but not the error. An epsilon of zero and a maximum
+	 * of {@link Integer#MAX_VALUE} buckets make the search exact again.
+	 */
+	void setApproximation(final double epsilon, final int maxBucketsToVisit) {
+		if (!(epsilon >= 0.0)) {
+			throw new IllegalArgumentException("Epsilon must not be negative.");
+		}
+		if (maxBucketsToVisit < 1) {
+			throw new IllegalArgumentException("At least one bucket must be visited.");
 		}
 
-		nearestNeighborList.add(e);
+		pruningFactor = 1.0 + epsilon;
+		this.maxBucketsToVisit = maxBucketsToVisit;
+	}
 
-		if (nearestNeighborList.size() >= capacity) {
-			farthestNearNeighborDistance =
-					distanceFunction.distance(targetCoordinates, nearestNeighborList.peek().getCoordinates());
-		} else {
-			farthestNearNeighborDistance = Double.POSITIVE_INFINITY;
-		}
+	/**
+	 * Restricts subsequent searches to the elements accepted by the specified {@link KDPointFilter}. A null filter
+	 * accepts every element.
+	 */
+	void setFilter(final KDPointFilter<? super E> filter) {
+		this.filter = filter;
+	}
+
+	void setDistanceFunction(final DistanceFunction distanceFunction) {
+		this.distanceFunction = distanceFunction;
+		packedDistanceFunction =
+				distanceFunction instanceof PackedDistanceFunction ? (PackedDistanceFunction) distanceFunction : null;
+		bulkDistanceFunction =
+				distanceFunction instanceof BulkDistanceFunction ? (BulkDistanceFunction) distanceFunction : null;
 	}
 
 	private void findNearestNeighbors() {
 		final BucketPRKDTreeNode<E> node = tree.getNode();
 		if (node instanceof BucketNode) {
 			findNearestNeighborsInBucketNode((BucketNode<E>) node);
+		} else if (node instanceof CoLocatedNode) {
+			findNearestNeighborsInCoLocatedNode((CoLocatedNode<E>) node);
 		} else if (node instanceof SplittingPlaneNode) {
 			findNearestNeighborsInSplittingPlaneNode((SplittingPlaneNode<E>) node);
 		} else {
@@ -72,26 +118,74 @@ class BucketPRKDKNearestNeighborSearcher<E extends KDPoint> {
 	}
 
 	private void findNearestNeighborsInBucketNode(final BucketNode<E> bucketNode) {
-		for (final E e : bucketNode.getElements()) {
-			if (testCoordinatesAreCloserThanFarthestNearNeighbor(e.getCoordinates())) {
-				addNearestNeighbor(nearestNeighborList, e);
+		final List<E> elements = bucketNode.getElements();
+		final int size = elements.size();
+		double distance;
+		if (bulkDistanceFunction != null && bucketNode.isPacked()) {
+			if (distances.length < size) {
+				distances = new double[Math.max(size, tree.getBucketSize())];
+			}
+			if (nearestNeighbors.isFull()) {
+				/* Only elements nearer than the farthest near neighbor matter, so the rest may be abandoned early. */
+				bulkDistanceFunction.distances(targetCoordinates, bucketNode.getCoordinates(), size,
+						nearestNeighbors.peekDistance(), distances);
+			} else {
+				bulkDistanceFunction.distances(targetCoordinates, bucketNode.getCoordinates(), size, distances);
+			}
+			for (int i = 0; i < size; i++) {
+				distance = distances[i];
+				if (isCloserThanFarthestNearNeighbor(distance) && isAccepted(elements.get(i))) {
+					nearestNeighbors.add(elements.get(i), distance);
+				}
+			}
+		} else if (packedDistanceFunction != null && bucketNode.isPacked()) {
+			final double[] coordinates = bucketNode.getCoordinates();
+			final int numberOfDimensions = targetCoordinates.length;
+			for (int i = 0, offset = 0; i < size; i++, offset += numberOfDimensions) {
+				distance = packedDistanceFunction.distance(targetCoordinates, coordinates, offset);
+				if (isCloserThanFarthestNearNeighbor(distance) && isAccepted(elements.get(i))) {
+					nearestNeighbors.add(elements.get(i), distance);
+				}
+			}
+		} else {
+			E e;
+			for (int i = 0; i < size; i++) {
+				e = elements.get(i);
+				distance = distanceFunction.distance(targetCoordinates, e.getCoordinatesUnsafe());
+				if (isCloserThanFarthestNearNeighbor(distance) && isAccepted(e)) {
+					nearestNeighbors.add(e, distance);
+				}
 			}
 		}
 	}
 
-	private void findNearestNeighborsInSplittingPlaneNode(final SplittingPlaneNode<E> parentNode) {
-		final Queue<KDPoint<BucketPRKDTreeNode<E>>> fartherNodes =
-				new PriorityQueue<KDPoint<BucketPRKDTreeNode<E>>>(capacity, new ClosestComparator());
+	private void findNearestNeighborsInCoLocatedNode(final CoLocatedNode<E> coLocatedNode) {
+		final double distance = distanceFunction.distance(targetCoordinates, coLocatedNode.getCoordinates());
+		final List<E> elements = coLocatedNode.getElements();
+		final int size = elements.size();
+		for (int i = 0; i < size && isCloserThanFarthestNearNeighbor(distance); i++) {
+			if (isAccepted(elements.get(i))) {
+				nearestNeighbors.add(elements.get(i), distance);
+			}
+		}
+	}
 
-		double[] closestStillPossibleCoordinates = Arrays.copyOf(targetCoordinates, targetCoordinates.length);
-		double[] fartherClosestStillPossibleCoordinates = Arrays.copyOf(targetCoordinates, targetCoordinates.length);
+	private void findNearestNeighborsInSplittingPlaneNode(final SplittingPlaneNode<E> parentNode) {
+		fartherNodes.clear();
+
+		/*
+		 * The closest still possible coordinates are updated in place while descending and restored from the queue
+		 * when backtracking, so no arrays are allocated per node visited.
+		 */
+		System.arraycopy(targetCoordinates, 0, closestStillPossibleCoordinates, 0, targetCoordinates.length);
+		double closestStillPossibleDistance =
+				distanceFunction.distance(targetCoordinates, closestStillPossibleCoordinates);
 		BucketPRKDTreeNode<E> closerNode = parentNode;
 		BucketPRKDTreeNode<E> fartherNode;
 		int splitDimensionIndex;
-		double splitDimensionMedian;
+		double splitDimensionMedian, closerCoordinate, fartherDistance;
 		SplittingPlaneNode<E> splittingPlaneNode;
-		KDPoint<BucketPRKDTreeNode<E>> closestKDPoint;
-		while (testCoordinatesAreCloserThanFarthestNearNeighbor(closestStillPossibleCoordinates)) {
+		while (isWorthSearching(closestStillPossibleDistance)) {
 			while (closerNode instanceof SplittingPlaneNode) {
 				splittingPlaneNode = (SplittingPlaneNode<E>) closerNode;
 				splitDimensionIndex = splittingPlaneNode.getSplitDimensionIndex();
@@ -105,84 +199,67 @@ class BucketPRKDKNearestNeighborSearcher<E extends KDPoint> {
 					fartherNode = splittingPlaneNode.getRightBucketPRKDTree().getNode();
 				}
 
-				fartherClosestStillPossibleCoordinates =
-						Arrays.copyOf(closestStillPossibleCoordinates, closestStillPossibleCoordinates.length);
-				fartherClosestStillPossibleCoordinates[splitDimensionIndex] = splitDimensionMedian;
-				/*
-				 * Direct use of the fartherClosestStillPossibleCoordinates array is only safe because the KDPoint
-				 * constructor creates a copy of the coordinate array.
-				 */
-				fartherNodes
-						.add(new KDPoint<BucketPRKDTreeNode<E>>(fartherClosestStillPossibleCoordinates, fartherNode));
+				closerCoordinate = closestStillPossibleCoordinates[splitDimensionIndex];
+				closestStillPossibleCoordinates[splitDimensionIndex] = splitDimensionMedian;
+				fartherDistance = distanceFunction.distance(targetCoordinates, closestStillPossibleCoordinates);
+				if (isWorthSearching(fartherDistance)) {
+					fartherNodes.add(fartherNode, fartherDistance, closestStillPossibleCoordinates);
+				}
+				closestStillPossibleCoordinates[splitDimensionIndex] = closerCoordinate;
 			}
 
 			if (closerNode instanceof BucketNode) {
 				findNearestNeighborsInBucketNode((BucketNode<E>) closerNode);
+				if (++bucketsVisited >= maxBucketsToVisit) {
+					return;
+				}
+			} else if (closerNode instanceof CoLocatedNode) {
+				findNearestNeighborsInCoLocatedNode((CoLocatedNode<E>) closerNode);
+				if (++bucketsVisited >= maxBucketsToVisit) {
+					return;
+				}
 			}
 
-			closestKDPoint = fartherNodes.poll();
-			if (closestKDPoint != null) {
-				closerNode = closestKDPoint.getData();
-				closestStillPossibleCoordinates = closestKDPoint.getCoordinates();
-			} else {
+			if (fartherNodes.isEmpty()) {
 				return;
 			}
-		}
-	}
-
-	private boolean testCoordinatesAreCloserThanFarthestNearNeighbor(final double[] testCoordinates) {
-		boolean isCloser = false;
 
-		if (nearestNeighborList.size() < capacity
-				|| distanceFunction.distance(testCoordinates, targetCoordinates) < farthestNearNeighborDistance) {
-			isCloser = true;
+			closestStillPossibleDistance = fartherNodes.peekBound();
+			closerNode = fartherNodes.poll(closestStillPossibleCoordinates);
 		}
-
-		return isCloser;
 	}
 
-	/**
-	 * The {@link ClosestComparator} is used for returning things in order from closest to farthest away from the target
-	 * coordinates. That is to say {@link ClosestComparator#compare(KDPoint, KDPoint)} will return as the least element
-	 * the one which is closest to the target coordinates.
-	 */
-	private class ClosestComparator implements Comparator<KDPoint<BucketPRKDTreeNode<E>>> {
-
-		private final FarthestComparator greatestDistanceComparator = new FarthestComparator();
-
-		@Override
-		public int compare(final KDPoint<BucketPRKDTreeNode<E>> o1, final KDPoint<BucketPRKDTreeNode<E>> o2) {
-			return greatestDistanceComparator.compareCoordinates(o2.getCoordinates(), o1.getCoordinates());
-		}
+	private boolean isAccepted(final E e) {
+		return filter == null || filter.accept(e);
+	}
 
+	private boolean isCloserThanFarthestNearNeighbor(final double distance) {
+		return !nearestNeighbors.isFull() || distance < nearestNeighbors.peekDistance();
 	}
 
 	/**
-	 * The {@link FarthestComparator} is used for returning things in order from farthest away to closest to the target
-	 * coordinates. That is to say {@link FarthestComparator#compare(KDPoint, KDPoint)} will return as the least element
-	 * the one which is farthest away from the target coordinates.
+	 * Determines whether a region whose elements can be no closer than the specified distance should be searched.
 	 */
-	private class FarthestComparator implements Comparator<E> {
+	private boolean isWorthSearching(final double closestStillPossibleDistance) {
+		return isCloserThanFarthestNearNeighbor(closestStillPossibleDistance * pruningFactor);
+	}
 
-		@Override
-		public int compare(final E o1, final E o2) {
-			return compareCoordinates(o1.getCoordinates(), o2.getCoordinates());
+	private void search(final int k, final double[] targetCoordinates) {
+		final int numberOfDimensions = targetCoordinates.length;
+		if (this.targetCoordinates.length != numberOfDimensions) {
+			this.targetCoordinates = new double[numberOfDimensions];
+			closestStillPossibleCoordinates = new double[numberOfDimensions];
+			fartherNodes = new NodeDistanceQueue<>(numberOfDimensions);
 		}
+		System.arraycopy(targetCoordinates, 0, this.targetCoordinates, 0, numberOfDimensions);
 
-		private int compareCoordinates(final double[] coordinates1, final double[] coordinates2) {
-			final double distance1 = distanceFunction.distance(targetCoordinates, coordinates1);
-			final double distance2 = distanceFunction.distance(targetCoordinates, coordinates2);
-
-			final double difference = distance2 - distance1;
-			if (difference < 0.0) {
-				return -1;
-			} else if (difference > 0.0) {
-				return 1;
-			} else {
-				return 0;
-			}
+		if (nearestNeighbors == null || nearestNeighbors.capacity() != k) {
+			nearestNeighbors = new NearestNeighborHeap<>(k);
+		} else {
+			nearestNeighbors.clear();
 		}
-
+		bucketsVisited = 0;
+		findNearestNeighbors();
 	}
 
 }
@@ -0,0 +1,251 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.PackedDistanceFunction;
+
+/**
+ * The {@link BucketPRKDNearestNeighborIterator} returns the elements of a tree in ascending order of distance from a
+ * search target, searching only as much of the tree as is needed to return each element. Regions are queued in a
+ * {@link NodeDistanceQueue} by the least possible distance to anything within them, as in a
+ * {@link BucketPRKDKNearestNeighborSearcher}, while the elements of searched buckets wait in a second queue keyed by
+ * their exact distances. An element is returned once no queued region could hold anything closer.<br>
+ * <br>
+ * The tree must not be modified while the iterator is in use.
+ * 
+ * @param <E>
+ *            the type of element in the tree.
+ */
+class BucketPRKDNearestNeighborIterator<E extends KDPoint> implements Iterator<E> {
+
+	private final ElementDistanceQueue<E> candidates = new ElementDistanceQueue<>();
+	private final double[] closestStillPossibleCoordinates;
+	private List<E> coLocatedElements;
+	private int coLocatedIndex;
+	private final DistanceFunction distanceFunction;
+	private final NodeDistanceQueue<E> nodes;
+	private final PackedDistanceFunction packedDistanceFunction;
+	private final double[] targetCoordinates;
+
+	BucketPRKDNearestNeighborIterator(final BucketPRKDTree<E> tree, final double[] targetCoordinates,
+			final DistanceFunction distanceFunction) {
+		final int numberOfDimensions = targetCoordinates.length;
+		this.targetCoordinates = Arrays.copyOf(targetCoordinates, numberOfDimensions);
+		this.distanceFunction = distanceFunction;
+		packedDistanceFunction =
+				distanceFunction instanceof PackedDistanceFunction ? (PackedDistanceFunction) distanceFunction : null;
+		closestStillPossibleCoordinates = Arrays.copyOf(targetCoordinates, numberOfDimensions);
+		nodes = new NodeDistanceQueue<>(numberOfDimensions);
+		nodes.add(tree.getNode(), distanceFunction.distance(this.targetCoordinates, closestStillPossibleCoordinates),
+				closestStillPossibleCoordinates);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return advance();
+	}
+
+	@Override
+	public E next() {
+		if (!advance()) {
+			throw new NoSuchElementException();
+		}
+
+		if (coLocatedElements != null) {
+			return coLocatedElements.get(coLocatedIndex++);
+		}
+
+		return candidates.poll();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("The elements of a nearest neighbor search can't be removed.");
+	}
+
+	/**
+	 * Searches regions until the next element is known.
+	 * 
+	 * @return true if there is a next element, ready to be taken from a run of co-located elements or from the front of
+	 *         the candidates.
+	 */
+	private boolean advance() {
+		if (coLocatedElements != null) {
+			if (coLocatedIndex < coLocatedElements.size()) {
+				return true;
+			}
+
+			coLocatedElements = null;
+		}
+
+		while (!nodes.isEmpty()) {
+			if (!candidates.isEmpty() && candidates.peekDistance() <= nodes.peekBound()) {
+				return true;
+			}
+
+			final BucketPRKDTreeNode<E> node = nodes.poll(closestStillPossibleCoordinates);
+			if (node instanceof SplittingPlaneNode) {
+				queueChildren((SplittingPlaneNode<E>) node);
+			} else if (node instanceof BucketNode) {
+				queueElements((BucketNode<E>) node);
+			} else if (node instanceof CoLocatedNode) {
+				if (startCoLocatedRun((CoLocatedNode<E>) node)) {
+					return true;
+				}
+			} else {
+				throw new IllegalArgumentException("The provided BucketPRKDTreeNode is of an unsupported type.");
+			}
+		}
+
+		return !candidates.isEmpty();
+	}
+
+	private void queueChildren(final SplittingPlaneNode<E> splittingPlaneNode) {
+		final int splitDimensionIndex = splittingPlaneNode.getSplitDimensionIndex();
+		final double splitDimensionMedian = splittingPlaneNode.getSplitDimensionMedian();
+		final BucketPRKDTreeNode<E> closerNode, fartherNode;
+		if (splitDimensionMedian < closestStillPossibleCoordinates[splitDimensionIndex]) {
+			closerNode = splittingPlaneNode.getRightBucketPRKDTree().getNode();
+			fartherNode = splittingPlaneNode.getLeftBucketPRKDTree().getNode();
+		} else {
+			closerNode = splittingPlaneNode.getLeftBucketPRKDTree().getNode();
+			fartherNode = splittingPlaneNode.getRightBucketPRKDTree().getNode();
+		}
+
+		nodes.add(closerNode, distanceFunction.distance(targetCoordinates, closestStillPossibleCoordinates),
+				closestStillPossibleCoordinates);
+
+		final double closerCoordinate = closestStillPossibleCoordinates[splitDimensionIndex];
+		closestStillPossibleCoordinates[splitDimensionIndex] = splitDimensionMedian;
+		nodes.add(fartherNode, distanceFunction.distance(targetCoordinates, closestStillPossibleCoordinates),
+				closestStillPossibleCoordinates);
+		closestStillPossibleCoordinates[splitDimensionIndex] = closerCoordinate;
+	}
+
+	private void queueElements(final BucketNode<E> bucketNode) {
+		final List<E> elements = bucketNode.getElements();
+		final int size = elements.size();
+		if (packedDistanceFunction != null && bucketNode.isPacked()) {
+			final double[] coordinates = bucketNode.getCoordinates();
+			final int numberOfDimensions = targetCoordinates.length;
+			for (int i = 0, offset = 0; i < size; i++, offset += numberOfDimensions) {
+				candidates.add(elements.get(i),
+						packedDistanceFunction.distance(targetCoordinates, coordinates, offset));
+			}
+		} else {
+			E e;
+			for (int i = 0; i < size; i++) {
+				e = elements.get(i);
+				candidates.add(e, distanceFunction.distance(targetCoordinates, e.getCoordinatesUnsafe()));
+			}
+		}
+	}
+
+	/**
+	 * Starts returning the elements of a {@link CoLocatedNode} if nothing queued could be closer. Otherwise the node is
+	 * queued again at its exact distance, rather than queuing each of its possibly very many elements.
+	 * 
+	 * @return true if the run of co-located elements was started.
+	 */
+	private boolean startCoLocatedRun(final CoLocatedNode<E> coLocatedNode) {
+		if (coLocatedNode.size() == 0) {
+			return false;
+		}
+
+		final double[] coordinates = coLocatedNode.getCoordinates();
+		final double distance = distanceFunction.distance(targetCoordinates, coordinates);
+		if ((nodes.isEmpty() || distance <= nodes.peekBound())
+				&& (candidates.isEmpty() || distance <= candidates.peekDistance())) {
+			coLocatedElements = coLocatedNode.getElements();
+			coLocatedIndex = 0;
+			return true;
+		}
+
+		nodes.add(coLocatedNode, distance, coordinates);
+		return false;
+	}
+
+	/**
+	 * A min-heap of elements keyed by their distance from the search target, kept in primitive arrays like the
+	 * {@link NodeDistanceQueue}.
+	 */
+	private static class ElementDistanceQueue<E> {
+
+		private static final int INITIAL_CAPACITY = 64;
+
+		private double[] distances = new double[INITIAL_CAPACITY];
+		private Object[] elements = new Object[INITIAL_CAPACITY];
+		private int size = 0;
+
+		void add(final E e, final double distance) {
+			if (size >= distances.length) {
+				distances = Arrays.copyOf(distances, size * 2);
+				elements = Arrays.copyOf(elements, size * 2);
+			}
+
+			int index = size++;
+			while (index > 0) {
+				final int parent = (index - 1) >>> 1;
+				if (distance >= distances[parent]) {
+					break;
+				}
+
+				distances[index] = distances[parent];
+				elements[index] = elements[parent];
+				index = parent;
+			}
+
+			distances[index] = distance;
+			elements[index] = e;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		double peekDistance() {
+			return distances[0];
+		}
+
+		@SuppressWarnings("unchecked")
+		E poll() {
+			final E e = (E) elements[0];
+
+			final int last = --size;
+			if (last > 0) {
+				final double distance = distances[last];
+				final Object element = elements[last];
+				int index = 0;
+				final int half = last >>> 1;
+				while (index < half) {
+					int child = 2 * index + 1;
+					final int right = child + 1;
+					if (right < last && distances[right] < distances[child]) {
+						child = right;
+					}
+
+					if (distance <= distances[child]) {
+						break;
+					}
+
+					distances[index] = distances[child];
+					elements[index] = elements[child];
+					index = child;
+				}
+
+				distances[index] = distance;
+				elements[index] = element;
+			}
+			elements[last] = null;
+
+			return e;
+		}
+
+	}
+
+}
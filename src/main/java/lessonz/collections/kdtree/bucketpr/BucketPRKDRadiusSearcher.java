@@ -0,0 +1,165 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.Arrays;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointVisitor;
+import lessonz.collections.kdtree.distance.BulkDistanceFunction;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.PackedDistanceFunction;
+
+/**
+ * The {@link BucketPRKDRadiusSearcher} finds every element within a fixed distance of a target. As in
+ * {@link BucketPRKDKNearestNeighborSearcher}, the far side of each splitting plane is only searched if the closest
+ * coordinates still possible on that side are within the radius. The search ends early if a {@link KDPointVisitor}
+ * asks it to stop.
+ * 
+ * @param <E>
+ *            the type of element in the tree.
+ */
+class BucketPRKDRadiusSearcher<E extends KDPoint> {
+
+	private final BulkDistanceFunction bulkDistanceFunction;
+	private final double[] closestStillPossibleCoordinates;
+	private int count;
+	private final DistanceFunction distanceFunction;
+	private final PackedDistanceFunction packedDistanceFunction;
+	private final double radius;
+	private boolean stopped;
+	private final double[] targetCoordinates;
+	private final BucketPRKDTree<E> tree;
+	private KDPointVisitor<? super E> visitor;
+
+	BucketPRKDRadiusSearcher(final BucketPRKDTree<E> tree, final double radius, final double[] targetCoordinates,
+			final DistanceFunction distanceFunction) {
+		this.tree = tree;
+		this.radius = radius;
+		this.targetCoordinates = Arrays.copyOf(targetCoordinates, targetCoordinates.length);
+		this.distanceFunction = distanceFunction;
+		packedDistanceFunction =
+				distanceFunction instanceof PackedDistanceFunction ? (PackedDistanceFunction) distanceFunction : null;
+		bulkDistanceFunction =
+				distanceFunction instanceof BulkDistanceFunction ? (BulkDistanceFunction) distanceFunction : null;
+		closestStillPossibleCoordinates = new double[targetCoordinates.length];
+	}
+
+	/**
+	 * Counts the elements within the radius without collecting them.
+	 * 
+	 * @return the number of elements found.
+	 */
+	int count() {
+		search(null);
+
+		return count;
+	}
+
+	/**
+	 * Passes each element within the radius to the specified {@link KDPointVisitor} until it returns false.
+	 * 
+	 * @param visitor
+	 *            the {@link KDPointVisitor} to receive the elements found.
+	 */
+	void search(final KDPointVisitor<? super E> visitor) {
+		this.visitor = visitor;
+		count = 0;
+		stopped = false;
+		System.arraycopy(targetCoordinates, 0, closestStillPossibleCoordinates, 0, targetCoordinates.length);
+
+		searchNode(tree.getNode());
+	}
+
+	private void found(final E e) {
+		count++;
+		if (visitor != null && !visitor.visit(e)) {
+			stopped = true;
+		}
+	}
+
+	private void searchNode(final BucketPRKDTreeNode<E> node) {
+		if (node instanceof SplittingPlaneNode) {
+			searchSplittingPlaneNode((SplittingPlaneNode<E>) node);
+		} else if (node instanceof BucketNode) {
+			searchBucketNode((BucketNode<E>) node);
+		} else if (node instanceof CoLocatedNode) {
+			searchCoLocatedNode((CoLocatedNode<E>) node);
+		} else {
+			throw new IllegalArgumentException("The provided BucketPRKDTreeNode is of an unsupported type.");
+		}
+	}
+
+	private void searchBucketNode(final BucketNode<E> bucketNode) {
+		final List<E> elements = bucketNode.getElements();
+		final int size = elements.size();
+		if (bulkDistanceFunction != null && bucketNode.isPacked()) {
+			/* Only whether an element is within the radius matters, so its distance may be abandoned beyond it. */
+			final double[] coordinates = bucketNode.getCoordinates();
+			final int numberOfDimensions = targetCoordinates.length;
+			for (int i = 0, offset = 0; i < size && !stopped; i++, offset += numberOfDimensions) {
+				if (bulkDistanceFunction.distance(targetCoordinates, coordinates, offset, radius) <= radius) {
+					found(elements.get(i));
+				}
+			}
+		} else if (packedDistanceFunction != null && bucketNode.isPacked()) {
+			final double[] coordinates = bucketNode.getCoordinates();
+			final int numberOfDimensions = targetCoordinates.length;
+			for (int i = 0, offset = 0; i < size && !stopped; i++, offset += numberOfDimensions) {
+				if (packedDistanceFunction.distance(targetCoordinates, coordinates, offset) <= radius) {
+					found(elements.get(i));
+				}
+			}
+		} else {
+			E e;
+			for (int i = 0; i < size && !stopped; i++) {
+				e = elements.get(i);
+				if (distanceFunction.distance(targetCoordinates, e.getCoordinatesUnsafe()) <= radius) {
+					found(e);
+				}
+			}
+		}
+	}
+
+	private void searchCoLocatedNode(final CoLocatedNode<E> coLocatedNode) {
+		if (distanceFunction.distance(targetCoordinates, coLocatedNode.getCoordinates()) > radius) {
+			return;
+		}
+
+		if (visitor == null) {
+			count += coLocatedNode.size();
+		} else {
+			for (final E e : coLocatedNode.getElements()) {
+				found(e);
+				if (stopped) {
+					return;
+				}
+			}
+		}
+	}
+
+	private void searchSplittingPlaneNode(final SplittingPlaneNode<E> splittingPlaneNode) {
+		final int splitDimensionIndex = splittingPlaneNode.getSplitDimensionIndex();
+		final double splitDimensionMedian = splittingPlaneNode.getSplitDimensionMedian();
+		final BucketPRKDTreeNode<E> closerNode, fartherNode;
+		if (splitDimensionMedian < closestStillPossibleCoordinates[splitDimensionIndex]) {
+			closerNode = splittingPlaneNode.getRightBucketPRKDTree().getNode();
+			fartherNode = splittingPlaneNode.getLeftBucketPRKDTree().getNode();
+		} else {
+			closerNode = splittingPlaneNode.getLeftBucketPRKDTree().getNode();
+			fartherNode = splittingPlaneNode.getRightBucketPRKDTree().getNode();
+		}
+
+		searchNode(closerNode);
+		if (stopped) {
+			return;
+		}
+
+		final double closerCoordinate = closestStillPossibleCoordinates[splitDimensionIndex];
+		closestStillPossibleCoordinates[splitDimensionIndex] = splitDimensionMedian;
+		if (distanceFunction.distance(targetCoordinates, closestStillPossibleCoordinates) <= radius) {
+			searchNode(fartherNode);
+		}
+		closestStillPossibleCoordinates[splitDimensionIndex] = closerCoordinate;
+	}
+
+}
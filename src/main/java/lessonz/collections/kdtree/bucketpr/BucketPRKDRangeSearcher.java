@@ -0,0 +1,151 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointVisitor;
+
+/**
+ * The {@link BucketPRKDRangeSearcher} finds every element within an axis-aligned box. Subtrees lying wholly on the far
+ * side of a splitting plane are skipped, and subtrees lying wholly inside the box are reported without testing their
+ * elements, so for selective boxes the work done is proportional to the number of elements found. The search ends
+ * early if the {@link KDPointVisitor} asks it to stop.
+ * 
+ * @param <E>
+ *            the type of element in the tree.
+ */
+class BucketPRKDRangeSearcher<E extends KDPoint> {
+
+	private final double[] lowerBounds;
+	private final double[] maxCoordinates;
+	private final double[] minCoordinates;
+	private boolean stopped;
+	private final BucketPRKDTree<E> tree;
+	private final double[] upperBounds;
+	private KDPointVisitor<? super E> visitor;
+
+	/**
+	 * Creates a searcher for the box between the specified corners, inclusive.
+	 */
+	BucketPRKDRangeSearcher(final BucketPRKDTree<E> tree, final double[] minCoordinates,
+			final double[] maxCoordinates) {
+		this.tree = tree;
+		this.minCoordinates = Arrays.copyOf(minCoordinates, minCoordinates.length);
+		this.maxCoordinates = Arrays.copyOf(maxCoordinates, maxCoordinates.length);
+		lowerBounds = new double[minCoordinates.length];
+		upperBounds = new double[minCoordinates.length];
+	}
+
+	void search(final KDPointVisitor<? super E> visitor) {
+		this.visitor = visitor;
+		stopped = false;
+		Arrays.fill(lowerBounds, Double.NEGATIVE_INFINITY);
+		Arrays.fill(upperBounds, Double.POSITIVE_INFINITY);
+
+		search(tree.getNode());
+	}
+
+	private void found(final E e) {
+		if (!visitor.visit(e)) {
+			stopped = true;
+		}
+	}
+
+	/**
+	 * Determines whether the region currently bounded by lowerBounds (inclusive) and upperBounds (exclusive) lies
+	 * wholly inside the box.
+	 */
+	private boolean isRegionInsideBox() {
+		for (int i = 0; i < lowerBounds.length; i++) {
+			if (lowerBounds[i] < minCoordinates[i] || upperBounds[i] > maxCoordinates[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void search(final BucketPRKDTreeNode<E> node) {
+		if (isRegionInsideBox()) {
+			for (final Iterator<E> iterator = node.iterator(); iterator.hasNext() && !stopped;) {
+				found(iterator.next());
+			}
+		} else if (node instanceof SplittingPlaneNode) {
+			searchSplittingPlaneNode((SplittingPlaneNode<E>) node);
+		} else if (node instanceof BucketNode) {
+			searchBucketNode((BucketNode<E>) node);
+		} else if (node instanceof CoLocatedNode) {
+			searchCoLocatedNode((CoLocatedNode<E>) node);
+		} else {
+			throw new IllegalArgumentException("The provided BucketPRKDTreeNode is of an unsupported type.");
+		}
+	}
+
+	private void searchBucketNode(final BucketNode<E> bucketNode) {
+		final List<E> elements = bucketNode.getElements();
+		final double[] packedCoordinates = bucketNode.getCoordinates();
+		final int numberOfDimensions = minCoordinates.length;
+		final int size = elements.size();
+		double[] coordinates;
+		double coordinate;
+		int i, j, offset;
+		for (i = 0; i < size && !stopped; i++) {
+			/* A bucket that doesn't pack its coordinates is read from each element's own. */
+			if (packedCoordinates != null) {
+				coordinates = packedCoordinates;
+				offset = i * numberOfDimensions;
+			} else {
+				coordinates = elements.get(i).getCoordinatesUnsafe();
+				offset = 0;
+			}
+			for (j = 0; j < numberOfDimensions; j++) {
+				coordinate = coordinates[offset + j];
+				if (coordinate < minCoordinates[j] || coordinate > maxCoordinates[j]) {
+					break;
+				}
+			}
+
+			if (j == numberOfDimensions) {
+				found(elements.get(i));
+			}
+		}
+	}
+
+	private void searchCoLocatedNode(final CoLocatedNode<E> coLocatedNode) {
+		final double[] coordinates = coLocatedNode.getCoordinates();
+		for (int i = 0; i < minCoordinates.length; i++) {
+			if (coordinates[i] < minCoordinates[i] || coordinates[i] > maxCoordinates[i]) {
+				return;
+			}
+		}
+
+		for (final E e : coLocatedNode.getElements()) {
+			found(e);
+			if (stopped) {
+				return;
+			}
+		}
+	}
+
+	private void searchSplittingPlaneNode(final SplittingPlaneNode<E> splittingPlaneNode) {
+		final int splitDimensionIndex = splittingPlaneNode.getSplitDimensionIndex();
+		final double splitDimensionMedian = splittingPlaneNode.getSplitDimensionMedian();
+
+		if (minCoordinates[splitDimensionIndex] < splitDimensionMedian) {
+			final double upperBound = upperBounds[splitDimensionIndex];
+			upperBounds[splitDimensionIndex] = splitDimensionMedian;
+			search(splittingPlaneNode.getLeftBucketPRKDTree().getNode());
+			upperBounds[splitDimensionIndex] = upperBound;
+		}
+
+		if (!stopped && maxCoordinates[splitDimensionIndex] >= splitDimensionMedian) {
+			final double lowerBound = lowerBounds[splitDimensionIndex];
+			lowerBounds[splitDimensionIndex] = splitDimensionMedian;
+			search(splittingPlaneNode.getRightBucketPRKDTree().getNode());
+			lowerBounds[splitDimensionIndex] = lowerBound;
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.split.MedianPartitioner;
+import lessonz.collections.kdtree.split.SplitStrategy;
+import lessonz.collections.kdtree.split.SplittingPlane;
+
+/**
+ * The {@link BucketPRKDTreeBuilder} builds a balanced {@link BucketPRKDTree} from a complete set of elements in one
+ * top-down pass. Each range of elements is split on its widest dimension at the true median of that dimension, found
+ * by selection rather than sorting, and ranges no larger than the bucket size become {@link BucketNode}s. Elements and
+ * a packed copy of their coordinates are partitioned in place by a {@link MedianPartitioner}, so building takes
+ * O(n log n) time and allocates little beyond the tree itself and that one coordinate array. The built tree splits
+ * buckets that later overflow with the {@link SplitStrategy} it is given, and its buckets pack their coordinates only
+ * if it is told to.
+ * 
+ * @param <E>
+ *            the type of element in the tree.
+ */
+class BucketPRKDTreeBuilder<E extends KDPoint> {
+
+	private final int bucketSize;
+	private final Object[] elements;
+	private final int numberOfDimensions;
+	private final boolean packCoordinates;
+	private final MedianPartitioner partitioner;
+	private final SplitStrategy splitStrategy;
+
+	BucketPRKDTreeBuilder(final Collection<? extends E> elements, final int numberOfDimensions, final int bucketSize) {
+		this(elements, numberOfDimensions, bucketSize, BucketPRKDTree.DEFAULT_SPLIT_STRATEGY, true);
+	}
+
+	BucketPRKDTreeBuilder(final Collection<? extends E> elements, final int numberOfDimensions, final int bucketSize,
+			final SplitStrategy splitStrategy, final boolean packCoordinates) {
+		final Object[] elementArray = elements.toArray();
+		this.elements = elementArray;
+		this.numberOfDimensions = numberOfDimensions;
+		this.bucketSize = bucketSize;
+		this.splitStrategy = splitStrategy;
+		this.packCoordinates = packCoordinates;
+
+		final double[] coordinates = new double[elementArray.length * numberOfDimensions];
+		for (int i = 0; i < elementArray.length; i++) {
+			System.arraycopy(((KDPoint) elementArray[i]).getCoordinatesUnsafe(), 0, coordinates, i
+					* numberOfDimensions, numberOfDimensions);
+		}
+		partitioner = new MedianPartitioner(coordinates, numberOfDimensions) {
+
+			@Override
+			protected void swapKeys(final int i, final int j) {
+				final Object temp = elementArray[i];
+				elementArray[i] = elementArray[j];
+				elementArray[j] = temp;
+			}
+
+		};
+	}
+
+	BucketPRKDTree<E> build() {
+		return build(0, elements.length);
+	}
+
+	/**
+	 * Builds the tree using the specified {@link ForkJoinPool}. Ranges larger than the parallel threshold have their
+	 * two halves built as separate tasks; smaller ranges are built sequentially. The resulting tree is identical to
+	 * that returned by {@link #build()}.
+	 */
+	BucketPRKDTree<E> build(final ForkJoinPool pool, final int parallelThreshold) {
+		return pool.invoke(new BuildTask(0, elements.length, parallelThreshold));
+	}
+
+	private BucketPRKDTree<E> build(final int from, final int to) {
+		final Split split = split(from, to);
+		if (split == null) {
+			return createBucket(from, to);
+		}
+
+		return createSplittingPlane(split, build(from, split.index), build(split.index, to));
+	}
+
+	/**
+	 * Partitions the range about the median of its widest dimension.
+	 * 
+	 * @return the chosen {@link Split}, or null if the range should instead become a bucket.
+	 */
+	private Split split(final int from, final int to) {
+		if (to - from <= bucketSize) {
+			return null;
+		}
+
+		final SplittingPlane splittingPlane = partitioner.selectMedianPlane(from, to);
+		if (splittingPlane == null) {
+			/* Every element shares the same coordinates, so no split can separate them. */
+			return null;
+		}
+
+		return new Split(splittingPlane.getDimensionIndex(), splittingPlane.getValue(), partitioner.partition(from, to,
+				splittingPlane));
+	}
+
+	private BucketPRKDTree<E> createSplittingPlane(final Split split, final BucketPRKDTree<E> left,
+			final BucketPRKDTree<E> right) {
+		return new BucketPRKDTree<E>(numberOfDimensions, bucketSize, splitStrategy, packCoordinates,
+				new SplittingPlaneNode<E>(split.dimensionIndex, split.median, left, right));
+	}
+
+	@SuppressWarnings("unchecked")
+	private BucketPRKDTree<E> createBucket(final int from, final int to) {
+		final List<E> bucketElements = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			bucketElements.add((E) elements[i]);
+		}
+
+		/* A range too large for a bucket could not be split, so its elements all share the same coordinates. */
+		if (to - from > bucketSize) {
+			return new BucketPRKDTree<E>(numberOfDimensions, bucketSize, splitStrategy, packCoordinates,
+					new CoLocatedNode<E>(numberOfDimensions, bucketSize, bucketElements, splitStrategy,
+							packCoordinates));
+		}
+
+		return new BucketPRKDTree<E>(numberOfDimensions, bucketSize, splitStrategy, packCoordinates,
+				new BucketNode<E>(numberOfDimensions, bucketSize, bucketElements, splitStrategy, packCoordinates));
+	}
+
+	private class BuildTask extends RecursiveTask<BucketPRKDTree<E>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int parallelThreshold;
+		private final int to;
+
+		BuildTask(final int from, final int to, final int parallelThreshold) {
+			this.from = from;
+			this.to = to;
+			this.parallelThreshold = parallelThreshold;
+		}
+
+		@Override
+		protected BucketPRKDTree<E> compute() {
+			if (to - from < parallelThreshold) {
+				return build(from, to);
+			}
+
+			final Split split = split(from, to);
+			if (split == null) {
+				return createBucket(from, to);
+			}
+
+			final BuildTask leftTask = new BuildTask(from, split.index, parallelThreshold);
+			leftTask.fork();
+			final BucketPRKDTree<E> right = new BuildTask(split.index, to, parallelThreshold).compute();
+
+			return createSplittingPlane(split, leftTask.join(), right);
+		}
+
+	}
+
+	private static class Split {
+
+		private final int dimensionIndex;
+		private final int index;
+		private final double median;
+
+		Split(final int dimensionIndex, final double median, final int index) {
+			this.dimensionIndex = dimensionIndex;
+			this.median = median;
+			this.index = index;
+		}
+
+	}
+
+}
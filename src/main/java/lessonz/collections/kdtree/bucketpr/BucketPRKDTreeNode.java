@@ -6,10 +6,50 @@ import lessonz.collections.kdtree.KDPoint;
 
 interface BucketPRKDTreeNode<E extends KDPoint> {
 
-    BucketPRKDTreeNode<E> add(E e);
+    /**
+     * Adds the specified element to this node, which covers the specified cell: the region of space bounded by the
+     * planes above it. The cell is tracked only for a {@link lessonz.collections.kdtree.split.CellSplitStrategy}.
+     *
+     * @param e
+     *            the element to be added.
+     * @param minCoordinates
+     *            the least coordinates of the cell, inclusive, narrowed in place as the element descends, or null if
+     *            the cell isn't tracked.
+     * @param maxCoordinates
+     *            the greatest coordinates of the cell, exclusive, narrowed in place as the element descends, or null
+     *            if the cell isn't tracked.
+     * @return the node that takes the place of this one, which is this one unless it was divided.
+     */
+    BucketPRKDTreeNode<E> add(E e, double[] minCoordinates, double[] maxCoordinates);
+
+    /**
+     * Creates a copy of this node that may be modified without affecting this one. Parts of the node that are only
+     * ever replaced, never modified in place, may be shared with the copy.
+     *
+     * @return the copy.
+     */
+    BucketPRKDTreeNode<E> copy();
+
+    /**
+     * Marks this node as shared with a snapshot. A frozen node is never modified again; a modification that reaches it
+     * is made to a {@link #copy()} instead.
+     */
+    void freeze();
+
+    boolean isFrozen();
 
     Iterator<E> iterator();
 
+    /**
+     * Removes a single instance of the specified element, if present. Elements are located by their coordinates, so
+     * only an element at the same coordinates as the specified one can be removed.
+     *
+     * @param o
+     *            the element to be removed.
+     * @return true if an element was removed.
+     */
+    boolean remove(KDPoint o);
+
     int size();
 
 }
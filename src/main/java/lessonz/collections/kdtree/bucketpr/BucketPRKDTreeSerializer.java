@@ -0,0 +1,190 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.split.SplitStrategy;
+
+/**
+ * The {@link BucketPRKDTreeSerializer} writes a {@link BucketPRKDTree} to, and reads one from, a compact binary form
+ * that preserves its exact structure, so that restoring it splits nothing. The form begins with a header of four
+ * <code>int</code>s: a magic number, the format version, the number of dimensions and the bucket size. The nodes follow
+ * in pre-order, each introduced by a tag byte. A splitting plane node holds its split dimension as an <code>int</code>
+ * and its median as a <code>double</code>, and is followed by its left and then its right subtree. A bucket node holds
+ * its number of elements as an <code>int</code>, then the coordinates of all its elements as one block of raw
+ * <code>double</code>s, then each element's remaining data as written by an {@link ElementCodec}. A co-located node
+ * is written in the same way, except that the shared coordinates are written only once.
+ * 
+ * @param <E>
+ *            the type of element in the tree.
+ */
+class BucketPRKDTreeSerializer<E extends KDPoint> {
+
+	private static final byte BUCKET_NODE = 0;
+	private static final byte CO_LOCATED_NODE = 2;
+	private static final int MAGIC = 0x42504B54;
+	private static final byte SPLITTING_PLANE_NODE = 1;
+	private static final int VERSION = 1;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(0);
+	private final ElementCodec<? super E> codec;
+
+	BucketPRKDTreeSerializer(final ElementCodec<? super E> codec) {
+		this.codec = codec;
+	}
+
+	static <E extends KDPoint> BucketPRKDTree<E> read(final DataInput input, final ElementCodec<? extends E> codec,
+			final SplitStrategy splitStrategy, final boolean packCoordinates) throws IOException {
+		if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+			throw new IOException("The input is not a BucketPRKDTree of a supported version.");
+		}
+		final int numberOfDimensions = input.readInt();
+		final int bucketSize = input.readInt();
+
+		return new Reader<E>(input, codec, numberOfDimensions, bucketSize, splitStrategy, packCoordinates).readTree();
+	}
+
+	void write(final BucketPRKDTree<E> tree, final DataOutput output) throws IOException {
+		output.writeInt(MAGIC);
+		output.writeInt(VERSION);
+		output.writeInt(tree.getNumberOfDimensions());
+		output.writeInt(tree.getBucketSize());
+
+		write(tree.getNode(), tree.getNumberOfDimensions(), output);
+	}
+
+	private void write(final BucketPRKDTreeNode<E> node, final int numberOfDimensions, final DataOutput output)
+			throws IOException {
+		if (node instanceof SplittingPlaneNode) {
+			final SplittingPlaneNode<E> splittingPlaneNode = (SplittingPlaneNode<E>) node;
+			output.writeByte(SPLITTING_PLANE_NODE);
+			output.writeInt(splittingPlaneNode.getSplitDimensionIndex());
+			output.writeDouble(splittingPlaneNode.getSplitDimensionMedian());
+			write(splittingPlaneNode.getLeftBucketPRKDTree().getNode(), numberOfDimensions, output);
+			write(splittingPlaneNode.getRightBucketPRKDTree().getNode(), numberOfDimensions, output);
+		} else if (node instanceof BucketNode) {
+			final BucketNode<E> bucketNode = (BucketNode<E>) node;
+			final List<E> elements = bucketNode.getElements();
+			final int size = elements.size();
+			output.writeByte(BUCKET_NODE);
+			output.writeInt(size);
+
+			/* A bucket that packs its coordinates has them ready to be written in one block. */
+			final int length = size * numberOfDimensions;
+			ensureBufferCapacity(length);
+			if (bucketNode.isPacked()) {
+				buffer.asDoubleBuffer().put(bucketNode.getCoordinates(), 0, length);
+			} else {
+				final DoubleBuffer doubleBuffer = buffer.asDoubleBuffer();
+				for (final E e : elements) {
+					doubleBuffer.put(e.getCoordinatesUnsafe(), 0, numberOfDimensions);
+				}
+			}
+			output.write(buffer.array(), 0, length * (Double.SIZE / Byte.SIZE));
+
+			for (int i = 0; i < size; i++) {
+				codec.write(elements.get(i), output);
+			}
+		} else if (node instanceof CoLocatedNode) {
+			final CoLocatedNode<E> coLocatedNode = (CoLocatedNode<E>) node;
+			output.writeByte(CO_LOCATED_NODE);
+			output.writeInt(coLocatedNode.size());
+			for (final double coordinate : coLocatedNode.getCoordinates()) {
+				output.writeDouble(coordinate);
+			}
+
+			for (final E e : coLocatedNode.getElements()) {
+				codec.write(e, output);
+			}
+		} else {
+			throw new IllegalArgumentException("The provided BucketPRKDTreeNode is of an unsupported type.");
+		}
+	}
+
+	private void ensureBufferCapacity(final int numberOfDoubles) {
+		if (buffer.capacity() < numberOfDoubles * (Double.SIZE / Byte.SIZE)) {
+			buffer = ByteBuffer.allocate(numberOfDoubles * (Double.SIZE / Byte.SIZE));
+		}
+	}
+
+	private static class Reader<E extends KDPoint> {
+
+		private byte[] bytes = new byte[0];
+		private final int bucketSize;
+		private final ElementCodec<? extends E> codec;
+		private double[] coordinates = new double[0];
+		private final DataInput input;
+		private final int numberOfDimensions;
+		private final boolean packCoordinates;
+		private final SplitStrategy splitStrategy;
+
+		Reader(final DataInput input, final ElementCodec<? extends E> codec, final int numberOfDimensions,
+				final int bucketSize, final SplitStrategy splitStrategy, final boolean packCoordinates) {
+			this.input = input;
+			this.codec = codec;
+			this.numberOfDimensions = numberOfDimensions;
+			this.bucketSize = bucketSize;
+			this.splitStrategy = splitStrategy;
+			this.packCoordinates = packCoordinates;
+		}
+
+		BucketPRKDTree<E> readTree() throws IOException {
+			return new BucketPRKDTree<E>(numberOfDimensions, bucketSize, splitStrategy, packCoordinates, readNode());
+		}
+
+		private BucketPRKDTreeNode<E> readNode() throws IOException {
+			final byte tag = input.readByte();
+			if (tag == SPLITTING_PLANE_NODE) {
+				final int splitDimensionIndex = input.readInt();
+				final double splitDimensionMedian = input.readDouble();
+				final BucketPRKDTree<E> left = readTree();
+				final BucketPRKDTree<E> right = readTree();
+
+				return new SplittingPlaneNode<E>(splitDimensionIndex, splitDimensionMedian, left, right);
+			} else if (tag == BUCKET_NODE) {
+				final int size = input.readInt();
+				final int length = size * numberOfDimensions;
+				if (bytes.length < length * (Double.SIZE / Byte.SIZE)) {
+					bytes = new byte[length * (Double.SIZE / Byte.SIZE)];
+					coordinates = new double[length];
+				}
+				input.readFully(bytes, 0, length * (Double.SIZE / Byte.SIZE));
+				ByteBuffer.wrap(bytes).asDoubleBuffer().get(coordinates, 0, length);
+
+				final List<E> elements = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					elements.add(codec.read(
+							Arrays.copyOfRange(coordinates, i * numberOfDimensions, (i + 1) * numberOfDimensions),
+							input));
+				}
+
+				return new BucketNode<E>(numberOfDimensions, bucketSize, elements, splitStrategy, packCoordinates);
+			} else if (tag == CO_LOCATED_NODE) {
+				final int size = input.readInt();
+				final double[] sharedCoordinates = new double[numberOfDimensions];
+				for (int i = 0; i < numberOfDimensions; i++) {
+					sharedCoordinates[i] = input.readDouble();
+				}
+
+				final List<E> elements = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					elements.add(codec.read(sharedCoordinates.clone(), input));
+				}
+
+				return new CoLocatedNode<E>(numberOfDimensions, bucketSize, sharedCoordinates, elements, splitStrategy,
+						packCoordinates);
+			} else {
+				throw new IOException("The input holds a node of unknown type " + tag + ".");
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,167 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.split.SplitStrategy;
+
+/**
+ * A {@link CoLocatedNode} is a leaf of the tree holding any number of elements that all share exactly the same
+ * coordinates. No plane can divide such elements, so rather than growing a {@link BucketNode} without bound they are
+ * kept here with a single copy of their coordinates, and a search measures the distance to all of them at once. Adding
+ * an element at different coordinates replaces the {@link CoLocatedNode} with a {@link SplittingPlaneNode} separating
+ * the new element from the rest.
+ */
+class CoLocatedNode<E extends KDPoint> implements BucketPRKDTreeNode<E> {
+
+	/**
+	 * Determines whether the specified point lies exactly at the specified coordinates.
+	 */
+	static boolean isAt(final KDPoint point, final double[] coordinates) {
+		final double[] pointCoordinates = point.getCoordinatesUnsafe();
+		for (int i = 0; i < coordinates.length; i++) {
+			if (pointCoordinates[i] != coordinates[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private final int bucketSize;
+	private final double[] coordinates;
+	private final List<E> elements;
+	private boolean frozen = false;
+	private final int numberOfDimensions;
+	private final boolean packCoordinates;
+	private final SplitStrategy splitStrategy;
+
+	/**
+	 * Creates a {@link CoLocatedNode} of the specified elements, which must all share the same coordinates. The trees
+	 * created once another element is added pack their buckets' coordinates only if packCoordinates is set.
+	 */
+	CoLocatedNode(final int numberOfDimensions, final int bucketSize, final Collection<E> elements,
+			final SplitStrategy splitStrategy, final boolean packCoordinates) {
+		this(numberOfDimensions, bucketSize, elements.iterator().next().getCoordinatesUnsafe(), elements,
+				splitStrategy, packCoordinates);
+	}
+
+	/**
+	 * Creates a {@link CoLocatedNode} of the specified elements, which must all lie at the specified coordinates. The
+	 * coordinates are copied.
+	 */
+	CoLocatedNode(final int numberOfDimensions, final int bucketSize, final double[] coordinates,
+			final Collection<E> elements, final SplitStrategy splitStrategy, final boolean packCoordinates) {
+		this.numberOfDimensions = numberOfDimensions;
+		this.bucketSize = bucketSize;
+		this.coordinates = Arrays.copyOf(coordinates, numberOfDimensions);
+		this.elements = new ArrayList<>(elements);
+		this.splitStrategy = splitStrategy;
+		this.packCoordinates = packCoordinates;
+	}
+
+	@Override
+	public BucketPRKDTreeNode<E> add(final E e, final double[] minCoordinates, final double[] maxCoordinates) {
+		if (isAt(e, coordinates)) {
+			elements.add(e);
+			return this;
+		}
+
+		/* Divide the dimension in which the new element is farthest away, between it and the rest. */
+		final double[] newCoordinates = e.getCoordinatesUnsafe();
+		int splitDimensionIndex = 0;
+		double maxDifference = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < numberOfDimensions; i++) {
+			final double difference = Math.abs(newCoordinates[i] - coordinates[i]);
+			if (difference > maxDifference) {
+				maxDifference = difference;
+				splitDimensionIndex = i;
+			}
+		}
+
+		final boolean newIsLess = newCoordinates[splitDimensionIndex] < coordinates[splitDimensionIndex];
+		final double lesser = newIsLess ? newCoordinates[splitDimensionIndex] : coordinates[splitDimensionIndex];
+		final double greater = newIsLess ? coordinates[splitDimensionIndex] : newCoordinates[splitDimensionIndex];
+		double splitDimensionMedian = (greater - lesser) / 2.0 + lesser;
+		if (!(lesser < splitDimensionMedian)) {
+			splitDimensionMedian = greater;
+		}
+
+		final BucketPRKDTree<E> coLocatedTree =
+				new BucketPRKDTree<E>(numberOfDimensions, bucketSize, splitStrategy, packCoordinates, this);
+		final BucketPRKDTree<E> newTree =
+				new BucketPRKDTree<E>(numberOfDimensions, bucketSize, splitStrategy, packCoordinates);
+		newTree.add(e);
+
+		return newIsLess ? new SplittingPlaneNode<E>(splitDimensionIndex, splitDimensionMedian, newTree, coLocatedTree)
+				: new SplittingPlaneNode<E>(splitDimensionIndex, splitDimensionMedian, coLocatedTree, newTree);
+	}
+
+	@Override
+	public BucketPRKDTreeNode<E> copy() {
+		return new CoLocatedNode<E>(numberOfDimensions, bucketSize, coordinates, elements, splitStrategy,
+				packCoordinates);
+	}
+
+	@Override
+	public void freeze() {
+		frozen = true;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return elements.iterator();
+	}
+
+	@Override
+	public boolean remove(final KDPoint o) {
+		return elements.remove(o);
+	}
+
+	/**
+	 * Replaces one element with another in the same position. The replacement must share this node's coordinates.
+	 * 
+	 * @param oldElement
+	 *            the element to be replaced.
+	 * @param newElement
+	 *            the element to take its place.
+	 * @return true if the old element was found and replaced.
+	 */
+	boolean replace(final E oldElement, final E newElement) {
+		final int index = elements.indexOf(oldElement);
+		if (index < 0) {
+			return false;
+		}
+
+		elements.set(index, newElement);
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	/**
+	 * Retrieves the coordinates shared by every element. The array must be treated as read-only.
+	 * 
+	 * @return the shared coordinates.
+	 */
+	double[] getCoordinates() {
+		return coordinates;
+	}
+
+	List<E> getElements() {
+		return elements;
+	}
+
+}
@@ -0,0 +1,407 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointFilter;
+import lessonz.collections.kdtree.KDPointVisitor;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.split.SplitStrategy;
+
+/**
+ * The {@link ConcurrentBucketPRKDTree} wraps a {@link BucketPRKDTree} so that it may be modified and queried by any
+ * number of threads at once. Queries take no lock. Each reads the latest {@link BucketPRKDTree#snapshot()} of the tree
+ * from a volatile field and runs against it, so queries never wait on a modification or on one another. Modifications
+ * are made one at a time under a lock. Each changes the tree, copying the nodes it shares with the latest snapshot on
+ * its way to the bucket it changes, and then publishes a new snapshot. Every operation therefore takes effect at a
+ * single moment between the start and end of the call: a query never observes a bucket in the middle of being split,
+ * and sees either all or none of the effects of any one modification.<br>
+ * <br>
+ * Results returned are the caller's own and are not affected by later modifications. {@link #iterator()} and
+ * {@link #nearestNeighborIterator(double[])} iterate the snapshot current at the time of the call. A
+ * {@link KDPointVisitor} is likewise passed the elements of the snapshot its query began with, so it may modify the
+ * {@link ConcurrentBucketPRKDTree} without affecting the query. Queries not repeated here, such as
+ * {@link BucketPRKDTree#getDepth()}, {@link BucketPRKDTree#getKNearestNeighbors(int, KDPoint)} and
+ * {@link BucketPRKDTree#writeTo(java.io.OutputStream, ElementCodec)}, may be made of {@link #snapshot()}.
+ * 
+ * @param <E>
+ *            In order for the {@link ConcurrentBucketPRKDTree} to properly place items within its k-dimensional space
+ *            elements must be or extend {@link KDPoint}.
+ */
+public class ConcurrentBucketPRKDTree<E extends KDPoint> extends AbstractCollection<E> {
+
+	/*
+	 * Published after every modification; never modified itself.
+	 */
+	private volatile BucketPRKDTree<E> snapshot;
+	/*
+	 * Only read or modified while the write lock is held.
+	 */
+	private final BucketPRKDTree<E> tree;
+	private final Lock writeLock = new ReentrantLock();
+
+	/**
+	 * Creates an empty {@link ConcurrentBucketPRKDTree} with the specified number of dimensions and the default bucket
+	 * size.
+	 * 
+	 * @param numberOfDimensions
+	 *            the number of dimensions of the {@link ConcurrentBucketPRKDTree}.
+	 */
+	public ConcurrentBucketPRKDTree(final int numberOfDimensions) {
+		this(new BucketPRKDTree<E>(numberOfDimensions));
+	}
+
+	/**
+	 * Creates an empty {@link ConcurrentBucketPRKDTree} with the specified number of dimensions and bucket size.
+	 * 
+	 * @param numberOfDimensions
+	 *            the number of dimensions of the {@link ConcurrentBucketPRKDTree}.
+	 * @param bucketSize
+	 *            the number of elements a bucket holds before it is split.
+	 */
+	public ConcurrentBucketPRKDTree(final int numberOfDimensions, final int bucketSize) {
+		this(new BucketPRKDTree<E>(numberOfDimensions, bucketSize));
+	}
+
+	/**
+	 * Creates an empty {@link ConcurrentBucketPRKDTree} with the specified number of dimensions and bucket size whose
+	 * buckets are divided by the specified {@link SplitStrategy}.
+	 * 
+	 * @param numberOfDimensions
+	 *            the number of dimensions of the {@link ConcurrentBucketPRKDTree}.
+	 * @param bucketSize
+	 *            the number of elements a bucket holds before it is split.
+	 * @param splitStrategy
+	 *            the {@link SplitStrategy} used to divide overflowing buckets.
+	 */
+	public ConcurrentBucketPRKDTree(final int numberOfDimensions, final int bucketSize,
+			final SplitStrategy splitStrategy) {
+		this(new BucketPRKDTree<E>(numberOfDimensions, bucketSize, splitStrategy));
+	}
+
+	/**
+	 * Creates a {@link ConcurrentBucketPRKDTree} guarding the specified {@link BucketPRKDTree}, such as one returned
+	 * by {@link BucketPRKDTree#build(Collection, int, int)}. The {@link BucketPRKDTree} must not be used directly
+	 * afterward.
+	 * 
+	 * @param tree
+	 *            the {@link BucketPRKDTree} to guard.
+	 */
+	public ConcurrentBucketPRKDTree(final BucketPRKDTree<E> tree) {
+		this.tree = tree;
+		snapshot = tree.snapshot();
+	}
+
+	@Override
+	public boolean add(final E e) {
+		writeLock.lock();
+		try {
+			final boolean added = tree.add(e);
+			publish();
+			return added;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Adds all of the specified elements at once, so that queries see either none or all of them.
+	 */
+	@Override
+	public boolean addAll(final Collection<? extends E> c) {
+		writeLock.lock();
+		try {
+			final boolean added = tree.addAll(c);
+			publish();
+			return added;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		writeLock.lock();
+		try {
+			tree.clear();
+			publish();
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(final Object o) {
+		return snapshot.contains(o);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#countNeighborsWithinRadius(double, double[])}.
+	 */
+	public int countNeighborsWithinRadius(final double radius, final double[] targetCoordinates) {
+		return snapshot.countNeighborsWithinRadius(radius, targetCoordinates);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#countNeighborsWithinRadius(double, double[], DistanceFunction)}.
+	 */
+	public int countNeighborsWithinRadius(final double radius, final double[] targetCoordinates,
+			final DistanceFunction distanceFunction) {
+		return snapshot.countNeighborsWithinRadius(radius, targetCoordinates, distanceFunction);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getApproximateKNearestNeighbors(int, double[], double, int)}.
+	 */
+	public List<E> getApproximateKNearestNeighbors(final int k, final double[] targetCoordinates,
+			final double epsilon, final int maxBucketsToVisit) {
+		return snapshot.getApproximateKNearestNeighbors(k, targetCoordinates, epsilon, maxBucketsToVisit);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getApproximateKNearestNeighbors(int, double[], double, int, DistanceFunction)}.
+	 */
+	public List<E> getApproximateKNearestNeighbors(final int k, final double[] targetCoordinates,
+			final double epsilon, final int maxBucketsToVisit, final DistanceFunction distanceFunction) {
+		return snapshot.getApproximateKNearestNeighbors(k, targetCoordinates, epsilon, maxBucketsToVisit,
+				distanceFunction);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getKNearestNeighbors(int, double[])}.
+	 */
+	public List<E> getKNearestNeighbors(final int k, final double[] targetCoordinates) {
+		return snapshot.getKNearestNeighbors(k, targetCoordinates);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getKNearestNeighbors(int, double[], DistanceFunction)}.
+	 */
+	public List<E> getKNearestNeighbors(final int k, final double[] targetCoordinates,
+			final DistanceFunction distanceFunction) {
+		return snapshot.getKNearestNeighbors(k, targetCoordinates, distanceFunction);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getKNearestNeighbors(int, double[], KDPointFilter)}.
+	 */
+	public List<E> getKNearestNeighbors(final int k, final double[] targetCoordinates,
+			final KDPointFilter<? super E> filter) {
+		return snapshot.getKNearestNeighbors(k, targetCoordinates, filter);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getKNearestNeighbors(int, double[], KDPointFilter, DistanceFunction)}.
+	 */
+	public List<E> getKNearestNeighbors(final int k, final double[] targetCoordinates,
+			final KDPointFilter<? super E> filter, final DistanceFunction distanceFunction) {
+		return snapshot.getKNearestNeighbors(k, targetCoordinates, filter, distanceFunction);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getKNearestNeighbors(int, double[][])}. Every query is made of the same snapshot.
+	 */
+	public List<List<E>> getKNearestNeighbors(final int k, final double[][] targetCoordinates) {
+		return snapshot.getKNearestNeighbors(k, targetCoordinates);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getKNearestNeighbors(int, double[][], DistanceFunction)}. Every query is made of the
+	 * same snapshot.
+	 */
+	public List<List<E>> getKNearestNeighbors(final int k, final double[][] targetCoordinates,
+			final DistanceFunction distanceFunction) {
+		return snapshot.getKNearestNeighbors(k, targetCoordinates, distanceFunction);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getKNearestNeighbors(int, double[][], DistanceFunction, ForkJoinPool)}. Every query
+	 * is made of the same snapshot, so the {@link ConcurrentBucketPRKDTree} may be modified while they run.
+	 */
+	public List<List<E>> getKNearestNeighbors(final int k, final double[][] targetCoordinates,
+			final DistanceFunction distanceFunction, final ForkJoinPool pool) {
+		return snapshot.getKNearestNeighbors(k, targetCoordinates, distanceFunction, pool);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getNeighborsWithinRadius(double, double[])}.
+	 */
+	public List<E> getNeighborsWithinRadius(final double radius, final double[] targetCoordinates) {
+		return snapshot.getNeighborsWithinRadius(radius, targetCoordinates);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getNeighborsWithinRadius(double, double[], DistanceFunction)}.
+	 */
+	public List<E> getNeighborsWithinRadius(final double radius, final double[] targetCoordinates,
+			final DistanceFunction distanceFunction) {
+		return snapshot.getNeighborsWithinRadius(radius, targetCoordinates, distanceFunction);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getSortedKNearestNeighbors(int, double[])}.
+	 */
+	public NeighborResult<E> getSortedKNearestNeighbors(final int k, final double[] targetCoordinates) {
+		return snapshot.getSortedKNearestNeighbors(k, targetCoordinates);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getSortedKNearestNeighbors(int, double[], NeighborResult)}. The
+	 * {@link NeighborResult} must not be shared with another thread.
+	 */
+	public NeighborResult<E> getSortedKNearestNeighbors(final int k, final double[] targetCoordinates,
+			final NeighborResult<E> result) {
+		return snapshot.getSortedKNearestNeighbors(k, targetCoordinates, result);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#getSortedKNearestNeighbors(int, double[], DistanceFunction, NeighborResult)}. The
+	 * {@link NeighborResult} must not be shared with another thread.
+	 */
+	public NeighborResult<E> getSortedKNearestNeighbors(final int k, final double[] targetCoordinates,
+			final DistanceFunction distanceFunction, final NeighborResult<E> result) {
+		return snapshot.getSortedKNearestNeighbors(k, targetCoordinates, distanceFunction, result);
+	}
+
+	/**
+	 * Returns an {@link Iterator} over the elements as they were at the time of the call. Removing an element through
+	 * the {@link Iterator} removes it from the {@link ConcurrentBucketPRKDTree}.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final Iterator<E> iterator = snapshot.iterator();
+
+		return new Iterator<E>() {
+
+			private E last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return last = iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+
+				ConcurrentBucketPRKDTree.this.remove(last);
+				last = null;
+			}
+
+		};
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#nearestNeighborIterator(double[])}. The {@link Iterator} searches the snapshot current
+	 * at the time of the call, so the {@link ConcurrentBucketPRKDTree} may be modified while it is in use.
+	 */
+	public Iterator<E> nearestNeighborIterator(final double[] targetCoordinates) {
+		return snapshot.nearestNeighborIterator(targetCoordinates);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#nearestNeighborIterator(double[], DistanceFunction)}. The {@link Iterator} searches
+	 * the snapshot current at the time of the call, so the {@link ConcurrentBucketPRKDTree} may be modified while it is
+	 * in use.
+	 */
+	public Iterator<E> nearestNeighborIterator(final double[] targetCoordinates,
+			final DistanceFunction distanceFunction) {
+		return snapshot.nearestNeighborIterator(targetCoordinates, distanceFunction);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#rangeQuery(double[], double[])}.
+	 */
+	public List<E> rangeQuery(final double[] minCoordinates, final double[] maxCoordinates) {
+		return snapshot.rangeQuery(minCoordinates, maxCoordinates);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#rangeQuery(double[], double[], KDPointVisitor)}.
+	 */
+	public void rangeQuery(final double[] minCoordinates, final double[] maxCoordinates,
+			final KDPointVisitor<? super E> visitor) {
+		snapshot.rangeQuery(minCoordinates, maxCoordinates, visitor);
+	}
+
+	@Override
+	public boolean remove(final Object o) {
+		writeLock.lock();
+		try {
+			final boolean removed = tree.remove(o);
+			publish();
+			return removed;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#replace(KDPoint, KDPoint)}. Queries see either the old element or the new one, never
+	 * both or neither.
+	 */
+	public boolean replace(final E oldElement, final E newElement) {
+		writeLock.lock();
+		try {
+			final boolean replaced = tree.replace(oldElement, newElement);
+			publish();
+			return replaced;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		return snapshot.size();
+	}
+
+	/**
+	 * Returns the latest snapshot of this {@link ConcurrentBucketPRKDTree}, the same one queries are being made of.
+	 * See {@link BucketPRKDTree#snapshot()}. The snapshot may be queried, regardless of later modifications of this
+	 * {@link ConcurrentBucketPRKDTree}, for as long as it is needed.
+	 * 
+	 * @return the snapshot.
+	 */
+	public BucketPRKDTree<E> snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#visitNeighborsWithinRadius(double, double[], KDPointVisitor)}.
+	 */
+	public void visitNeighborsWithinRadius(final double radius, final double[] targetCoordinates,
+			final KDPointVisitor<? super E> visitor) {
+		snapshot.visitNeighborsWithinRadius(radius, targetCoordinates, visitor);
+	}
+
+	/**
+	 * See {@link BucketPRKDTree#visitNeighborsWithinRadius(double, double[], DistanceFunction, KDPointVisitor)}.
+	 */
+	public void visitNeighborsWithinRadius(final double radius, final double[] targetCoordinates,
+			final DistanceFunction distanceFunction, final KDPointVisitor<? super E> visitor) {
+		snapshot.visitNeighborsWithinRadius(radius, targetCoordinates, distanceFunction, visitor);
+	}
+
+	/**
+	 * Makes the modifications made so far visible to queries. Taking the snapshot copies nothing; the next
+	 * modification copies the nodes on its path instead.
+	 */
+	private void publish() {
+		snapshot = tree.snapshot();
+	}
+
+}
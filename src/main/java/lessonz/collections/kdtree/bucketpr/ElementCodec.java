@@ -0,0 +1,43 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * An {@link ElementCodec} encodes and decodes everything about an element of a {@link BucketPRKDTree} other than its
+ * coordinates, which the {@link BucketPRKDTree} writes itself. See
+ * {@link BucketPRKDTree#writeTo(java.io.OutputStream, ElementCodec)}.
+ * 
+ * @param <E>
+ *            the type of element encoded.
+ */
+public interface ElementCodec<E> {
+
+	/**
+	 * Reads an element written by {@link #write(Object, DataOutput)}.
+	 * 
+	 * @param coordinates
+	 *            the element's coordinates, which have already been read. The array is not used again once this method
+	 *            returns.
+	 * @param input
+	 *            the {@link DataInput} from which to read the rest of the element.
+	 * @return the element read.
+	 * @throws IOException
+	 *             if the element cannot be read.
+	 */
+	E read(double[] coordinates, DataInput input) throws IOException;
+
+	/**
+	 * Writes everything about the specified element other than its coordinates.
+	 * 
+	 * @param element
+	 *            the element to write.
+	 * @param output
+	 *            the {@link DataOutput} to which to write.
+	 * @throws IOException
+	 *             if the element cannot be written.
+	 */
+	void write(E element, DataOutput output) throws IOException;
+
+}
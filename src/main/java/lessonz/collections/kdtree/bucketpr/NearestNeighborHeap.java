@@ -0,0 +1,157 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+
+/**
+ * The {@link NearestNeighborHeap} is a bounded max-heap of elements keyed by their distance from a search target. Each
+ * element's distance is computed once by the caller and stored alongside it, so sifting never has to re-evaluate a
+ * {@link lessonz.collections.kdtree.distance.DistanceFunction}. The root of the heap is always the farthest of the
+ * nearest neighbors found so far.
+ * 
+ * @param <E>
+ *            the type of element held.
+ */
+class NearestNeighborHeap<E extends KDPoint> {
+
+	private final int capacity;
+	private final double[] distances;
+	private final Object[] elements;
+	private int size = 0;
+
+	NearestNeighborHeap(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("The number of neighbors to find must be at least 1.");
+		}
+
+		this.capacity = capacity;
+		distances = new double[capacity];
+		elements = new Object[capacity];
+	}
+
+	/**
+	 * Adds the specified element. If the heap is already full the current farthest element is evicted to make room, so
+	 * callers should first check the element is closer than {@link #peekDistance()}.
+	 * 
+	 * @param e
+	 *            the element to add.
+	 * @param distance
+	 *            the element's distance from the search target.
+	 */
+	void add(final E e, final double distance) {
+		if (size < capacity) {
+			siftUp(size++, e, distance);
+		} else {
+			siftDown(0, e, distance);
+		}
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Empties the heap so it may be reused for another search.
+	 */
+	void clear() {
+		Arrays.fill(elements, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Empties the heap into the specified arrays in ascending order of distance, by repeatedly moving the farthest
+	 * element held to the end of those still to be placed.
+	 * 
+	 * @param sortedElements
+	 *            the array to receive the elements, which must have room for {@link #size()} elements.
+	 * @param sortedDistances
+	 *            the array to receive the distances, which must have room for {@link #size()} distances.
+	 * @return the number of elements moved.
+	 */
+	@SuppressWarnings("unchecked")
+	int drainSorted(final Object[] sortedElements, final double[] sortedDistances) {
+		final int count = size;
+		while (size > 0) {
+			final int last = --size;
+			sortedElements[last] = elements[0];
+			sortedDistances[last] = distances[0];
+
+			final E e = (E) elements[last];
+			elements[last] = null;
+			if (last > 0) {
+				siftDown(0, e, distances[last]);
+			}
+		}
+
+		return count;
+	}
+
+	boolean isFull() {
+		return size >= capacity;
+	}
+
+	/**
+	 * Retrieves the distance of the farthest element held.
+	 * 
+	 * @return the greatest distance in the heap, or {@link Double#POSITIVE_INFINITY} if the heap is not yet full.
+	 */
+	double peekDistance() {
+		return isFull() ? distances[0] : Double.POSITIVE_INFINITY;
+	}
+
+	int size() {
+		return size;
+	}
+
+	@SuppressWarnings("unchecked")
+	List<E> toList() {
+		final List<E> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add((E) elements[i]);
+		}
+
+		return list;
+	}
+
+	private void siftDown(int index, final E e, final double distance) {
+		final int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			final int right = child + 1;
+			if (right < size && distances[right] > distances[child]) {
+				child = right;
+			}
+
+			if (distance >= distances[child]) {
+				break;
+			}
+
+			distances[index] = distances[child];
+			elements[index] = elements[child];
+			index = child;
+		}
+
+		distances[index] = distance;
+		elements[index] = e;
+	}
+
+	private void siftUp(int index, final E e, final double distance) {
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+			if (distance <= distances[parent]) {
+				break;
+			}
+
+			distances[index] = distances[parent];
+			elements[index] = elements[parent];
+			index = parent;
+		}
+
+		distances[index] = distance;
+		elements[index] = e;
+	}
+
+}
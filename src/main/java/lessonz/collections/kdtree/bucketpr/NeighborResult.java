@@ -0,0 +1,111 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+
+/**
+ * A {@link NeighborResult} holds the outcome of a k-nearest neighbor search: the neighbors found, nearest first, each
+ * with its distance from the search target as measured by the {@link DistanceFunction} used. Elements and distances
+ * are kept in parallel arrays filled straight from the search's heap, so neither distances nor order need be
+ * recomputed by the caller.<br>
+ * <br>
+ * A {@link NeighborResult} may be passed to one search after another, in which case each search replaces the result
+ * of the last and, once its arrays and the search state it keeps have grown large enough, allocates nothing. It is not
+ * safe to share an instance between threads.
+ * 
+ * @param <E>
+ *            the type of element found.
+ */
+public class NeighborResult<E extends KDPoint> {
+
+	private double[] distances = new double[0];
+	private Object[] elements = new Object[0];
+	private BucketPRKDKNearestNeighborSearcher<E> searcher;
+	private int size = 0;
+
+	/**
+	 * Retrieves the distance of the neighbor at the specified rank.
+	 * 
+	 * @param index
+	 *            the rank of the neighbor, 0 being the nearest.
+	 * @return the neighbor's distance from the search target.
+	 */
+	public double getDistance(final int index) {
+		checkIndex(index);
+		return distances[index];
+	}
+
+	/**
+	 * Retrieves the neighbor at the specified rank.
+	 * 
+	 * @param index
+	 *            the rank of the neighbor, 0 being the nearest.
+	 * @return the neighbor.
+	 */
+	@SuppressWarnings("unchecked")
+	public E getElement(final int index) {
+		checkIndex(index);
+		return (E) elements[index];
+	}
+
+	/**
+	 * Copies the neighbors found into a new {@link List}, nearest first.
+	 * 
+	 * @return the neighbors found.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<E> getElements() {
+		final List<E> list = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			list.add((E) elements[i]);
+		}
+
+		return list;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Replaces the held neighbors with those in the specified heap, emptying it.
+	 */
+	void fill(final NearestNeighborHeap<E> nearestNeighbors) {
+		final int newSize = nearestNeighbors.size();
+		if (elements.length < newSize) {
+			elements = new Object[newSize];
+			distances = new double[newSize];
+		} else {
+			Arrays.fill(elements, newSize, size, null);
+		}
+
+		size = nearestNeighbors.drainSorted(elements, distances);
+	}
+
+	/**
+	 * Retrieves the searcher kept for queries of the specified tree, so that repeated queries through this
+	 * {@link NeighborResult} reuse its buffers.
+	 */
+	BucketPRKDKNearestNeighborSearcher<E> getSearcher(final BucketPRKDTree<E> tree) {
+		if (searcher == null || searcher.getTree() != tree) {
+			searcher = new BucketPRKDKNearestNeighborSearcher<E>(tree);
+		}
+
+		return searcher;
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+}
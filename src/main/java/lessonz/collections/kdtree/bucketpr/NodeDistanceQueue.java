@@ -0,0 +1,141 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import java.util.Arrays;
+
+import lessonz.collections.kdtree.KDPoint;
+
+/**
+ * The {@link NodeDistanceQueue} is a min-heap of {@link BucketPRKDTreeNode}s waiting to be searched. Each node is keyed
+ * by a lower bound on the distance from the search target to anything within it and carries the closest coordinates
+ * still possible within that node. Bounds and coordinates are kept in primitive arrays, so queuing a node does not
+ * allocate once the queue has grown to the depth of the tree.
+ * 
+ * @param <E>
+ *            the type of element held in the queued nodes.
+ */
+class NodeDistanceQueue<E extends KDPoint> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private double[] bounds = new double[INITIAL_CAPACITY];
+	private double[] coordinates;
+	private final int numberOfDimensions;
+	private Object[] nodes = new Object[INITIAL_CAPACITY];
+	private int size = 0;
+
+	NodeDistanceQueue(final int numberOfDimensions) {
+		this.numberOfDimensions = numberOfDimensions;
+		coordinates = new double[INITIAL_CAPACITY * numberOfDimensions];
+	}
+
+	/**
+	 * Queues the specified node. The closest coordinates are copied, so the caller is free to reuse the array.
+	 * 
+	 * @param node
+	 *            the node to queue.
+	 * @param bound
+	 *            the lower bound on the distance from the search target to anything within the node.
+	 * @param closestStillPossibleCoordinates
+	 *            the closest coordinates to the search target that could still be within the node.
+	 */
+	void add(final BucketPRKDTreeNode<E> node, final double bound, final double[] closestStillPossibleCoordinates) {
+		if (size >= bounds.length) {
+			grow();
+		}
+
+		int index = size++;
+		while (index > 0) {
+			final int parent = (index - 1) >>> 1;
+			if (bound >= bounds[parent]) {
+				break;
+			}
+
+			move(parent, index);
+			index = parent;
+		}
+
+		bounds[index] = bound;
+		nodes[index] = node;
+		System.arraycopy(closestStillPossibleCoordinates, 0, coordinates, index * numberOfDimensions,
+				numberOfDimensions);
+	}
+
+	/**
+	 * Empties the queue so it may be reused for another search.
+	 */
+	void clear() {
+		Arrays.fill(nodes, 0, size, null);
+		size = 0;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Retrieves the lower bound of the closest queued node.
+	 * 
+	 * @return the smallest bound in the queue.
+	 */
+	double peekBound() {
+		return bounds[0];
+	}
+
+	/**
+	 * Removes the closest queued node.
+	 * 
+	 * @param closestStillPossibleCoordinates
+	 *            the array into which the node's closest coordinates are copied.
+	 * @return the closest queued node.
+	 */
+	@SuppressWarnings("unchecked")
+	BucketPRKDTreeNode<E> poll(final double[] closestStillPossibleCoordinates) {
+		final BucketPRKDTreeNode<E> node = (BucketPRKDTreeNode<E>) nodes[0];
+		System.arraycopy(coordinates, 0, closestStillPossibleCoordinates, 0, numberOfDimensions);
+
+		final int last = --size;
+		if (last > 0) {
+			final double bound = bounds[last];
+			int index = 0;
+			final int half = last >>> 1;
+			while (index < half) {
+				int child = 2 * index + 1;
+				final int right = child + 1;
+				if (right < last && bounds[right] < bounds[child]) {
+					child = right;
+				}
+
+				if (bound <= bounds[child]) {
+					break;
+				}
+
+				move(child, index);
+				index = child;
+			}
+
+			move(last, index);
+		}
+		nodes[last] = null;
+
+		return node;
+	}
+
+	int size() {
+		return size;
+	}
+
+	private void grow() {
+		final int newCapacity = bounds.length * 2;
+		bounds = Arrays.copyOf(bounds, newCapacity);
+		nodes = Arrays.copyOf(nodes, newCapacity);
+		coordinates = Arrays.copyOf(coordinates, newCapacity * numberOfDimensions);
+	}
+
+	private void move(final int from, final int to) {
+		bounds[to] = bounds[from];
+		nodes[to] = nodes[from];
+		System.arraycopy(coordinates, from * numberOfDimensions, coordinates, to * numberOfDimensions,
+				numberOfDimensions);
+	}
+
+}
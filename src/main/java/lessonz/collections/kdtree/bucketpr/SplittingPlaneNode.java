@@ -1,87 +1,151 @@
 package lessonz.collections.kdtree.bucketpr;
 
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
 import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.split.CellSplitStrategy;
+import lessonz.collections.kdtree.split.SplitStrategy;
+import lessonz.collections.kdtree.split.SplittingPlane;
 
 class SplittingPlaneNode<E extends KDPoint> implements BucketPRKDTreeNode<E> {
 
+	private boolean frozen = false;
 	private final BucketPRKDTree<E> left, right;
+	/*
+	 * The size is kept rather than summed from the subtrees so that checking it while removing elements stays cheap.
+	 */
+	private int size = 0;
 	private int splitDimensionIdex;
 	private double splitDimensionMedian;
 
 	SplittingPlaneNode(final List<E> elements, final int numberOfDimensions, final int bucketSize) {
-		left = new BucketPRKDTree<>(numberOfDimensions, bucketSize);
-		right = new BucketPRKDTree<>(numberOfDimensions, bucketSize);
+		this(elements, pack(elements, numberOfDimensions), numberOfDimensions, bucketSize,
+				BucketPRKDTree.DEFAULT_SPLIT_STRATEGY, true, null, null);
+	}
+
+	/**
+	 * Splits the specified elements, whose coordinates are also given packed point after point, on the plane chosen
+	 * by the specified {@link SplitStrategy}. The subtrees created split with the same {@link SplitStrategy}, and pack
+	 * their buckets' coordinates only if packCoordinates is set. The bounds of the cell the elements lie in are passed
+	 * on to a {@link CellSplitStrategy} and are not modified; they are null if the cell isn't tracked.
+	 */
+	SplittingPlaneNode(final List<E> elements, final double[] coordinates, final int numberOfDimensions,
+			final int bucketSize, final SplitStrategy splitStrategy, final boolean packCoordinates,
+			final double[] minCoordinates, final double[] maxCoordinates) {
+		left = new BucketPRKDTree<>(numberOfDimensions, bucketSize, splitStrategy, packCoordinates);
+		right = new BucketPRKDTree<>(numberOfDimensions, bucketSize, splitStrategy, packCoordinates);
+
+		final SplittingPlane splittingPlane =
+				minCoordinates == null ? splitStrategy.split(coordinates, elements.size(), numberOfDimensions)
+						: ((CellSplitStrategy) splitStrategy).split(coordinates, elements.size(), numberOfDimensions,
+								minCoordinates, maxCoordinates);
+		splitDimensionIdex = splittingPlane.getDimensionIndex();
+		splitDimensionMedian = splittingPlane.getValue();
+		for (final E e : elements) {
+			/* Each element's descent narrows the bounds it is given, so each is given a copy. */
+			addSingleElement(e, minCoordinates == null ? null : Arrays.copyOf(minCoordinates, numberOfDimensions),
+					maxCoordinates == null ? null : Arrays.copyOf(maxCoordinates, numberOfDimensions));
+		}
+	}
 
-		createSplit(numberOfDimensions, elements);
-		addAll(elements);
+	SplittingPlaneNode(final int splitDimensionIndex, final double splitDimensionMedian, final BucketPRKDTree<E> left,
+			final BucketPRKDTree<E> right) {
+		splitDimensionIdex = splitDimensionIndex;
+		this.splitDimensionMedian = splitDimensionMedian;
+		this.left = left;
+		this.right = right;
+		size = left.size() + right.size();
 	}
 
 	@Override
-	public BucketPRKDTreeNode<E> add(final E e) {
-		addSingleElement(e);
+	public BucketPRKDTreeNode<E> add(final E e, final double[] minCoordinates, final double[] maxCoordinates) {
+		addSingleElement(e, minCoordinates, maxCoordinates);
 
 		return this;
 	}
 
+	/**
+	 * Creates a copy of this node with subtrees of its own. The nodes beneath are frozen and shared until a
+	 * modification reaches them.
+	 */
+	@Override
+	public BucketPRKDTreeNode<E> copy() {
+		return new SplittingPlaneNode<E>(splitDimensionIdex, splitDimensionMedian, left.share(), right.share());
+	}
+
+	@Override
+	public void freeze() {
+		frozen = true;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return frozen;
+	}
+
 	@Override
 	public Iterator<E> iterator() {
 		return new SplitPlaneIterator();
 	}
 
+	@Override
+	public boolean remove(final KDPoint o) {
+		final boolean removed = getBucketPRKDTree(o).remove(o);
+		if (removed) {
+			size--;
+		}
+
+		return removed;
+	}
+
 	@Override
 	public int size() {
-		return left.size() + right.size();
+		return size;
 	}
 
-	private void addAll(final Collection<E> elements) {
-		for (final E e : elements) {
-			addSingleElement(e);
+	static double[] pack(final List<? extends KDPoint> elements, final int numberOfDimensions) {
+		final double[] coordinates = new double[elements.size() * numberOfDimensions];
+		for (int i = 0; i < elements.size(); i++) {
+			System.arraycopy(elements.get(i).getCoordinatesUnsafe(), 0, coordinates, i * numberOfDimensions,
+					numberOfDimensions);
 		}
+
+		return coordinates;
 	}
 
-	private void addSingleElement(final E e) {
+	private void addSingleElement(final E e, final double[] minCoordinates, final double[] maxCoordinates) {
 		BucketPRKDTreeNode<E> node = this;
 		BucketPRKDTree<E> tree = null;
+		SplittingPlaneNode<E> splittingPlaneNode;
 		while (node instanceof SplittingPlaneNode) {
-			if (e.getCoordinate(((SplittingPlaneNode<E>) node).splitDimensionIdex) < ((SplittingPlaneNode<E>) node).splitDimensionMedian) {
-				tree = ((SplittingPlaneNode<E>) node).left;
-			} else {
-				tree = ((SplittingPlaneNode<E>) node).right;
+			splittingPlaneNode = (SplittingPlaneNode<E>) node;
+			splittingPlaneNode.size++;
+			tree = splittingPlaneNode.getBucketPRKDTree(e);
+			if (minCoordinates != null) {
+				/* The cell of the subtree is the part of this node's cell on the same side of the plane. */
+				if (tree == splittingPlaneNode.left) {
+					maxCoordinates[splittingPlaneNode.splitDimensionIdex] = splittingPlaneNode.splitDimensionMedian;
+				} else {
+					minCoordinates[splittingPlaneNode.splitDimensionIdex] = splittingPlaneNode.splitDimensionMedian;
+				}
 			}
-
-			node = tree.getNode();
+			node = tree.getWritableNode();
 		}
 
-		tree.add(e);
+		tree.add(e, minCoordinates, maxCoordinates);
 	}
 
-	private void createSplit(final int numberOfDimensions, final List<E> elements) {
-		double maxVariance = Double.NEGATIVE_INFINITY;
-		double maxValue, minValue, value, variance;
-		for (int i = 0; i < numberOfDimensions; i++) {
-			maxValue = elements.get(0).getCoordinate(i);
-			minValue = maxValue;
-			for (int j = 1; j < elements.size(); j++) {
-				value = elements.get(j).getCoordinate(i);
-
-				if (value < minValue) {
-					minValue = value;
-				} else if (value > maxValue) {
-					maxValue = value;
-				}
-			}
-
-			variance = maxValue - minValue;
-			if (variance > maxVariance) {
-				maxVariance = variance;
-				splitDimensionIdex = i;
-				splitDimensionMedian = variance / 2.0 + minValue;
-			}
-		}
+	/**
+	 * Retrieves the subtree in which the specified point belongs.
+	 * 
+	 * @param point
+	 *            the point to be placed.
+	 * @return the left subtree if the point lies below the splitting plane, otherwise the right.
+	 */
+	BucketPRKDTree<E> getBucketPRKDTree(final KDPoint point) {
+		return point.getCoordinate(splitDimensionIdex) < splitDimensionMedian ? left : right;
 	}
 
 	BucketPRKDTree<E> getLeftBucketPRKDTree() {
@@ -132,6 +196,7 @@ class SplittingPlaneNode<E extends KDPoint> implements BucketPRKDTreeNode<E> {
 			} else {
 				leftIterator.remove();
 			}
+			size--;
 		}
 
 	}
@@ -0,0 +1,95 @@
+package lessonz.collections.kdtree.distance;
+
+/**
+ * The {@link AbstractBoundedDistanceFunction} measures bounded distances for a {@link BulkDistanceFunction} whose
+ * distance accumulates one term per dimension and never decreases as terms are added. In many dimensions a point is
+ * measured a block of dimensions at a time, and abandoned once its partial distance exceeds the bound. Terms are always
+ * accumulated in order of dimension, so a distance within the bound is exactly the unbounded one.<br>
+ * <br>
+ * Searches measure points through whichever of these methods suits them, so each must agree with
+ * {@link #distance(double[], double[])}. The public subclasses are final so that no override of one method can leave
+ * the others measuring the distance it replaced.
+ */
+abstract class AbstractBoundedDistanceFunction implements BulkDistanceFunction {
+
+	private static final int DIMENSIONS_PER_BOUND_TEST = 16;
+	/*
+	 * Below about 96 dimensions too few points are rejected early enough to repay testing the bound, whether the test
+	 * is made every dimension, every four or every 16. In a plain timing harness, not JMH, of k-nearest neighbor
+	 * queries (k = 10, 20,000 points, bucket size 31, squared Euclidean, the median of three JVM runs), abandoning
+	 * points made no difference in 32 dimensions and cut the query time by 24% to 57% in 128 and 256.
+	 * PartialDistanceBenchmark repeats the comparison under JMH.
+	 */
+	private static final int MIN_DIMENSIONS_TO_ABANDON = 96;
+
+	/**
+	 * Accumulates the terms of the specified range of dimensions into a partial distance.
+	 * 
+	 * @param partialDistance
+	 *            the distance accumulated over the dimensions before the first.
+	 * @param coordinates
+	 *            k-dimensional point where each value is the point's position in that plane.
+	 * @param packedCoordinates
+	 *            the array holding the second point.
+	 * @param offset
+	 *            the index within packedCoordinates of the second point's first coordinate.
+	 * @param from
+	 *            the first dimension to accumulate, inclusive.
+	 * @param to
+	 *            the last dimension to accumulate, exclusive.
+	 * @return the partial distance over every dimension up to the last.
+	 */
+	abstract double accumulate(double partialDistance, double[] coordinates, double[] packedCoordinates, int offset,
+			int from, int to);
+
+	@Override
+	public double distance(final double[] coordinates, final double[] packedCoordinates, final int offset) {
+		return accumulate(0.0, coordinates, packedCoordinates, offset, 0, coordinates.length);
+	}
+
+	@Override
+	public double distance(final double[] coordinates, final double[] packedCoordinates, final int offset,
+			final double bound) {
+		final int numberOfDimensions = coordinates.length;
+		if (numberOfDimensions < MIN_DIMENSIONS_TO_ABANDON) {
+			return distance(coordinates, packedCoordinates, offset);
+		}
+
+		double partialDistance = 0.0;
+		int i = 0;
+		for (; i + DIMENSIONS_PER_BOUND_TEST <= numberOfDimensions && partialDistance <= bound;
+				i += DIMENSIONS_PER_BOUND_TEST) {
+			partialDistance = accumulate(partialDistance, coordinates, packedCoordinates, offset, i,
+					i + DIMENSIONS_PER_BOUND_TEST);
+		}
+		if (partialDistance <= bound) {
+			partialDistance =
+					accumulate(partialDistance, coordinates, packedCoordinates, offset, i, numberOfDimensions);
+		}
+
+		return partialDistance;
+	}
+
+	@Override
+	public void distances(final double[] coordinates, final double[] packedCoordinates, final int count,
+			final double[] distances) {
+		for (int i = 0, offset = 0; i < count; i++, offset += coordinates.length) {
+			distances[i] = distance(coordinates, packedCoordinates, offset);
+		}
+	}
+
+	@Override
+	public void distances(final double[] coordinates, final double[] packedCoordinates, final int count,
+			final double bound, final double[] distances) {
+		final int numberOfDimensions = coordinates.length;
+		if (numberOfDimensions < MIN_DIMENSIONS_TO_ABANDON) {
+			distances(coordinates, packedCoordinates, count, distances);
+			return;
+		}
+
+		for (int i = 0, offset = 0; i < count; i++, offset += numberOfDimensions) {
+			distances[i] = distance(coordinates, packedCoordinates, offset, bound);
+		}
+	}
+
+}
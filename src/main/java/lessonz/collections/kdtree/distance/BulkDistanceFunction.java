@@ -0,0 +1,73 @@
+package lessonz.collections.kdtree.distance;
+
+/**
+ * A {@link BulkDistanceFunction} is a {@link PackedDistanceFunction} that can also measure the distances from one point
+ * to every point in a packed coordinate array in a single call. A collection scanning a whole bucket of points then
+ * makes one call per bucket rather than one per point, and the implementation is free to specialize the loop over the
+ * points, for example for the number of dimensions, which a call per point cannot.<br>
+ * <br>
+ * A search that only cares about points nearer than some bound, such as the farthest of the k nearest neighbors found
+ * so far, may pass that bound, and an implementation summing a term per dimension may then stop measuring a point as
+ * soon as its partial sum exceeds the bound. Most points of a high-dimensional bucket are rejected after a fraction of
+ * their dimensions this way. The number of dimensions is that of the point measured from, as with
+ * {@link PackedDistanceFunction}.
+ */
+public interface BulkDistanceFunction extends PackedDistanceFunction {
+
+	/**
+	 * Calculates the distance as {@link PackedDistanceFunction#distance(double[], double[], int)} does, except that a
+	 * distance greater than the specified bound need not be exact, as with
+	 * {@link #distances(double[], double[], int, double, double[])}. This serves searches that test points one at a
+	 * time against a bound.
+	 * 
+	 * @param coordinates
+	 *            k-dimensional point where each value is the point's position in that plane.
+	 * @param packedCoordinates
+	 *            the array holding the second point.
+	 * @param offset
+	 *            the index within packedCoordinates of the second point's first coordinate.
+	 * @param bound
+	 *            the greatest distance that must be measured exactly.
+	 * @return the distance between the two points if it is no greater than the bound, otherwise some value greater
+	 *         than the bound.
+	 */
+	double distance(double[] coordinates, double[] packedCoordinates, int offset, double bound);
+
+	/**
+	 * Calculates the distances between a point and each of the first count points in a packed coordinate array. Each
+	 * distance must be exactly that {@link PackedDistanceFunction#distance(double[], double[], int)} would return for
+	 * the same point. As with {@link DistanceFunction#distance(double[], double[])} implementations need not check that
+	 * the arrays agree in size.
+	 * 
+	 * @param coordinates
+	 *            k-dimensional point where each value is the point's position in that plane.
+	 * @param packedCoordinates
+	 *            the array holding the other points, the first beginning at index 0.
+	 * @param count
+	 *            the number of points to measure.
+	 * @param distances
+	 *            the array into which the distance to the point at index <i>i</i> is stored at index <i>i</i>.
+	 */
+	void distances(double[] coordinates, double[] packedCoordinates, int count, double[] distances);
+
+	/**
+	 * Calculates the distances as {@link #distances(double[], double[], int, double[])} does, except that a distance
+	 * greater than the specified bound need not be exact. Each distance stored is exact if it is no greater than the
+	 * bound, and otherwise is some value greater than the bound, so the caller can still tell which points are within
+	 * the bound. An implementation may stop measuring a point as soon as it is known to lie beyond the bound, which
+	 * requires that the distance never decreases as the terms of further dimensions are taken into account.
+	 * 
+	 * @param coordinates
+	 *            k-dimensional point where each value is the point's position in that plane.
+	 * @param packedCoordinates
+	 *            the array holding the other points, the first beginning at index 0.
+	 * @param count
+	 *            the number of points to measure.
+	 * @param bound
+	 *            the greatest distance that must be measured exactly.
+	 * @param distances
+	 *            the array into which the distance to the point at index <i>i</i> is stored at index <i>i</i>.
+	 */
+	void distances(double[] coordinates, double[] packedCoordinates, int count, double bound, double[] distances);
+
+}
@@ -0,0 +1,26 @@
+package lessonz.collections.kdtree.distance;
+
+/**
+ * A {@link BulkDistanceFunctionProvider} supplies alternative implementations of the built-in distance functions, such
+ * as ones using instructions the Java 7 class library can't reach. {@link DistanceFunctions} finds a provider with a
+ * {@link java.util.ServiceLoader}, so one is installed by placing its jar on the class path. Every function provided
+ * must agree with the built-in one to within rounding.
+ */
+public interface BulkDistanceFunctionProvider {
+
+	/**
+	 * @return the {@link BulkDistanceFunction} to use in place of {@link ChebyshevDistanceFunction}.
+	 */
+	BulkDistanceFunction getChebyshevDistanceFunction();
+
+	/**
+	 * @return the {@link BulkDistanceFunction} to use in place of {@link ManhattanDistanceFunction}.
+	 */
+	BulkDistanceFunction getManhattanDistanceFunction();
+
+	/**
+	 * @return the {@link BulkDistanceFunction} to use in place of {@link SquaredEuclideanDistanceFunction}.
+	 */
+	BulkDistanceFunction getSquaredEuclideanDistanceFunction();
+
+}
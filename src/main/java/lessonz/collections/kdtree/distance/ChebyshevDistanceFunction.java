@@ -0,0 +1,32 @@
+package lessonz.collections.kdtree.distance;
+
+/**
+ * The {@link ChebyshevDistanceFunction} calculates distance as the greatest difference between two points in any one
+ * dimension, sometimes called the chessboard distance, since it is the number of moves a king needs between two
+ * squares. Every point within a Chebyshev distance of a target lies within a hypercube centered on the target, which
+ * makes it a natural fit for tolerance checks applied to every dimension alike.
+ */
+public final class ChebyshevDistanceFunction extends AbstractBoundedDistanceFunction {
+
+	@Override
+	public double distance(final double[] coordinateSet1, final double[] coordinateSet2) {
+		double chebyshevDistance = 0.0;
+		for (int i = 0; i < coordinateSet1.length; i++) {
+			chebyshevDistance = Math.max(chebyshevDistance, Math.abs(coordinateSet1[i] - coordinateSet2[i]));
+		}
+
+		return chebyshevDistance;
+	}
+
+	@Override
+	double accumulate(final double partialDistance, final double[] coordinates, final double[] packedCoordinates,
+			final int offset, final int from, final int to) {
+		double chebyshevDistance = partialDistance;
+		for (int i = from; i < to; i++) {
+			chebyshevDistance = Math.max(chebyshevDistance, Math.abs(coordinates[i] - packedCoordinates[offset + i]));
+		}
+
+		return chebyshevDistance;
+	}
+
+}
@@ -0,0 +1,76 @@
+package lessonz.collections.kdtree.distance;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The {@link DistanceFunctions} hand out the fastest available implementation of each built-in distance function. If
+ * a {@link BulkDistanceFunctionProvider} is found on the class path and can run on this JVM, such as the vectorized
+ * one of the collections-vector module, its functions are used; otherwise the scalar functions of this package are.
+ * The choice is made once, when the first function is requested.
+ */
+public final class DistanceFunctions {
+
+	/*
+	 * Loaded on first use, so that a tree given its own distance function never looks for a provider.
+	 */
+	private static class Holder {
+
+		private static final BulkDistanceFunction CHEBYSHEV;
+		private static final BulkDistanceFunction MANHATTAN;
+		private static final BulkDistanceFunction SQUARED_EUCLIDEAN;
+
+		static {
+			BulkDistanceFunction chebyshev = new ChebyshevDistanceFunction();
+			BulkDistanceFunction manhattan = new ManhattanDistanceFunction();
+			BulkDistanceFunction squaredEuclidean = new SquaredEuclideanDistanceFunction();
+			try {
+				final Iterator<BulkDistanceFunctionProvider> providers =
+						ServiceLoader.load(BulkDistanceFunctionProvider.class).iterator();
+				if (providers.hasNext()) {
+					final BulkDistanceFunctionProvider provider = providers.next();
+					/* All three are taken before any is used, so that a provider fails entirely or not at all. */
+					final BulkDistanceFunction providedChebyshev = provider.getChebyshevDistanceFunction();
+					final BulkDistanceFunction providedManhattan = provider.getManhattanDistanceFunction();
+					final BulkDistanceFunction providedSquaredEuclidean =
+							provider.getSquaredEuclideanDistanceFunction();
+					chebyshev = providedChebyshev;
+					manhattan = providedManhattan;
+					squaredEuclidean = providedSquaredEuclidean;
+				}
+			} catch (final ServiceConfigurationError | LinkageError e) {
+				/* The provider needs classes this JVM lacks or hasn't enabled, so the scalar functions stay. */
+			}
+			CHEBYSHEV = chebyshev;
+			MANHATTAN = manhattan;
+			SQUARED_EUCLIDEAN = squaredEuclidean;
+		}
+
+	}
+
+	/**
+	 * @return the fastest available {@link BulkDistanceFunction} measuring Chebyshev distance.
+	 */
+	public static BulkDistanceFunction chebyshev() {
+		return Holder.CHEBYSHEV;
+	}
+
+	/**
+	 * @return the fastest available {@link BulkDistanceFunction} measuring Manhattan distance.
+	 */
+	public static BulkDistanceFunction manhattan() {
+		return Holder.MANHATTAN;
+	}
+
+	/**
+	 * @return the fastest available {@link BulkDistanceFunction} measuring squared Euclidean distance.
+	 */
+	public static BulkDistanceFunction squaredEuclidean() {
+		return Holder.SQUARED_EUCLIDEAN;
+	}
+
+	private DistanceFunctions() {
+	}
+
+}
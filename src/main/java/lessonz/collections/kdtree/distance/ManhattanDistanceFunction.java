@@ -4,17 +4,55 @@ package lessonz.collections.kdtree.distance;
  * The {@link ManhattanDistanceFunction} calculates distance by way of Manhattan or taxicab geometry. Whereas Euclidean
  * distance takes the most direct path from point A to point B, taxicab geometry takes a path as if it had to follow a
  * grid-based traffic system to move between the points. That is whereas the Euclidean path allows for all dimensions to
- * vary simultaneously, the taxicab path will navigate each dimension independently.
+ * vary simultaneously, the taxicab path will navigate each dimension independently.<br>
+ * <br>
+ * Distances to many points at once are measured with the loop over dimensions written out for two and three
+ * dimensions, summing in the same order as the general loop so that the results are identical. In many dimensions, a
+ * point is abandoned once its partial sum exceeds the bound given, if any.
  */
-public class ManhattanDistanceFunction implements DistanceFunction {
+public final class ManhattanDistanceFunction extends AbstractBoundedDistanceFunction {
 
 	@Override
 	public double distance(final double[] coordinateSet1, final double[] coordinateSet2) {
 		double manhattanDistance = 0.0;
 		for (int i = 0; i < coordinateSet1.length; i++) {
-			manhattanDistance += coordinateSet1[i] + coordinateSet2[i];
+			manhattanDistance += Math.abs(coordinateSet1[i] - coordinateSet2[i]);
 		}
 
 		return manhattanDistance;
 	}
+
+	@Override
+	public void distances(final double[] coordinates, final double[] packedCoordinates, final int count,
+			final double[] distances) {
+		final int numberOfDimensions = coordinates.length;
+		if (numberOfDimensions == 2) {
+			final double x = coordinates[0], y = coordinates[1];
+			for (int i = 0, offset = 0; i < count; i++, offset += 2) {
+				distances[i] = Math.abs(x - packedCoordinates[offset]) + Math.abs(y - packedCoordinates[offset + 1]);
+			}
+		} else if (numberOfDimensions == 3) {
+			final double x = coordinates[0], y = coordinates[1], z = coordinates[2];
+			for (int i = 0, offset = 0; i < count; i++, offset += 3) {
+				distances[i] = Math.abs(x - packedCoordinates[offset]) + Math.abs(y - packedCoordinates[offset + 1])
+						+ Math.abs(z - packedCoordinates[offset + 2]);
+			}
+		} else {
+			for (int i = 0, offset = 0; i < count; i++, offset += numberOfDimensions) {
+				distances[i] = distance(coordinates, packedCoordinates, offset);
+			}
+		}
+	}
+
+	@Override
+	double accumulate(final double partialDistance, final double[] coordinates, final double[] packedCoordinates,
+			final int offset, final int from, final int to) {
+		double manhattanDistance = partialDistance;
+		for (int i = from; i < to; i++) {
+			manhattanDistance += Math.abs(coordinates[i] - packedCoordinates[offset + i]);
+		}
+
+		return manhattanDistance;
+	}
+
 }
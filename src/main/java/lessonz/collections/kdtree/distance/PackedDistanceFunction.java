@@ -0,0 +1,26 @@
+package lessonz.collections.kdtree.distance;
+
+/**
+ * A {@link PackedDistanceFunction} is a {@link DistanceFunction} that can also measure the distance to a point stored
+ * within a larger, packed coordinate array. Packed arrays hold many points back to back, so that the coordinates of
+ * the point at index <i>i</i> in a k-dimensional array begin at offset <i>i</i> * k. Measuring points in place allows
+ * collections to store coordinates contiguously and scan them without first extracting each point into its own array.
+ */
+public interface PackedDistanceFunction extends DistanceFunction {
+
+	/**
+	 * Calculates the distance between a point and a point stored within a packed coordinate array. As with
+	 * {@link DistanceFunction#distance(double[], double[])} implementations need not check that the arrays agree in
+	 * size.
+	 * 
+	 * @param coordinates
+	 *            k-dimensional point where each value is the point's position in that plane.
+	 * @param packedCoordinates
+	 *            the array holding the second point.
+	 * @param offset
+	 *            the index within packedCoordinates of the second point's first coordinate.
+	 * @return the distance between the two points.
+	 */
+	double distance(double[] coordinates, double[] packedCoordinates, int offset);
+
+}
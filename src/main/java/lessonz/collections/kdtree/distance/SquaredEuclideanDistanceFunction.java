@@ -5,9 +5,13 @@ package lessonz.collections.kdtree.distance;
  * take the final square root of the sum of the squares. This value is sometimes referred to as the quadrance. Because
  * {@link DistanceFunction}s are often used solely to determine <i>relative</i> proximity, the square of distances is
  * equally useful and is much more performant to calculate. While one such calculation may not be an issue, many such
- * calculations can become an issue.
+ * calculations can become an issue.<br>
+ * <br>
+ * Distances to many points at once are measured with the loop over dimensions written out for two and three
+ * dimensions, the most common cases, summing in the same order as the general loop so that the results are identical.
+ * In many dimensions, a point is abandoned once the sum of its squares exceeds the bound given, if any.
  */
-public class SquaredEuclideanDistanceFunction implements DistanceFunction {
+public final class SquaredEuclideanDistanceFunction extends AbstractBoundedDistanceFunction {
 
 	private static double square(final double base) {
 		return base * base;
@@ -24,4 +28,38 @@ public class SquaredEuclideanDistanceFunction implements DistanceFunction {
 		return distanceSq;
 	}
 
+	@Override
+	public void distances(final double[] coordinates, final double[] packedCoordinates, final int count,
+			final double[] distances) {
+		final int numberOfDimensions = coordinates.length;
+		if (numberOfDimensions == 2) {
+			final double x = coordinates[0], y = coordinates[1];
+			for (int i = 0, offset = 0; i < count; i++, offset += 2) {
+				distances[i] = square(x - packedCoordinates[offset]) + square(y - packedCoordinates[offset + 1]);
+			}
+		} else if (numberOfDimensions == 3) {
+			final double x = coordinates[0], y = coordinates[1], z = coordinates[2];
+			for (int i = 0, offset = 0; i < count; i++, offset += 3) {
+				distances[i] = square(x - packedCoordinates[offset]) + square(y - packedCoordinates[offset + 1])
+						+ square(z - packedCoordinates[offset + 2]);
+			}
+		} else {
+			for (int i = 0, offset = 0; i < count; i++, offset += numberOfDimensions) {
+				distances[i] = distance(coordinates, packedCoordinates, offset);
+			}
+		}
+	}
+
+	@Override
+	double accumulate(final double partialDistance, final double[] coordinates, final double[] packedCoordinates,
+			final int offset, final int from, final int to) {
+		double distanceSq = partialDistance;
+
+		for (int i = from; i < to; i++) {
+			distanceSq += square(coordinates[i] - packedCoordinates[offset + i]);
+		}
+
+		return distanceSq;
+	}
+
 }
@@ -0,0 +1,350 @@
+package lessonz.collections.kdtree.primitive;
+
+import java.util.Arrays;
+
+import lessonz.collections.kdtree.distance.BulkDistanceFunction;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.DistanceFunctions;
+import lessonz.collections.kdtree.distance.PackedDistanceFunction;
+
+/**
+ * The {@link AbstractLongIdKDTree} holds the node structure shared by every k-d tree of <code>long</code> ids, along
+ * with the queries run against it. Nodes are stored in pre-order in parallel arrays, so the left child of node i is
+ * node i + 1. Each subclass decides where the points themselves are kept, handing them to the queries through a
+ * {@link PointReader}.
+ */
+public abstract class AbstractLongIdKDTree {
+
+	/**
+	 * The split dimension recorded for a leaf node.
+	 */
+	static final int LEAF = -1;
+
+	private static final DistanceFunction DEFAULT_DISTANCE_FUNCTION = DistanceFunctions.squaredEuclidean();
+
+	/*
+	 * Leaves have a split dimension of LEAF; their points are those from nodeFrom (inclusive) to nodeTo (exclusive).
+	 */
+	final int[] nodeFrom;
+	final int[] nodeRight;
+	final int[] nodeSplitDimension;
+	final double[] nodeSplitValue;
+	final int[] nodeTo;
+	final int numberOfDimensions;
+	final int size;
+
+	AbstractLongIdKDTree(final int numberOfDimensions, final int size, final int[] nodeSplitDimension,
+			final double[] nodeSplitValue, final int[] nodeRight, final int[] nodeFrom, final int[] nodeTo) {
+		this.numberOfDimensions = numberOfDimensions;
+		this.size = size;
+		this.nodeSplitDimension = nodeSplitDimension;
+		this.nodeSplitValue = nodeSplitValue;
+		this.nodeRight = nodeRight;
+		this.nodeFrom = nodeFrom;
+		this.nodeTo = nodeTo;
+	}
+
+	/**
+	 * Finds the ids of up to the specified number of points closest to the targeted coordinates, nearest first. The
+	 * default function is used to determine point proximity.
+	 * 
+	 * @param k
+	 *            the number of neighbors for which to search.
+	 * @param targetCoordinates
+	 *            the coordinates near which to search.
+	 * @return the ids of the nearest neighbors found, in increasing order of distance.
+	 */
+	public long[] getKNearestNeighbors(final int k, final double[] targetCoordinates) {
+		return getKNearestNeighbors(k, targetCoordinates, DEFAULT_DISTANCE_FUNCTION);
+	}
+
+	/**
+	 * Finds the ids of up to the specified number of points closest to the targeted coordinates, nearest first. If
+	 * there are at least k points, k ids will be returned. If there are fewer, all ids will be returned.
+	 * 
+	 * @param k
+	 *            the number of neighbors for which to search.
+	 * @param targetCoordinates
+	 *            the coordinates near which to search.
+	 * @param distanceFunction
+	 *            the {@link DistanceFunction} to be used in determining proximity.
+	 * @return the ids of the nearest neighbors found, in increasing order of distance.
+	 */
+	public long[] getKNearestNeighbors(final int k, final double[] targetCoordinates,
+			final DistanceFunction distanceFunction) {
+		return new KNearestNeighborSearch(k, targetCoordinates, distanceFunction).search();
+	}
+
+	/**
+	 * @return the number of dimensions of every point in the tree.
+	 */
+	public int getNumberOfDimensions() {
+		return numberOfDimensions;
+	}
+
+	/**
+	 * Finds the ids of every point within the axis-aligned box between the specified corners, inclusive. No ordering
+	 * of the returned ids is implied.
+	 * 
+	 * @param minCoordinates
+	 *            the corner of the box with the least coordinates.
+	 * @param maxCoordinates
+	 *            the corner of the box with the greatest coordinates.
+	 * @return the ids of the points found.
+	 */
+	public long[] rangeQuery(final double[] minCoordinates, final double[] maxCoordinates) {
+		final RangeSearch rangeSearch = new RangeSearch(minCoordinates, maxCoordinates);
+		rangeSearch.search(0);
+
+		return Arrays.copyOf(rangeSearch.found, rangeSearch.size);
+	}
+
+	/**
+	 * @return the number of points in the tree.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Creates a {@link PointReader} for the use of a single query.
+	 */
+	abstract PointReader newPointReader();
+
+	/**
+	 * A {@link PointReader} gives a query access to the points of one leaf at a time. It need not be thread-safe, since
+	 * each query uses its own.
+	 */
+	abstract static class PointReader {
+
+		/**
+		 * The coordinates of the most recently read leaf, packed point after point beginning at {@link #offset}.
+		 */
+		double[] coordinates;
+		int offset;
+
+		/**
+		 * Returns the id of the point at the specified index.
+		 */
+		abstract long id(int index);
+
+		/**
+		 * Makes the coordinates of the points from index from (inclusive) to index to (exclusive) available through
+		 * {@link #coordinates} and {@link #offset}.
+		 */
+		abstract void read(int from, int to);
+
+	}
+
+	private class KNearestNeighborSearch {
+
+		private final BulkDistanceFunction bulkDistanceFunction;
+		private final double[] closestStillPossibleCoordinates;
+		private final DistanceFunction distanceFunction;
+		/*
+		 * A max-heap of the nearest points found so far, by index into the points.
+		 */
+		private final double[] heapDistances;
+		private final int[] heapIndexes;
+		private int heapSize = 0;
+		private final int k;
+		private final PackedDistanceFunction packedDistanceFunction;
+		private final double[] pointCoordinates;
+		private final PointReader pointReader;
+		private final double[] targetCoordinates;
+
+		KNearestNeighborSearch(final int k, final double[] targetCoordinates, final DistanceFunction distanceFunction) {
+			if (k < 1) {
+				throw new IllegalArgumentException("The number of neighbors to find must be at least 1.");
+			}
+
+			this.k = Math.min(k, size);
+			this.targetCoordinates = Arrays.copyOf(targetCoordinates, targetCoordinates.length);
+			this.distanceFunction = distanceFunction;
+			packedDistanceFunction =
+					distanceFunction instanceof PackedDistanceFunction ? (PackedDistanceFunction) distanceFunction
+							: null;
+			bulkDistanceFunction =
+					distanceFunction instanceof BulkDistanceFunction ? (BulkDistanceFunction) distanceFunction : null;
+			closestStillPossibleCoordinates = Arrays.copyOf(targetCoordinates, targetCoordinates.length);
+			pointCoordinates = new double[numberOfDimensions];
+			pointReader = newPointReader();
+			heapDistances = new double[this.k];
+			heapIndexes = new int[this.k];
+		}
+
+		long[] search() {
+			if (k > 0) {
+				search(0);
+			}
+
+			/* Empty the heap from the farthest neighbor down, filling the result from the back. */
+			final long[] nearestNeighbors = new long[heapSize];
+			while (heapSize > 0) {
+				nearestNeighbors[heapSize - 1] = pointReader.id(heapIndexes[0]);
+				heapSize--;
+				siftDown(heapDistances[heapSize], heapIndexes[heapSize]);
+			}
+
+			return nearestNeighbors;
+		}
+
+		private void add(final double distance, final int index) {
+			if (heapSize < k) {
+				int i = heapSize++;
+				while (i > 0) {
+					final int parent = (i - 1) >>> 1;
+					if (distance <= heapDistances[parent]) {
+						break;
+					}
+
+					heapDistances[i] = heapDistances[parent];
+					heapIndexes[i] = heapIndexes[parent];
+					i = parent;
+				}
+
+				heapDistances[i] = distance;
+				heapIndexes[i] = index;
+			} else {
+				siftDown(distance, index);
+			}
+		}
+
+		private boolean isCloserThanFarthestNearNeighbor(final double distance) {
+			return heapSize < k || distance < heapDistances[0];
+		}
+
+		private void search(final int node) {
+			final int splitDimension = nodeSplitDimension[node];
+			if (splitDimension == LEAF) {
+				searchLeaf(nodeFrom[node], nodeTo[node]);
+				return;
+			}
+
+			final double splitValue = nodeSplitValue[node];
+			final int closerNode, fartherNode;
+			if (splitValue < closestStillPossibleCoordinates[splitDimension]) {
+				closerNode = nodeRight[node];
+				fartherNode = node + 1;
+			} else {
+				closerNode = node + 1;
+				fartherNode = nodeRight[node];
+			}
+
+			search(closerNode);
+
+			final double closerCoordinate = closestStillPossibleCoordinates[splitDimension];
+			closestStillPossibleCoordinates[splitDimension] = splitValue;
+			if (isCloserThanFarthestNearNeighbor(distanceFunction.distance(targetCoordinates,
+					closestStillPossibleCoordinates))) {
+				search(fartherNode);
+			}
+			closestStillPossibleCoordinates[splitDimension] = closerCoordinate;
+		}
+
+		private void searchLeaf(final int from, final int to) {
+			pointReader.read(from, to);
+			final double[] coordinates = pointReader.coordinates;
+			int offset = pointReader.offset;
+			double distance;
+			for (int i = from; i < to; i++, offset += numberOfDimensions) {
+				if (bulkDistanceFunction != null && heapSize == k) {
+					/* Only points nearer than the farthest near neighbor matter, so the rest may be abandoned early. */
+					distance = bulkDistanceFunction.distance(targetCoordinates, coordinates, offset, heapDistances[0]);
+				} else if (packedDistanceFunction != null) {
+					distance = packedDistanceFunction.distance(targetCoordinates, coordinates, offset);
+				} else {
+					System.arraycopy(coordinates, offset, pointCoordinates, 0, numberOfDimensions);
+					distance = distanceFunction.distance(targetCoordinates, pointCoordinates);
+				}
+
+				if (isCloserThanFarthestNearNeighbor(distance)) {
+					add(distance, i);
+				}
+			}
+		}
+
+		/**
+		 * Places the specified entry at the root of the heap and sifts it down into position.
+		 */
+		private void siftDown(final double distance, final int index) {
+			int i = 0;
+			final int half = heapSize >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				final int right = child + 1;
+				if (right < heapSize && heapDistances[right] > heapDistances[child]) {
+					child = right;
+				}
+
+				if (distance >= heapDistances[child]) {
+					break;
+				}
+
+				heapDistances[i] = heapDistances[child];
+				heapIndexes[i] = heapIndexes[child];
+				i = child;
+			}
+
+			heapDistances[i] = distance;
+			heapIndexes[i] = index;
+		}
+
+	}
+
+	private class RangeSearch {
+
+		private long[] found = new long[16];
+		private final double[] maxCoordinates;
+		private final double[] minCoordinates;
+		private final PointReader pointReader;
+		private int size = 0;
+
+		RangeSearch(final double[] minCoordinates, final double[] maxCoordinates) {
+			this.minCoordinates = Arrays.copyOf(minCoordinates, minCoordinates.length);
+			this.maxCoordinates = Arrays.copyOf(maxCoordinates, maxCoordinates.length);
+			pointReader = newPointReader();
+		}
+
+		void search(final int node) {
+			final int splitDimension = nodeSplitDimension[node];
+			if (splitDimension == LEAF) {
+				searchLeaf(nodeFrom[node], nodeTo[node]);
+				return;
+			}
+
+			final double splitValue = nodeSplitValue[node];
+			if (minCoordinates[splitDimension] < splitValue) {
+				search(node + 1);
+			}
+			if (maxCoordinates[splitDimension] >= splitValue) {
+				search(nodeRight[node]);
+			}
+		}
+
+		private void searchLeaf(final int from, final int to) {
+			pointReader.read(from, to);
+			final double[] coordinates = pointReader.coordinates;
+			int offset = pointReader.offset;
+			double coordinate;
+			int j;
+			for (int i = from; i < to; i++, offset += numberOfDimensions) {
+				for (j = 0; j < numberOfDimensions; j++) {
+					coordinate = coordinates[offset + j];
+					if (coordinate < minCoordinates[j] || coordinate > maxCoordinates[j]) {
+						break;
+					}
+				}
+
+				if (j == numberOfDimensions) {
+					if (size >= found.length) {
+						found = Arrays.copyOf(found, found.length * 2);
+					}
+					found[size++] = pointReader.id(i);
+				}
+			}
+		}
+
+	}
+
+}
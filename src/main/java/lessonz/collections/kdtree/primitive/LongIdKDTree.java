@@ -0,0 +1,178 @@
+package lessonz.collections.kdtree.primitive;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@link LongIdKDTree} is a k-d tree (<a href="https://en.wikipedia.org/wiki/Kd-tree">Wikipedia Reference</a>) of
+ * points identified by <code>long</code> ids rather than by objects. Where a
+ * {@link lessonz.collections.kdtree.bucketpr.BucketPRKDTree} holds a {@link lessonz.collections.kdtree.KDPoint}, with
+ * its own coordinate array, for every element, the {@link LongIdKDTree} keeps all coordinates in one flat
+ * <code>double[]</code> and all ids in one <code>long[]</code>, so each point costs little more than its raw
+ * coordinates.<br>
+ * <br>
+ * A {@link LongIdKDTree} is built once from a complete set of points, each region being split at the true median of its
+ * widest dimension until it holds no more than the bucket size, and cannot be modified afterward. Any number of threads
+ * may query it concurrently. It can also be written to a file with {@link #writeTo(Path)} and later opened, without
+ * rebuilding, as a {@link MappedLongIdKDTree}.
+ */
+public class LongIdKDTree extends AbstractLongIdKDTree {
+
+	/**
+	 * This bucket size was pretty much chosen at random.
+	 */
+	private static final int DEFAULT_BUCKET_SIZE = 31;
+	private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Builds a {@link LongIdKDTree} with the default bucket size. See {@link #build(double[], long[], int, int)}.
+	 * 
+	 * @param coordinates
+	 *            the coordinates of every point, packed point after point.
+	 * @param ids
+	 *            the id of every point, in the same order as the coordinates.
+	 * @param numberOfDimensions
+	 *            the number of dimensions of the {@link LongIdKDTree}.
+	 * @return the built {@link LongIdKDTree}.
+	 */
+	public static LongIdKDTree build(final double[] coordinates, final long[] ids, final int numberOfDimensions) {
+		return build(coordinates, ids, numberOfDimensions, DEFAULT_BUCKET_SIZE);
+	}
+
+	/**
+	 * Builds a {@link LongIdKDTree} of the specified points. The coordinates of the point with id ids[i] occupy
+	 * coordinates[i * numberOfDimensions] through coordinates[(i + 1) * numberOfDimensions - 1]. So that no copy of the
+	 * data need be made, the {@link LongIdKDTree} takes ownership of both arrays: they are reordered in place while
+	 * building and must not be modified afterward.
+	 * 
+	 * @param coordinates
+	 *            the coordinates of every point, packed point after point.
+	 * @param ids
+	 *            the id of every point, in the same order as the coordinates.
+	 * @param numberOfDimensions
+	 *            the number of dimensions of the {@link LongIdKDTree}.
+	 * @param bucketSize
+	 *            the greatest number of points held in a leaf, unless more share the same coordinates.
+	 * @return the built {@link LongIdKDTree}.
+	 */
+	public static LongIdKDTree build(final double[] coordinates, final long[] ids, final int numberOfDimensions,
+			final int bucketSize) {
+		if (coordinates.length != ids.length * numberOfDimensions) {
+			throw new IllegalArgumentException("There must be exactly numberOfDimensions coordinates for every id.");
+		}
+
+		return new LongIdKDTreeBuilder(coordinates, ids, numberOfDimensions, bucketSize).build();
+	}
+
+	private final double[] coordinates;
+	private final long[] ids;
+
+	LongIdKDTree(final double[] coordinates, final long[] ids, final int numberOfDimensions,
+			final int[] nodeSplitDimension, final double[] nodeSplitValue, final int[] nodeRight,
+			final int[] nodeFrom, final int[] nodeTo) {
+		super(numberOfDimensions, ids.length, nodeSplitDimension, nodeSplitValue, nodeRight, nodeFrom, nodeTo);
+		this.coordinates = coordinates;
+		this.ids = ids;
+	}
+
+	/**
+	 * Writes this {@link LongIdKDTree} to the specified file, replacing any existing contents, in the flat format
+	 * described by {@link MappedLongIdKDTree}. The file may then be opened with {@link MappedLongIdKDTree#open(Path)}.
+	 * 
+	 * @param file
+	 *            the file to which to write.
+	 * @throws IOException
+	 *             if the file cannot be written.
+	 */
+	public void writeTo(final Path file) throws IOException {
+		try (FileChannel channel =
+				FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+						StandardOpenOption.WRITE)) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(MappedLongIdKDTree.BYTE_ORDER);
+			buffer.putInt(MappedLongIdKDTree.MAGIC).putInt(MappedLongIdKDTree.VERSION).putInt(numberOfDimensions)
+					.putInt(nodeSplitDimension.length).putInt(size).putInt(0);
+			writeInts(channel, buffer, nodeSplitDimension);
+			writeInts(channel, buffer, nodeRight);
+			writeInts(channel, buffer, nodeFrom);
+			writeInts(channel, buffer, nodeTo);
+			writeDoubles(channel, buffer, nodeSplitValue);
+			writeLongs(channel, buffer, ids);
+			writeDoubles(channel, buffer, coordinates);
+			flush(channel, buffer);
+		}
+	}
+
+	@Override
+	PointReader newPointReader() {
+		return new PointReader() {
+
+			@Override
+			long id(final int index) {
+				return ids[index];
+			}
+
+			@Override
+			void read(final int from, final int to) {
+				coordinates = LongIdKDTree.this.coordinates;
+				offset = from * numberOfDimensions;
+			}
+
+		};
+	}
+
+	private static void flush(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		// Through Buffer, since ByteBuffer only overrides flip(), clear() and position(int) as of Java 9.
+		((Buffer) buffer).flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		((Buffer) buffer).clear();
+	}
+
+	private static void writeDoubles(final FileChannel channel, final ByteBuffer buffer, final double[] values)
+			throws IOException {
+		int count;
+		for (int i = 0; i < values.length; i += count) {
+			if (buffer.remaining() < Double.SIZE / Byte.SIZE) {
+				flush(channel, buffer);
+			}
+
+			count = Math.min(buffer.remaining() / (Double.SIZE / Byte.SIZE), values.length - i);
+			buffer.asDoubleBuffer().put(values, i, count);
+			((Buffer) buffer).position(buffer.position() + count * (Double.SIZE / Byte.SIZE));
+		}
+	}
+
+	private static void writeInts(final FileChannel channel, final ByteBuffer buffer, final int[] values)
+			throws IOException {
+		int count;
+		for (int i = 0; i < values.length; i += count) {
+			if (buffer.remaining() < Integer.SIZE / Byte.SIZE) {
+				flush(channel, buffer);
+			}
+
+			count = Math.min(buffer.remaining() / (Integer.SIZE / Byte.SIZE), values.length - i);
+			buffer.asIntBuffer().put(values, i, count);
+			((Buffer) buffer).position(buffer.position() + count * (Integer.SIZE / Byte.SIZE));
+		}
+	}
+
+	private static void writeLongs(final FileChannel channel, final ByteBuffer buffer, final long[] values)
+			throws IOException {
+		int count;
+		for (int i = 0; i < values.length; i += count) {
+			if (buffer.remaining() < Long.SIZE / Byte.SIZE) {
+				flush(channel, buffer);
+			}
+
+			count = Math.min(buffer.remaining() / (Long.SIZE / Byte.SIZE), values.length - i);
+			buffer.asLongBuffer().put(values, i, count);
+			((Buffer) buffer).position(buffer.position() + count * (Long.SIZE / Byte.SIZE));
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package lessonz.collections.kdtree.primitive;
+
+import java.util.Arrays;
+
+import lessonz.collections.kdtree.split.MedianPartitioner;
+import lessonz.collections.kdtree.split.SplittingPlane;
+
+/**
+ * The {@link LongIdKDTreeBuilder} builds a {@link LongIdKDTree} in one top-down pass, splitting each range of points on
+ * its widest dimension at the true median of that dimension, as
+ * {@link lessonz.collections.kdtree.bucketpr.BucketPRKDTree#build(java.util.Collection, int, int)} does. Points are
+ * partitioned in place within the coordinate and id arrays by a {@link MedianPartitioner}, and nodes are recorded in
+ * pre-order in parallel arrays.
+ */
+class LongIdKDTreeBuilder {
+
+	private final int bucketSize;
+	private final double[] coordinates;
+	private final long[] ids;
+	private int[] nodeFrom;
+	private int[] nodeRight;
+	private int nodeCount = 0;
+	private int[] nodeSplitDimension;
+	private double[] nodeSplitValue;
+	private int[] nodeTo;
+	private final int numberOfDimensions;
+	private final MedianPartitioner partitioner;
+
+	LongIdKDTreeBuilder(final double[] coordinates, final long[] ids, final int numberOfDimensions,
+			final int bucketSize) {
+		if (bucketSize < 1) {
+			throw new IllegalArgumentException("The bucket size must be at least 1.");
+		}
+
+		this.coordinates = coordinates;
+		this.ids = ids;
+		this.numberOfDimensions = numberOfDimensions;
+		this.bucketSize = bucketSize;
+		partitioner = new MedianPartitioner(coordinates, numberOfDimensions) {
+
+			@Override
+			protected void swapKeys(final int i, final int j) {
+				final long temp = ids[i];
+				ids[i] = ids[j];
+				ids[j] = temp;
+			}
+
+		};
+
+		/* A balanced tree has a little under 4n / bucketSize nodes; the arrays grow if duplicates need more. */
+		final int expectedNodeCount = 4 * (ids.length / bucketSize) + 1;
+		nodeSplitDimension = new int[expectedNodeCount];
+		nodeSplitValue = new double[expectedNodeCount];
+		nodeRight = new int[expectedNodeCount];
+		nodeFrom = new int[expectedNodeCount];
+		nodeTo = new int[expectedNodeCount];
+	}
+
+	LongIdKDTree build() {
+		build(0, ids.length);
+
+		return new LongIdKDTree(coordinates, ids, numberOfDimensions, Arrays.copyOf(nodeSplitDimension, nodeCount),
+				Arrays.copyOf(nodeSplitValue, nodeCount), Arrays.copyOf(nodeRight, nodeCount), Arrays.copyOf(
+						nodeFrom, nodeCount), Arrays.copyOf(nodeTo, nodeCount));
+	}
+
+	private int build(final int from, final int to) {
+		final int node = nextNode();
+		nodeFrom[node] = from;
+		nodeTo[node] = to;
+
+		if (to - from <= bucketSize) {
+			nodeSplitDimension[node] = AbstractLongIdKDTree.LEAF;
+			return node;
+		}
+
+		final SplittingPlane splittingPlane = partitioner.selectMedianPlane(from, to);
+		if (splittingPlane == null) {
+			/* Every point shares the same coordinates, so no split can separate them. */
+			nodeSplitDimension[node] = AbstractLongIdKDTree.LEAF;
+			return node;
+		}
+
+		final int index = partitioner.partition(from, to, splittingPlane);
+		nodeSplitDimension[node] = splittingPlane.getDimensionIndex();
+		nodeSplitValue[node] = splittingPlane.getValue();
+		build(from, index);
+		nodeRight[node] = build(index, to);
+
+		return node;
+	}
+
+	private int nextNode() {
+		if (nodeCount == nodeSplitDimension.length) {
+			final int newLength = nodeCount * 2;
+			nodeSplitDimension = Arrays.copyOf(nodeSplitDimension, newLength);
+			nodeSplitValue = Arrays.copyOf(nodeSplitValue, newLength);
+			nodeRight = Arrays.copyOf(nodeRight, newLength);
+			nodeFrom = Arrays.copyOf(nodeFrom, newLength);
+			nodeTo = Arrays.copyOf(nodeTo, newLength);
+		}
+
+		return nodeCount++;
+	}
+
+}
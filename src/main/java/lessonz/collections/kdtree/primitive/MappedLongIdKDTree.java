@@ -0,0 +1,180 @@
+package lessonz.collections.kdtree.primitive;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@link MappedLongIdKDTree} is an {@link AbstractLongIdKDTree} opened from a file written by
+ * {@link LongIdKDTree#writeTo(Path)}, answering the same queries as the {@link LongIdKDTree} that wrote it. Only the
+ * nodes, which number a few per bucket of points, are read onto the heap; the ids and coordinates are memory-mapped and
+ * read in place, a leaf at a time, as queries reach them. Opening is therefore nearly instant regardless of the number
+ * of points, and every process that opens the same file shares one copy of it in the operating system's page cache.<br>
+ * <br>
+ * The file is little-endian and laid out as follows, with every array stored in full before the next begins:
+ * <ol>
+ * <li>a header of six <code>int</code>s: a magic number, the format version, the number of dimensions, the number of
+ * nodes, the number of points, and zero padding;</li>
+ * <li>the split dimension, right child, first point and end point of every node, as four <code>int</code> arrays;</li>
+ * <li>the split value of every node, as a <code>double</code> array;</li>
+ * <li>the id of every point, as a <code>long</code> array;</li>
+ * <li>the coordinates of every point, packed point after point, as a <code>double</code> array.</li>
+ * </ol>
+ * As a single mapping cannot exceed 2 GB, the ids and coordinates are each mapped in as many regions as they need.<br>
+ * <br>
+ * Like a {@link LongIdKDTree}, a {@link MappedLongIdKDTree} cannot be modified and may be queried by any number of
+ * threads concurrently. The file must not be modified while it is open.
+ */
+public class MappedLongIdKDTree extends AbstractLongIdKDTree {
+
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+	static final int MAGIC = 0x4C4B4454;
+	static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 6 * Integer.SIZE / Byte.SIZE;
+	private static final int MAXIMUM_REGION_SIZE = 1 << 30;
+
+	/**
+	 * Opens a {@link MappedLongIdKDTree} from a file written by {@link LongIdKDTree#writeTo(Path)}.
+	 * 
+	 * @param file
+	 *            the file to open.
+	 * @return the opened {@link MappedLongIdKDTree}.
+	 * @throws IOException
+	 *             if the file cannot be read or is not a {@link LongIdKDTree} file.
+	 */
+	public static MappedLongIdKDTree open(final Path file) throws IOException {
+		/* Mappings remain valid once the channel that created them is closed. */
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE).order(BYTE_ORDER);
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException(file + " is not a LongIdKDTree file of a supported version.");
+			}
+			final int numberOfDimensions = header.getInt();
+			final int nodeCount = header.getInt();
+			final int size = header.getInt();
+
+			final long nodesSize = (long) nodeCount * (4 * Integer.SIZE + Double.SIZE) / Byte.SIZE;
+			final long idsPosition = HEADER_SIZE + nodesSize;
+			final long coordinatesPosition = idsPosition + (long) size * Long.SIZE / Byte.SIZE;
+			final long expectedFileSize = coordinatesPosition + (long) size * numberOfDimensions * Double.SIZE / Byte.SIZE;
+			if (channel.size() != expectedFileSize) {
+				throw new IOException(file + " is " + channel.size() + " bytes long rather than the expected "
+						+ expectedFileSize + ".");
+			}
+
+			final ByteBuffer nodes = channel.map(MapMode.READ_ONLY, HEADER_SIZE, nodesSize).order(BYTE_ORDER);
+			final int[] nodeSplitDimension = new int[nodeCount];
+			final int[] nodeRight = new int[nodeCount];
+			final int[] nodeFrom = new int[nodeCount];
+			final int[] nodeTo = new int[nodeCount];
+			final double[] nodeSplitValue = new double[nodeCount];
+			for (final int[] values : new int[][] { nodeSplitDimension, nodeRight, nodeFrom, nodeTo }) {
+				nodes.asIntBuffer().get(values);
+				// Through Buffer, since ByteBuffer only overrides position(int) as of Java 9.
+				((Buffer) nodes).position(nodes.position() + nodeCount * Integer.SIZE / Byte.SIZE);
+			}
+			nodes.asDoubleBuffer().get(nodeSplitValue);
+
+			final int idsPerRegion = MAXIMUM_REGION_SIZE / (Long.SIZE / Byte.SIZE);
+			final LongBuffer[] ids = new LongBuffer[regionCount(size, idsPerRegion)];
+			for (int i = 0; i < ids.length; i++) {
+				final int count = Math.min(idsPerRegion, size - i * idsPerRegion);
+				ids[i] =
+						channel.map(MapMode.READ_ONLY, idsPosition + (long) i * idsPerRegion * Long.SIZE / Byte.SIZE,
+								(long) count * Long.SIZE / Byte.SIZE).order(BYTE_ORDER).asLongBuffer();
+			}
+
+			/* Regions of coordinates hold whole points, so that a point never straddles two of them. */
+			final int pointsPerRegion = MAXIMUM_REGION_SIZE / (numberOfDimensions * Double.SIZE / Byte.SIZE);
+			final DoubleBuffer[] coordinates = new DoubleBuffer[regionCount(size, pointsPerRegion)];
+			final long regionSize = (long) pointsPerRegion * numberOfDimensions * Double.SIZE / Byte.SIZE;
+			for (int i = 0; i < coordinates.length; i++) {
+				final int count = Math.min(pointsPerRegion, size - i * pointsPerRegion);
+				coordinates[i] =
+						channel.map(MapMode.READ_ONLY, coordinatesPosition + i * regionSize,
+								(long) count * numberOfDimensions * Double.SIZE / Byte.SIZE).order(BYTE_ORDER)
+								.asDoubleBuffer();
+			}
+
+			return new MappedLongIdKDTree(numberOfDimensions, size, nodeSplitDimension, nodeSplitValue, nodeRight,
+					nodeFrom, nodeTo, ids, idsPerRegion, coordinates, pointsPerRegion);
+		}
+	}
+
+	private static int regionCount(final int size, final int perRegion) {
+		return (size + perRegion - 1) / perRegion;
+	}
+
+	private final DoubleBuffer[] coordinates;
+	private final LongBuffer[] ids;
+	private final int idsPerRegion;
+	private final int pointsPerRegion;
+
+	private MappedLongIdKDTree(final int numberOfDimensions, final int size, final int[] nodeSplitDimension,
+			final double[] nodeSplitValue, final int[] nodeRight, final int[] nodeFrom, final int[] nodeTo,
+			final LongBuffer[] ids, final int idsPerRegion, final DoubleBuffer[] coordinates, final int pointsPerRegion) {
+		super(numberOfDimensions, size, nodeSplitDimension, nodeSplitValue, nodeRight, nodeFrom, nodeTo);
+		this.ids = ids;
+		this.idsPerRegion = idsPerRegion;
+		this.coordinates = coordinates;
+		this.pointsPerRegion = pointsPerRegion;
+	}
+
+	@Override
+	PointReader newPointReader() {
+		return new MappedPointReader();
+	}
+
+	/**
+	 * The {@link MappedPointReader} copies each leaf's coordinates in bulk into a scratch array. As bulk reads move a
+	 * buffer's position, it reads through its own duplicates of the shared buffers.
+	 */
+	private class MappedPointReader extends PointReader {
+
+		private final DoubleBuffer[] coordinateRegions;
+
+		MappedPointReader() {
+			coordinateRegions = new DoubleBuffer[MappedLongIdKDTree.this.coordinates.length];
+			for (int i = 0; i < coordinateRegions.length; i++) {
+				coordinateRegions[i] = MappedLongIdKDTree.this.coordinates[i].duplicate();
+			}
+			coordinates = new double[0];
+		}
+
+		@Override
+		long id(final int index) {
+			/* Absolute reads do not move the position, so the shared buffers can be used directly. */
+			return ids[index / idsPerRegion].get(index % idsPerRegion);
+		}
+
+		@Override
+		void read(final int from, final int to) {
+			final int length = (to - from) * numberOfDimensions;
+			if (coordinates.length < length) {
+				coordinates = new double[length];
+			}
+			offset = 0;
+
+			int count, destination = 0, region;
+			DoubleBuffer buffer;
+			for (int point = from; point < to; point += count) {
+				region = point / pointsPerRegion;
+				count = (int) Math.min(to - point, (long) (region + 1) * pointsPerRegion - point);
+				buffer = coordinateRegions[region];
+				((Buffer) buffer).position((point - region * pointsPerRegion) * numberOfDimensions);
+				buffer.get(coordinates, destination, count * numberOfDimensions);
+				destination += count * numberOfDimensions;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,37 @@
+package lessonz.collections.kdtree.split;
+
+/**
+ * A {@link CellSplitStrategy} is a {@link SplitStrategy} that also considers the cell of the bucket it divides: the
+ * region of space bounded by the planes which divided the buckets above it. A point lies within a cell if each of its
+ * coordinates is at least the cell's least coordinate in that dimension and less than its greatest, matching the rule
+ * a {@link SplittingPlane} uses to place points. A tree keeps track of the cell as it places each point only when its
+ * {@link SplitStrategy} is a {@link CellSplitStrategy}, and otherwise spares its insertions the cost.
+ */
+public interface CellSplitStrategy extends SplitStrategy {
+
+	/**
+	 * Chooses the {@link SplittingPlane} on which to divide the specified points, which lie within the specified
+	 * cell. As with {@link SplitStrategy#split(double[], int, int)}, implementations should place at least one point
+	 * on each side of the plane whenever the points do not all share the same coordinates, and will
+	 * <strong>not</strong> check their arguments.
+	 * 
+	 * @param coordinates
+	 *            the coordinates of the points, packed point after point so that those of the point at index i begin
+	 *            at i * numberOfDimensions. Values beyond the last point are ignored, and the array must not be
+	 *            modified.
+	 * @param size
+	 *            the number of points, at least one.
+	 * @param numberOfDimensions
+	 *            the number of dimensions of each point.
+	 * @param minCoordinates
+	 *            the least coordinates of the cell in each dimension, inclusive, negative infinity where no plane
+	 *            bounds the cell from below. The array must not be modified.
+	 * @param maxCoordinates
+	 *            the greatest coordinates of the cell in each dimension, exclusive, positive infinity where no plane
+	 *            bounds the cell from above. The array must not be modified.
+	 * @return the chosen {@link SplittingPlane}.
+	 */
+	SplittingPlane split(double[] coordinates, int size, int numberOfDimensions, double[] minCoordinates,
+			double[] maxCoordinates);
+
+}
@@ -0,0 +1,162 @@
+package lessonz.collections.kdtree.split;
+
+/**
+ * The {@link MedianPartitioner} divides ranges of points, packed point after point in one coordinate array, at the true
+ * median of their widest dimension, rearranging the points in place. The median is found by selection rather than
+ * sorting, so dividing a range takes time linear in its size. It does the dividing for the bulk builders of both
+ * {@link lessonz.collections.kdtree.bucketpr.BucketPRKDTree} and
+ * {@link lessonz.collections.kdtree.primitive.LongIdKDTree}, each of which keeps whatever identifies its points in an
+ * array parallel to the coordinates and swaps it in {@link #swapKeys(int, int)}.<br>
+ * <br>
+ * Ranges which do not overlap may be divided concurrently.
+ */
+public abstract class MedianPartitioner {
+
+	private final double[] coordinates;
+	private final int numberOfDimensions;
+
+	/**
+	 * @param coordinates
+	 *            the coordinates of the points, packed point after point so that those of the point at index i begin
+	 *            at i * numberOfDimensions. The array is rearranged along with the points.
+	 * @param numberOfDimensions
+	 *            the number of dimensions of each point.
+	 */
+	protected MedianPartitioner(final double[] coordinates, final int numberOfDimensions) {
+		this.coordinates = coordinates;
+		this.numberOfDimensions = numberOfDimensions;
+	}
+
+	/**
+	 * Moves every point whose coordinate in the plane's dimension is less than the plane's value ahead of those which
+	 * are not, matching the rule a {@link SplittingPlane} uses to place points.
+	 * 
+	 * @param from
+	 *            the index of the first point in the range, inclusive.
+	 * @param to
+	 *            the index of the last point in the range, exclusive.
+	 * @param splittingPlane
+	 *            the plane about which to partition the range.
+	 * @return the index of the first point not less than the plane's value.
+	 */
+	public final int partition(final int from, final int to, final SplittingPlane splittingPlane) {
+		final int dimensionIndex = splittingPlane.getDimensionIndex();
+		final double value = splittingPlane.getValue();
+		int split = from;
+		for (int i = from; i < to; i++) {
+			if (coordinate(i, dimensionIndex) < value) {
+				swap(i, split++);
+			}
+		}
+
+		return split;
+	}
+
+	/**
+	 * Chooses the plane dividing the range at the median of its widest dimension. Finding the median reorders the
+	 * range, but does not partition it; that is left to {@link #partition(int, int, SplittingPlane)}.
+	 * 
+	 * @param from
+	 *            the index of the first point in the range, inclusive.
+	 * @param to
+	 *            the index of the last point in the range, exclusive.
+	 * @return the chosen {@link SplittingPlane}, which leaves at least one point on each side, or null if every point
+	 *         in the range shares the same coordinates.
+	 */
+	public final SplittingPlane selectMedianPlane(final int from, final int to) {
+		final int splitDimensionIndex = SplitStrategies.widestDimension(coordinates, from, to, numberOfDimensions);
+
+		final int middle = (from + to) >>> 1;
+		select(from, to, middle, splitDimensionIndex);
+		double splitDimensionMedian = coordinate(middle, splitDimensionIndex);
+		final double minValue =
+				SplitStrategies.minimumCoordinate(coordinates, from, to, numberOfDimensions, splitDimensionIndex);
+		if (splitDimensionMedian <= minValue) {
+			/*
+			 * The median is also the minimum, so nothing lies strictly below it. Split just above it instead so that
+			 * both halves are populated.
+			 */
+			splitDimensionMedian =
+					SplitStrategies.nextGreaterCoordinate(coordinates, from, to, numberOfDimensions,
+							splitDimensionIndex, splitDimensionMedian);
+			if (splitDimensionMedian == Double.POSITIVE_INFINITY) {
+				/* Not even the widest dimension has any spread, so no split can separate the points. */
+				return null;
+			}
+		}
+
+		return new SplittingPlane(splitDimensionIndex, splitDimensionMedian);
+	}
+
+	/**
+	 * Swaps whatever identifies the points at the specified indexes, as their coordinates are swapped.
+	 */
+	protected abstract void swapKeys(int i, int j);
+
+	private double coordinate(final int index, final int dimensionIndex) {
+		return coordinates[index * numberOfDimensions + dimensionIndex];
+	}
+
+	/**
+	 * Rearranges the range so that the point at index k is the one that would be there were the range sorted by the
+	 * specified dimension, with no greater point before it and no lesser point after it.
+	 */
+	private void select(int from, int to, final int k, final int dimensionIndex) {
+		while (to - from > 1) {
+			final int middle = (from + to) >>> 1;
+			final int last = to - 1;
+			/* Median of three, which leaves the pivot at the middle index. */
+			if (coordinate(middle, dimensionIndex) < coordinate(from, dimensionIndex)) {
+				swap(middle, from);
+			}
+			if (coordinate(last, dimensionIndex) < coordinate(from, dimensionIndex)) {
+				swap(last, from);
+			}
+			if (coordinate(last, dimensionIndex) < coordinate(middle, dimensionIndex)) {
+				swap(last, middle);
+			}
+
+			final double pivot = coordinate(middle, dimensionIndex);
+			int i = from;
+			int j = last;
+			while (i <= j) {
+				while (coordinate(i, dimensionIndex) < pivot) {
+					i++;
+				}
+				while (coordinate(j, dimensionIndex) > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i++, j--);
+				}
+			}
+
+			if (k <= j) {
+				to = j + 1;
+			} else if (k >= i) {
+				from = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(final int i, final int j) {
+		if (i == j) {
+			return;
+		}
+
+		swapKeys(i, j);
+
+		/* Swapped a coordinate at a time rather than through a scratch array, which concurrent callers would share. */
+		final int iOffset = i * numberOfDimensions;
+		final int jOffset = j * numberOfDimensions;
+		double temp;
+		for (int d = 0; d < numberOfDimensions; d++) {
+			temp = coordinates[iOffset + d];
+			coordinates[iOffset + d] = coordinates[jOffset + d];
+			coordinates[jOffset + d] = temp;
+		}
+	}
+
+}
@@ -0,0 +1,37 @@
+package lessonz.collections.kdtree.split;
+
+/**
+ * The {@link MedianSplitStrategy} divides the dimension in which the points are most widely spread at the median of
+ * their coordinates in it, so the two halves hold as nearly as possible the same number of points however skewed the
+ * data. The median is selected by a {@link MedianPartitioner} among a copy of the bucket's coordinates in that
+ * dimension, in time linear in the bucket's size.
+ */
+public class MedianSplitStrategy implements SplitStrategy {
+
+	@Override
+	public SplittingPlane split(final double[] coordinates, final int size, final int numberOfDimensions) {
+		final int splitDimensionIndex = SplitStrategies.widestDimension(coordinates, 0, size, numberOfDimensions);
+
+		/* The bucket's coordinates must not be rearranged, so selection reorders a copy of the one dimension. */
+		final double[] values = new double[size];
+		for (int j = 0, offset = splitDimensionIndex; j < size; j++, offset += numberOfDimensions) {
+			values[j] = coordinates[offset];
+		}
+		final SplittingPlane medianPlane = new MedianPartitioner(values, 1) {
+
+			@Override
+			protected void swapKeys(final int i, final int j) {
+				/* The values are not parallel to anything else. */
+			}
+
+		}.selectMedianPlane(0, size);
+
+		if (medianPlane == null) {
+			/* Every point shares the same coordinates, so no plane can populate both halves. */
+			return new SplittingPlane(splitDimensionIndex, values[0]);
+		}
+
+		return new SplittingPlane(splitDimensionIndex, medianPlane.getValue());
+	}
+
+}
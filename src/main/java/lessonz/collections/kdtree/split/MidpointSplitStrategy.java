@@ -0,0 +1,21 @@
+package lessonz.collections.kdtree.split;
+
+/**
+ * The {@link MidpointSplitStrategy} divides the dimension in which the points are most widely spread at the midpoint
+ * of their range. It is cheap, but on skewed data the two halves may hold very different numbers of points.
+ */
+public class MidpointSplitStrategy implements SplitStrategy {
+
+	@Override
+	public SplittingPlane split(final double[] coordinates, final int size, final int numberOfDimensions) {
+		final int splitDimensionIndex = SplitStrategies.widestDimension(coordinates, 0, size, numberOfDimensions);
+		final double minValue =
+				SplitStrategies.minimumCoordinate(coordinates, 0, size, numberOfDimensions, splitDimensionIndex);
+		final double maxValue =
+				SplitStrategies.maximumCoordinate(coordinates, 0, size, numberOfDimensions, splitDimensionIndex);
+		final double splitValue = (maxValue - minValue) / 2.0 + minValue;
+
+		return new SplittingPlane(splitDimensionIndex, splitValue);
+	}
+
+}
@@ -0,0 +1,93 @@
+package lessonz.collections.kdtree.split;
+
+import java.util.Arrays;
+
+/**
+ * The {@link SlidingMidpointSplitStrategy} divides the bucket's cell, rather than the points within it, at the
+ * midpoint of its longest side, so that cells stay nearly as wide as they are long however the points are
+ * distributed. Where that plane would leave every point on one side, it slides to the nearest point instead, so that
+ * the empty part of the cell is split off whole and searches can skip it. A side of the cell that no plane bounds is
+ * taken to end at the outermost point. Of sides of nearly the same length, the one in which the points are most
+ * widely spread is divided, as in Maneewongvatana and Mount's sliding midpoint rule.
+ */
+public class SlidingMidpointSplitStrategy implements CellSplitStrategy {
+
+	/*
+	 * The fraction by which a side may be shorter than the longest and still be divided.
+	 */
+	private static final double SIDE_LENGTH_TOLERANCE = 0.001;
+
+	/**
+	 * Divides the specified points as though they lay in a cell no plane bounds, which is at the midpoint of their
+	 * range in the dimension in which they are most widely spread.
+	 */
+	@Override
+	public SplittingPlane split(final double[] coordinates, final int size, final int numberOfDimensions) {
+		final double[] minCoordinates = new double[numberOfDimensions];
+		final double[] maxCoordinates = new double[numberOfDimensions];
+		Arrays.fill(minCoordinates, Double.NEGATIVE_INFINITY);
+		Arrays.fill(maxCoordinates, Double.POSITIVE_INFINITY);
+
+		return split(coordinates, size, numberOfDimensions, minCoordinates, maxCoordinates);
+	}
+
+	@Override
+	public SplittingPlane split(final double[] coordinates, final int size, final int numberOfDimensions,
+			final double[] minCoordinates, final double[] maxCoordinates) {
+		final double[] minValues = new double[numberOfDimensions];
+		final double[] maxValues = new double[numberOfDimensions];
+		final double[] sideLengths = new double[numberOfDimensions];
+		double maxSideLength = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < numberOfDimensions; i++) {
+			minValues[i] = SplitStrategies.minimumCoordinate(coordinates, 0, size, numberOfDimensions, i);
+			maxValues[i] = SplitStrategies.maximumCoordinate(coordinates, 0, size, numberOfDimensions, i);
+			sideLengths[i] = sideMaximum(i, maxCoordinates, maxValues) - sideMinimum(i, minCoordinates, minValues);
+			/* A dimension in which the points don't differ can't divide them, however long the side. */
+			if (maxValues[i] > minValues[i] && sideLengths[i] > maxSideLength) {
+				maxSideLength = sideLengths[i];
+			}
+		}
+
+		int splitDimensionIndex = -1;
+		double maxSpread = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < numberOfDimensions; i++) {
+			if (maxValues[i] > minValues[i] && sideLengths[i] >= (1.0 - SIDE_LENGTH_TOLERANCE) * maxSideLength
+					&& maxValues[i] - minValues[i] > maxSpread) {
+				maxSpread = maxValues[i] - minValues[i];
+				splitDimensionIndex = i;
+			}
+		}
+		if (splitDimensionIndex < 0) {
+			/* Every point shares the same coordinates, so no plane can populate both halves. */
+			return new SplittingPlane(0, coordinates[0]);
+		}
+
+		final double minSide = sideMinimum(splitDimensionIndex, minCoordinates, minValues);
+		final double maxSide = sideMaximum(splitDimensionIndex, maxCoordinates, maxValues);
+		double splitValue = (maxSide - minSide) / 2.0 + minSide;
+		if (splitValue <= minValues[splitDimensionIndex]) {
+			/* Nothing lies below the midpoint, so slide up until the least points do. */
+			splitValue =
+					SplitStrategies.nextGreaterCoordinate(coordinates, 0, size, numberOfDimensions,
+							splitDimensionIndex, minValues[splitDimensionIndex]);
+		} else if (splitValue > maxValues[splitDimensionIndex]) {
+			/* Nothing lies above the midpoint, so slide down until the greatest points do. */
+			splitValue = maxValues[splitDimensionIndex];
+		}
+
+		return new SplittingPlane(splitDimensionIndex, splitValue);
+	}
+
+	private static double sideMaximum(final int dimensionIndex, final double[] maxCoordinates,
+			final double[] maxValues) {
+		return maxCoordinates[dimensionIndex] == Double.POSITIVE_INFINITY ? maxValues[dimensionIndex]
+				: maxCoordinates[dimensionIndex];
+	}
+
+	private static double sideMinimum(final int dimensionIndex, final double[] minCoordinates,
+			final double[] minValues) {
+		return minCoordinates[dimensionIndex] == Double.NEGATIVE_INFINITY ? minValues[dimensionIndex]
+				: minCoordinates[dimensionIndex];
+	}
+
+}
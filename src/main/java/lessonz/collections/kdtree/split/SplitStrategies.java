@@ -0,0 +1,89 @@
+package lessonz.collections.kdtree.split;
+
+/**
+ * Calculations over packed coordinates shared by the {@link SplitStrategy} implementations and the
+ * {@link MedianPartitioner}. Each considers the points from index from (inclusive) to index to (exclusive).
+ */
+final class SplitStrategies {
+
+	static double maximumCoordinate(final double[] coordinates, final int from, final int to,
+			final int numberOfDimensions, final int dimensionIndex) {
+		double maximum = Double.NEGATIVE_INFINITY;
+		final int end = to * numberOfDimensions;
+		for (int offset = from * numberOfDimensions + dimensionIndex; offset < end; offset += numberOfDimensions) {
+			if (coordinates[offset] > maximum) {
+				maximum = coordinates[offset];
+			}
+		}
+
+		return maximum;
+	}
+
+	static double minimumCoordinate(final double[] coordinates, final int from, final int to,
+			final int numberOfDimensions, final int dimensionIndex) {
+		double minimum = Double.POSITIVE_INFINITY;
+		final int end = to * numberOfDimensions;
+		for (int offset = from * numberOfDimensions + dimensionIndex; offset < end; offset += numberOfDimensions) {
+			if (coordinates[offset] < minimum) {
+				minimum = coordinates[offset];
+			}
+		}
+
+		return minimum;
+	}
+
+	/**
+	 * Finds the least coordinate in the specified dimension that is greater than the specified value.
+	 * 
+	 * @return the coordinate found, or positive infinity if there is none.
+	 */
+	static double nextGreaterCoordinate(final double[] coordinates, final int from, final int to,
+			final int numberOfDimensions, final int dimensionIndex, final double value) {
+		double nextGreater = Double.POSITIVE_INFINITY;
+		double coordinate;
+		final int end = to * numberOfDimensions;
+		for (int offset = from * numberOfDimensions + dimensionIndex; offset < end; offset += numberOfDimensions) {
+			coordinate = coordinates[offset];
+			if (coordinate > value && coordinate < nextGreater) {
+				nextGreater = coordinate;
+			}
+		}
+
+		return nextGreater;
+	}
+
+	/**
+	 * Finds the dimension in which the difference between the greatest and least coordinates is largest.
+	 */
+	static int widestDimension(final double[] coordinates, final int from, final int to, final int numberOfDimensions) {
+		int widestDimensionIndex = 0;
+		double maxSpread = Double.NEGATIVE_INFINITY;
+		double maxValue, minValue, value, spread;
+		final int end = to * numberOfDimensions;
+		for (int i = 0; i < numberOfDimensions; i++) {
+			maxValue = coordinates[from * numberOfDimensions + i];
+			minValue = maxValue;
+			for (int offset = (from + 1) * numberOfDimensions + i; offset < end; offset += numberOfDimensions) {
+				value = coordinates[offset];
+
+				if (value < minValue) {
+					minValue = value;
+				} else if (value > maxValue) {
+					maxValue = value;
+				}
+			}
+
+			spread = maxValue - minValue;
+			if (spread > maxSpread) {
+				maxSpread = spread;
+				widestDimensionIndex = i;
+			}
+		}
+
+		return widestDimensionIndex;
+	}
+
+	private SplitStrategies() {
+	}
+
+}
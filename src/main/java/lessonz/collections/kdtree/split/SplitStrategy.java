@@ -0,0 +1,25 @@
+package lessonz.collections.kdtree.split;
+
+/**
+ * A {@link SplitStrategy} decides where an overflowing bucket of points is divided in two.
+ */
+public interface SplitStrategy {
+
+	/**
+	 * Chooses the {@link SplittingPlane} on which to divide the specified points. Implementations should place at least
+	 * one point on each side of the plane whenever the points do not all share the same coordinates. In order to
+	 * provide the maximum performance possible implementations will <strong>not</strong> check their arguments.
+	 * 
+	 * @param coordinates
+	 *            the coordinates of the points, packed point after point so that those of the point at index i begin
+	 *            at i * numberOfDimensions. Values beyond the last point are ignored, and the array must not be
+	 *            modified.
+	 * @param size
+	 *            the number of points, at least one.
+	 * @param numberOfDimensions
+	 *            the number of dimensions of each point.
+	 * @return the chosen {@link SplittingPlane}.
+	 */
+	SplittingPlane split(double[] coordinates, int size, int numberOfDimensions);
+
+}
@@ -0,0 +1,34 @@
+package lessonz.collections.kdtree.split;
+
+/**
+ * A {@link SplittingPlane} is an axis-aligned plane dividing a region of k-dimensional space in two. A point whose
+ * coordinate in the plane's dimension is less than the plane's value lies on the left; every other point lies on the
+ * right.
+ */
+public final class SplittingPlane {
+
+	private final int dimensionIndex;
+	private final double value;
+
+	/**
+	 * Creates a {@link SplittingPlane} perpendicular to the specified dimension.
+	 * 
+	 * @param dimensionIndex
+	 *            the index of the dimension the plane divides.
+	 * @param value
+	 *            the coordinate at which the plane lies in that dimension.
+	 */
+	public SplittingPlane(final int dimensionIndex, final double value) {
+		this.dimensionIndex = dimensionIndex;
+		this.value = value;
+	}
+
+	public int getDimensionIndex() {
+		return dimensionIndex;
+	}
+
+	public double getValue() {
+		return value;
+	}
+
+}
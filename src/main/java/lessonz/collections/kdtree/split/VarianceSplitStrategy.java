@@ -0,0 +1,46 @@
+package lessonz.collections.kdtree.split;
+
+/**
+ * The {@link VarianceSplitStrategy} divides the dimension in which the points' coordinates have the greatest variance
+ * at their mean. Unlike the range used by the {@link MidpointSplitStrategy}, the variance is not dominated by a few
+ * outliers, so clustered data is divided where most of its points actually lie.
+ */
+public class VarianceSplitStrategy implements SplitStrategy {
+
+	@Override
+	public SplittingPlane split(final double[] coordinates, final int size, final int numberOfDimensions) {
+		int splitDimensionIndex = 0;
+		double splitValue = coordinates[0];
+		double maxVariance = Double.NEGATIVE_INFINITY;
+		double mean, sumOfSquares, delta, variance;
+		for (int i = 0; i < numberOfDimensions; i++) {
+			/* Welford's method, which does not lose precision when the mean is large relative to the spread. */
+			mean = 0.0;
+			sumOfSquares = 0.0;
+			for (int j = 0, offset = i; j < size; j++, offset += numberOfDimensions) {
+				delta = coordinates[offset] - mean;
+				mean += delta / (j + 1);
+				sumOfSquares += delta * (coordinates[offset] - mean);
+			}
+
+			variance = sumOfSquares / size;
+			if (variance > maxVariance) {
+				maxVariance = variance;
+				splitDimensionIndex = i;
+				splitValue = mean;
+			}
+		}
+
+		/* Rounding can leave the mean at the least coordinate, which would leave the left side empty. */
+		final double minValue =
+				SplitStrategies.minimumCoordinate(coordinates, 0, size, numberOfDimensions, splitDimensionIndex);
+		if (splitValue <= minValue) {
+			splitValue =
+					SplitStrategies.nextGreaterCoordinate(coordinates, 0, size, numberOfDimensions, splitDimensionIndex,
+							minValue);
+		}
+
+		return new SplittingPlane(splitDimensionIndex, splitValue);
+	}
+
+}
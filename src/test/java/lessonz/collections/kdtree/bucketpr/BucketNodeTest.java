@@ -1,10 +1,12 @@
 package lessonz.collections.kdtree.bucketpr;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -52,7 +54,7 @@ public class BucketNodeTest {
 
 		BucketPRKDTreeNode<KDPoint> node;
 		for (final KDPoint point : TEST_ELEMENTS) {
-			node = sut.add(point);
+			node = sut.add(point, null, null);
 			assertEquals(i++, node.size());
 		}
 	}
@@ -61,13 +63,74 @@ public class BucketNodeTest {
 	public void testAddWhenBucketOverflowsButCantCreateSplittingPlane() {
 		sut = new BucketNode<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE_FOR_OVERFLOW);
 
-		BucketPRKDTreeNode<KDPoint> node;
+		BucketPRKDTreeNode<KDPoint> node = sut;
 		int i = 0;
 		for (; i <= TEST_BUCKET_SIZE_FOR_OVERFLOW; i++) {
-			assertEquals(i, sut.size());
-			node = sut.add(TEST_ELEMENT_1);
+			assertEquals(i, node.size());
+			node = node.add(TEST_ELEMENT_1, null, null);
+		}
+		assertEquals(i, node.size());
+		assertTrue(node instanceof CoLocatedNode);
+	}
+
+	@Test
+	public void testGetCoordinates() {
+		addTestElements();
+		final double[] coordinates = sut.getCoordinates();
+		for (int i = 0; i < TEST_ELEMENTS.size(); i++) {
+			assertArrayEquals(TEST_ELEMENTS.get(i).getCoordinates(), Arrays.copyOfRange(coordinates, i
+					* TEST_NUMBER_OF_DIMENSIONS, (i + 1) * TEST_NUMBER_OF_DIMENSIONS), 0.0);
+		}
+	}
+
+	@Test
+	public void testGetCoordinatesWhenBucketGrowsBeyondBucketSize() {
+		sut = new BucketNode<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE_FOR_OVERFLOW);
+		for (int i = 0; i <= TEST_BUCKET_SIZE_FOR_OVERFLOW * 2; i++) {
+			sut.add(TEST_ELEMENT_3, null, null);
+		}
+
+		final double[] coordinates = sut.getCoordinates();
+		for (int i = 0; i < sut.size(); i++) {
+			assertArrayEquals(TEST_ELEMENT_3.getCoordinates(), Arrays.copyOfRange(coordinates, i
+					* TEST_NUMBER_OF_DIMENSIONS, (i + 1) * TEST_NUMBER_OF_DIMENSIONS), 0.0);
 		}
-		assertEquals(i, sut.size());
+	}
+
+	@Test
+	public void testIteratorRemoveKeepsCoordinatesInStep() {
+		addTestElements();
+		final Iterator<KDPoint> iterator = sut.iterator();
+		iterator.next();
+		iterator.next();
+		iterator.remove();
+
+		assertEquals(TEST_ELEMENTS.size() - 1, sut.size());
+		assertEquals(TEST_ELEMENT_3, sut.getElements().get(1));
+		assertArrayEquals(TEST_ELEMENT_3.getCoordinates(), Arrays.copyOfRange(sut.getCoordinates(),
+				TEST_NUMBER_OF_DIMENSIONS, 2 * TEST_NUMBER_OF_DIMENSIONS), 0.0);
+		assertEquals(TEST_ELEMENT_3, iterator.next());
+	}
+
+	@Test
+	public void testRemove() {
+		addTestElements();
+		assertTrue(sut.remove(TEST_ELEMENT_1));
+		assertFalse(sut.remove(TEST_ELEMENT_1));
+		assertEquals(TEST_ELEMENTS.size() - 1, sut.size());
+		assertArrayEquals(TEST_ELEMENT_2.getCoordinates(), Arrays.copyOfRange(sut.getCoordinates(), 0,
+				TEST_NUMBER_OF_DIMENSIONS), 0.0);
+	}
+
+	@Test
+	public void testReplace() {
+		addTestElements();
+		final KDPoint replacement = new KDPoint(new double[] { 5.0, 5.0, 5.0 }, 5);
+		assertTrue(sut.replace(TEST_ELEMENT_2, replacement));
+		assertFalse(sut.replace(TEST_ELEMENT_2, replacement));
+		assertEquals(replacement, sut.getElements().get(1));
+		assertArrayEquals(replacement.getCoordinates(), Arrays.copyOfRange(sut.getCoordinates(),
+				TEST_NUMBER_OF_DIMENSIONS, 2 * TEST_NUMBER_OF_DIMENSIONS), 0.0);
 	}
 
 	@Test
@@ -85,7 +148,7 @@ public class BucketNodeTest {
 
 	private void addTestElements() {
 		for (final KDPoint point : TEST_ELEMENTS) {
-			sut.add(point);
+			sut.add(point, null, null);
 		}
 	}
 
@@ -0,0 +1,104 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.distance.ManhattanDistanceFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link BucketPRKDBatchKNearestNeighborSearcher}
+ */
+public class BucketPRKDBatchKNearestNeighborSearcherTest {
+
+	private static final int NUMBER_OF_ELEMENTS = 5000;
+	private static final int NUMBER_OF_TARGETS = 1000;
+	private static final int TEST_BUCKET_SIZE = 4;
+	private static final int TEST_K = 5;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+
+	private double[][] targets;
+	private BucketPRKDTree<KDPoint> tree;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		final Random random = new Random(13);
+		tree = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			tree.add(new KDPoint(new double[] { random.nextDouble(), random.nextDouble(), random.nextDouble() }, i));
+		}
+
+		targets = new double[NUMBER_OF_TARGETS][];
+		for (int i = 0; i < NUMBER_OF_TARGETS; i++) {
+			targets[i] = new double[] { random.nextDouble(), random.nextDouble(), random.nextDouble() };
+		}
+	}
+
+	@Test
+	public void testGetKNearestNeighbors() {
+		final BucketPRKDBatchKNearestNeighborSearcher<KDPoint> sut =
+				new BucketPRKDBatchKNearestNeighborSearcher<>(tree, TEST_K, targets,
+						BucketPRKDKNearestNeighborSearcher.getDefaultDistanceFunction());
+
+		assertMatchesSingleQueries(sut.getKNearestNeighbors());
+	}
+
+	@Test
+	public void testGetKNearestNeighborsInParallel() {
+		final BucketPRKDBatchKNearestNeighborSearcher<KDPoint> sut =
+				new BucketPRKDBatchKNearestNeighborSearcher<>(tree, TEST_K, targets,
+						BucketPRKDKNearestNeighborSearcher.getDefaultDistanceFunction());
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertMatchesSingleQueries(sut.getKNearestNeighbors(pool));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testGetKNearestNeighborsWithDistanceFunction() {
+		final ManhattanDistanceFunction distanceFunction = new ManhattanDistanceFunction();
+		final BucketPRKDBatchKNearestNeighborSearcher<KDPoint> sut =
+				new BucketPRKDBatchKNearestNeighborSearcher<>(tree, TEST_K, targets, distanceFunction);
+
+		final List<List<KDPoint>> results = sut.getKNearestNeighbors();
+		assertEquals(NUMBER_OF_TARGETS, results.size());
+		for (int i = 0; i < NUMBER_OF_TARGETS; i++) {
+			final List<KDPoint> expected = tree.getKNearestNeighbors(TEST_K, targets[i], distanceFunction);
+			assertEquals(expected.size(), results.get(i).size());
+			assertTrue(results.get(i).containsAll(expected));
+		}
+	}
+
+	@Test
+	public void testGetKNearestNeighborsWithNoTargets() {
+		final BucketPRKDBatchKNearestNeighborSearcher<KDPoint> sut =
+				new BucketPRKDBatchKNearestNeighborSearcher<>(tree, TEST_K, new double[0][],
+						BucketPRKDKNearestNeighborSearcher.getDefaultDistanceFunction());
+
+		assertTrue(sut.getKNearestNeighbors().isEmpty());
+	}
+
+	private void assertMatchesSingleQueries(final List<List<KDPoint>> results) {
+		assertEquals(NUMBER_OF_TARGETS, results.size());
+		for (int i = 0; i < NUMBER_OF_TARGETS; i++) {
+			final List<KDPoint> expected = new ArrayList<>(tree.getKNearestNeighbors(TEST_K, targets[i]));
+			assertEquals(expected.size(), results.get(i).size());
+			assertTrue(results.get(i).containsAll(expected));
+		}
+	}
+
+}
@@ -5,11 +5,19 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointFilter;
+import lessonz.collections.kdtree.distance.ChebyshevDistanceFunction;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.ManhattanDistanceFunction;
+import lessonz.collections.kdtree.distance.PackedDistanceFunction;
+import lessonz.collections.kdtree.distance.SquaredEuclideanDistanceFunction;
 
 import org.junit.After;
 import org.junit.Before;
@@ -17,7 +25,18 @@ import org.junit.Test;
 
 public class BucketPRKDKNearestNeighborSearcherTest {
 
+	private static final int HIGH_DIMENSIONAL_K = 10;
+	private static final int HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS = 128;
+	private static final int HIGH_DIMENSIONAL_NUMBER_OF_ELEMENTS = 2000;
 	private static final int TEST_BUCKET_SIZE = 2;
+	private static final KDPointFilter<KDPoint> TEST_EVEN_FILTER = new KDPointFilter<KDPoint>() {
+
+		@Override
+		public boolean accept(final KDPoint element) {
+			return (Integer) element.getData() % 2 == 0;
+		}
+
+	};
 	private static final KDPoint TEST_ELEMENT_1 = new KDPoint(new double[] { 0.0, 0.0, 0.0 }, 1);
 	private static final KDPoint TEST_ELEMENT_2 = new KDPoint(new double[] { 1.0, 1.0, 1.0 }, 2);
 	private static final KDPoint TEST_ELEMENT_3 = new KDPoint(new double[] { 2.0, 2.0, 2.0 }, 3);
@@ -93,6 +112,182 @@ public class BucketPRKDKNearestNeighborSearcherTest {
 		assertTrue(points.isEmpty());
 	}
 
+	@Test
+	public void testGetKNearestNeighborsDoesNotCopyElementCoordinates() {
+		tree = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		for (int i = 0; i < 100; i++) {
+			tree.add(new CopyCountingKDPoint(new double[] { i, -i, i % 7 }));
+		}
+		sut = new BucketPRKDKNearestNeighborSearcher<>(tree);
+
+		CopyCountingKDPoint.copies = 0;
+		final List<KDPoint> nearestNeighbors = sut.getKNearestNeighbors(10, TEST_ELEMENT_1.getCoordinates());
+		assertEquals(10, nearestNeighbors.size());
+		assertEquals(0, CopyCountingKDPoint.copies);
+	}
+
+	@Test
+	public void testGetKNearestNeighborsWithFilter() {
+		tree.add(TEST_ELEMENT_4);
+		sut.setFilter(TEST_EVEN_FILTER);
+
+		List<KDPoint> nearestNeighbors = sut.getKNearestNeighbors(1, TEST_ELEMENT_1.getCoordinates());
+		assertEquals(1, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_2));
+
+		nearestNeighbors = sut.getKNearestNeighbors(4, TEST_ELEMENT_1.getCoordinates());
+		assertEquals(2, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_2));
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_4));
+
+		sut.setFilter(null);
+		nearestNeighbors = sut.getKNearestNeighbors(4, TEST_ELEMENT_1.getCoordinates());
+		assertEquals(4, nearestNeighbors.size());
+	}
+
+	@Test
+	public void testGetKNearestNeighborsWithFilterInCoLocatedNode() {
+		tree = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		for (int i = 0; i < 10; i++) {
+			tree.add(new KDPoint(TEST_ELEMENT_2.getCoordinates(), i));
+		}
+		tree.add(new KDPoint(TEST_ELEMENT_3.getCoordinates(), 10));
+		sut = new BucketPRKDKNearestNeighborSearcher<>(tree);
+		sut.setFilter(TEST_EVEN_FILTER);
+
+		final List<KDPoint> nearestNeighbors = sut.getKNearestNeighbors(6, TEST_ELEMENT_1.getCoordinates());
+		assertEquals(6, nearestNeighbors.size());
+		assertEquals(6, new HashSet<>(nearestNeighbors).size());
+		for (final KDPoint kdPoint : nearestNeighbors) {
+			assertTrue(TEST_EVEN_FILTER.accept(kdPoint));
+		}
+	}
+
+	/**
+	 * In many dimensions most elements are abandoned before they are fully measured, which must not change the
+	 * neighbors found.
+	 */
+	@Test
+	public void testGetKNearestNeighborsInManyDimensions() {
+		final Random random = new Random(61);
+		final List<KDPoint> points = new ArrayList<>();
+		final BucketPRKDTree<KDPoint> highDimensionalTree =
+				new BucketPRKDTree<>(HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE * 4);
+		for (int i = 0; i < HIGH_DIMENSIONAL_NUMBER_OF_ELEMENTS; i++) {
+			final double[] coordinates = new double[HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS];
+			for (int j = 0; j < coordinates.length; j++) {
+				coordinates[j] = random.nextDouble();
+			}
+			final KDPoint point = new KDPoint(coordinates, i);
+			points.add(point);
+			highDimensionalTree.add(point);
+		}
+		final double[] target = points.get(0).getCoordinates();
+		target[0] += 0.5;
+
+		sut = new BucketPRKDKNearestNeighborSearcher<>(highDimensionalTree);
+		for (final DistanceFunction distanceFunction : new DistanceFunction[] { new SquaredEuclideanDistanceFunction(),
+				new ManhattanDistanceFunction(), new ChebyshevDistanceFunction() }) {
+			final double[] expectedDistances = new double[points.size()];
+			for (int i = 0; i < points.size(); i++) {
+				expectedDistances[i] = distanceFunction.distance(target, points.get(i).getCoordinates());
+			}
+			Arrays.sort(expectedDistances);
+
+			sut.setDistanceFunction(distanceFunction);
+			final List<KDPoint> nearestNeighbors = sut.getKNearestNeighbors(HIGH_DIMENSIONAL_K, target);
+			final double[] distances = new double[nearestNeighbors.size()];
+			for (int i = 0; i < distances.length; i++) {
+				distances[i] = distanceFunction.distance(target, nearestNeighbors.get(i).getCoordinates());
+			}
+			Arrays.sort(distances);
+			assertArrayEquals(Arrays.copyOf(expectedDistances, HIGH_DIMENSIONAL_K), distances, 0.0);
+		}
+	}
+
+	@Test
+	public void testGetKNearestNeighborsReusedWithDifferentK() {
+		tree.add(TEST_ELEMENT_4);
+
+		List<KDPoint> nearestNeighbors = sut.getKNearestNeighbors(4, TEST_ELEMENT_4.getCoordinates());
+		assertEquals(4, nearestNeighbors.size());
+
+		nearestNeighbors = sut.getKNearestNeighbors(1, TEST_ELEMENT_3.getCoordinates());
+		assertEquals(1, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_3));
+
+		nearestNeighbors = sut.getKNearestNeighbors(1, TEST_ELEMENT_4.getCoordinates());
+		assertEquals(1, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_4));
+	}
+
+	@Test
+	public void testGetNearestNeighborWithChebyshevDistanceFunction() {
+		tree.add(TEST_ELEMENT_4);
+		sut.setDistanceFunction(new ChebyshevDistanceFunction());
+
+		/* Squared Euclidean distance would find the fourth element nearest instead. */
+		List<KDPoint> nearestNeighbors = sut.getKNearestNeighbors(1, new double[] { -1.5, 0.0, -1.9 });
+		assertEquals(1, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_1));
+
+		nearestNeighbors = sut.getKNearestNeighbors(2, TEST_ELEMENT_3.getCoordinates());
+		assertEquals(2, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_2));
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_3));
+	}
+
+	@Test
+	public void testGetNearestNeighborWithPackedDistanceFunction() {
+		tree.add(TEST_ELEMENT_4);
+		final PackedDistanceFunction squaredEuclideanDistanceFunction = new SquaredEuclideanDistanceFunction();
+		sut.setDistanceFunction(new PackedDistanceFunction() {
+
+			@Override
+			public double distance(final double[] coordinateSet1, final double[] coordinateSet2) {
+				return squaredEuclideanDistanceFunction.distance(coordinateSet1, coordinateSet2);
+			}
+
+			@Override
+			public double distance(final double[] coordinates, final double[] packedCoordinates, final int offset) {
+				return squaredEuclideanDistanceFunction.distance(coordinates, packedCoordinates, offset);
+			}
+
+		});
+
+		List<KDPoint> nearestNeighbors = sut.getKNearestNeighbors(1, TEST_ELEMENT_4.getCoordinates());
+		assertEquals(1, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_4));
+
+		nearestNeighbors = sut.getKNearestNeighbors(2, TEST_ELEMENT_3.getCoordinates());
+		assertEquals(2, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_2));
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_3));
+	}
+
+	@Test
+	public void testGetNearestNeighborWithUnpackedDistanceFunction() {
+		tree.add(TEST_ELEMENT_4);
+		final DistanceFunction squaredEuclideanDistanceFunction = new SquaredEuclideanDistanceFunction();
+		sut.setDistanceFunction(new DistanceFunction() {
+
+			@Override
+			public double distance(final double[] coordinateSet1, final double[] coordinateSet2) {
+				return squaredEuclideanDistanceFunction.distance(coordinateSet1, coordinateSet2);
+			}
+
+		});
+
+		List<KDPoint> nearestNeighbors = sut.getKNearestNeighbors(1, TEST_ELEMENT_4.getCoordinates());
+		assertEquals(1, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_4));
+
+		nearestNeighbors = sut.getKNearestNeighbors(2, TEST_ELEMENT_3.getCoordinates());
+		assertEquals(2, nearestNeighbors.size());
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_2));
+		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_3));
+	}
+
 	@Test
 	public void testGetNearestNeighborReturnsCorrectNeighbor() {
 		tree.add(TEST_ELEMENT_4);
@@ -120,4 +315,23 @@ public class BucketPRKDKNearestNeighborSearcherTest {
 		assertTrue(nearestNeighbors.contains(TEST_ELEMENT_3));
 	}
 
+	/**
+	 * Counts every defensive copy made through {@link KDPoint#getCoordinates()}.
+	 */
+	private static class CopyCountingKDPoint extends KDPoint<Object> {
+
+		private static int copies;
+
+		CopyCountingKDPoint(final double[] coordinates) {
+			super(coordinates, null);
+		}
+
+		@Override
+		public double[] getCoordinates() {
+			copies++;
+			return super.getCoordinates();
+		}
+
+	}
+
 }
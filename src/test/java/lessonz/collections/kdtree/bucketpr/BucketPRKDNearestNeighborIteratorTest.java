@@ -0,0 +1,159 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.ManhattanDistanceFunction;
+import lessonz.collections.kdtree.distance.SquaredEuclideanDistanceFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link BucketPRKDNearestNeighborIterator}
+ */
+public class BucketPRKDNearestNeighborIteratorTest {
+
+	private static final int NUMBER_OF_CO_LOCATED_ELEMENTS = 50;
+	private static final int NUMBER_OF_ELEMENTS = 5000;
+	private static final int NUMBER_OF_QUERIES = 20;
+	private static final int TEST_BUCKET_SIZE = 4;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+
+	private List<KDPoint> points;
+	private Random random;
+	private BucketPRKDTree<KDPoint> tree;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		random = new Random(41);
+		points = new ArrayList<>();
+		tree = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(), i);
+			points.add(point);
+			tree.add(point);
+		}
+	}
+
+	@Test
+	public void testEmptyTree() {
+		final Iterator<KDPoint> sut =
+				new BucketPRKDNearestNeighborIterator<>(new BucketPRKDTree<KDPoint>(TEST_NUMBER_OF_DIMENSIONS),
+						randomCoordinates(), new SquaredEuclideanDistanceFunction());
+
+		assertFalse(sut.hasNext());
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void testNextWhenExhausted() {
+		final Iterator<KDPoint> sut = new BucketPRKDNearestNeighborIterator<>(tree, randomCoordinates(),
+				new SquaredEuclideanDistanceFunction());
+		while (sut.hasNext()) {
+			sut.next();
+		}
+
+		sut.next();
+	}
+
+	@Test
+	public void testOrder() {
+		assertAscendingOrder(new SquaredEuclideanDistanceFunction());
+	}
+
+	@Test
+	public void testOrderWithCoLocatedElements() {
+		final double[] coordinates = points.get(0).getCoordinates();
+		for (int i = 0; i < NUMBER_OF_CO_LOCATED_ELEMENTS; i++) {
+			final KDPoint point = new KDPoint(coordinates, -i);
+			points.add(point);
+			tree.add(point);
+		}
+
+		assertAscendingOrder(new SquaredEuclideanDistanceFunction());
+	}
+
+	@Test
+	public void testOrderWithManhattanDistanceFunction() {
+		assertAscendingOrder(new ManhattanDistanceFunction());
+	}
+
+	@Test
+	public void testOrderWithUnpackedDistanceFunction() {
+		final DistanceFunction squaredEuclideanDistanceFunction = new SquaredEuclideanDistanceFunction();
+		assertAscendingOrder(new DistanceFunction() {
+
+			@Override
+			public double distance(final double[] coordinateSet1, final double[] coordinateSet2) {
+				return squaredEuclideanDistanceFunction.distance(coordinateSet1, coordinateSet2);
+			}
+
+		});
+	}
+
+	@Test
+	public void testPrefixMatchesKNearestNeighbors() {
+		final int k = 10;
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			final double[] target = randomCoordinates();
+			final Iterator<KDPoint> sut =
+					new BucketPRKDNearestNeighborIterator<>(tree, target, new SquaredEuclideanDistanceFunction());
+			final Set<KDPoint> prefix = new HashSet<>();
+			for (int j = 0; j < k; j++) {
+				prefix.add(sut.next());
+			}
+
+			assertEquals(new HashSet<>(tree.getKNearestNeighbors(k, target)), prefix);
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRemove() {
+		final Iterator<KDPoint> sut = new BucketPRKDNearestNeighborIterator<>(tree, randomCoordinates(),
+				new SquaredEuclideanDistanceFunction());
+		sut.next();
+
+		sut.remove();
+	}
+
+	private void assertAscendingOrder(final DistanceFunction distanceFunction) {
+		final double[] target = randomCoordinates();
+		final Iterator<KDPoint> sut = new BucketPRKDNearestNeighborIterator<>(tree, target, distanceFunction);
+
+		final Set<KDPoint> found = new HashSet<>();
+		double previousDistance = Double.NEGATIVE_INFINITY;
+		while (sut.hasNext()) {
+			final KDPoint point = sut.next();
+			final double distance = distanceFunction.distance(target, point.getCoordinates());
+			assertTrue(distance >= previousDistance);
+			assertTrue(found.add(point));
+			previousDistance = distance;
+		}
+
+		assertEquals(points.size(), found.size());
+	}
+
+	private double[] randomCoordinates() {
+		final double[] coordinates = new double[TEST_NUMBER_OF_DIMENSIONS];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		return coordinates;
+	}
+
+}
@@ -0,0 +1,205 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointVisitor;
+import lessonz.collections.kdtree.distance.ChebyshevDistanceFunction;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.ManhattanDistanceFunction;
+import lessonz.collections.kdtree.distance.SquaredEuclideanDistanceFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link BucketPRKDRadiusSearcher}
+ */
+public class BucketPRKDRadiusSearcherTest {
+
+	private static final int HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS = 128;
+	private static final int NUMBER_OF_ELEMENTS = 5000;
+	private static final int NUMBER_OF_QUERIES = 100;
+	private static final int STOPPING_NUMBER_OF_VISITS = 5;
+	private static final int TEST_BUCKET_SIZE = 4;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+
+	private List<KDPoint> points;
+	private Random random;
+	private BucketPRKDTree<KDPoint> tree;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		random = new Random(29);
+		points = new ArrayList<>();
+		tree = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(), i);
+			points.add(point);
+			tree.add(point);
+		}
+	}
+
+	@Test
+	public void testCount() {
+		final DistanceFunction distanceFunction = new SquaredEuclideanDistanceFunction();
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			final double[] target = randomCoordinates();
+			final double radius = random.nextDouble() * 0.1;
+			assertEquals(bruteForce(radius, target, distanceFunction).size(), new BucketPRKDRadiusSearcher<>(tree,
+					radius, target, distanceFunction).count());
+		}
+	}
+
+	@Test
+	public void testSearch() {
+		assertFound(new SquaredEuclideanDistanceFunction());
+	}
+
+	/**
+	 * In many dimensions elements beyond the radius are abandoned before they are fully measured, which must not change
+	 * the elements found.
+	 */
+	@Test
+	public void testSearchInManyDimensions() {
+		points = new ArrayList<>();
+		tree = new BucketPRKDTree<>(HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS), i);
+			points.add(point);
+			tree.add(point);
+		}
+
+		for (final DistanceFunction distanceFunction : new DistanceFunction[] { new SquaredEuclideanDistanceFunction(),
+				new ManhattanDistanceFunction(), new ChebyshevDistanceFunction() }) {
+			final double[] target = randomCoordinates(HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS);
+			/* A radius reaching the tenth nearest element, which must itself be found. */
+			final double[] distances = new double[NUMBER_OF_ELEMENTS];
+			for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+				distances[i] = distanceFunction.distance(target, points.get(i).getCoordinates());
+			}
+			Arrays.sort(distances);
+			final double radius = distances[9];
+
+			final Set<KDPoint> expected = bruteForce(radius, target, distanceFunction);
+			final List<KDPoint> found = search(radius, target, distanceFunction);
+			assertTrue(expected.size() >= 10);
+			assertEquals(expected.size(), found.size());
+			assertTrue(expected.containsAll(found));
+		}
+	}
+
+	@Test
+	public void testSearchStopsWhenTheVisitorSaysSo() {
+		final DistanceFunction distanceFunction = new SquaredEuclideanDistanceFunction();
+		final double[] target = randomCoordinates();
+		final double radius = 0.1;
+		final Set<KDPoint> expected = bruteForce(radius, target, distanceFunction);
+		assertTrue(expected.size() > STOPPING_NUMBER_OF_VISITS);
+
+		final List<KDPoint> found = new ArrayList<>();
+		new BucketPRKDRadiusSearcher<>(tree, radius, target, distanceFunction).search(new KDPointVisitor<KDPoint>() {
+
+			@Override
+			public boolean visit(final KDPoint element) {
+				found.add(element);
+				return found.size() < STOPPING_NUMBER_OF_VISITS;
+			}
+
+		});
+
+		assertEquals(STOPPING_NUMBER_OF_VISITS, found.size());
+		assertTrue(expected.containsAll(found));
+	}
+
+	@Test
+	public void testSearchIncludesElementsOnTheRadius() {
+		final DistanceFunction distanceFunction = new ManhattanDistanceFunction();
+		final KDPoint point = points.get(0);
+		final double[] target = randomCoordinates();
+		final double radius = distanceFunction.distance(target, point.getCoordinates());
+
+		final List<KDPoint> found = search(radius, target, distanceFunction);
+		assertTrue(found.contains(point));
+	}
+
+	@Test
+	public void testSearchWithManhattanDistanceFunction() {
+		assertFound(new ManhattanDistanceFunction());
+	}
+
+	@Test
+	public void testSearchWithUnpackedDistanceFunction() {
+		final DistanceFunction squaredEuclideanDistanceFunction = new SquaredEuclideanDistanceFunction();
+		assertFound(new DistanceFunction() {
+
+			@Override
+			public double distance(final double[] coordinateSet1, final double[] coordinateSet2) {
+				return squaredEuclideanDistanceFunction.distance(coordinateSet1, coordinateSet2);
+			}
+
+		});
+	}
+
+	private void assertFound(final DistanceFunction distanceFunction) {
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			final double[] target = randomCoordinates();
+			final double radius = random.nextDouble() * 0.2;
+			final Set<KDPoint> expected = bruteForce(radius, target, distanceFunction);
+			final List<KDPoint> found = search(radius, target, distanceFunction);
+			assertEquals(expected.size(), found.size());
+			assertTrue(expected.containsAll(found));
+		}
+	}
+
+	private Set<KDPoint> bruteForce(final double radius, final double[] target,
+			final DistanceFunction distanceFunction) {
+		final Set<KDPoint> expected = new HashSet<>();
+		for (final KDPoint point : points) {
+			if (distanceFunction.distance(target, point.getCoordinates()) <= radius) {
+				expected.add(point);
+			}
+		}
+
+		return expected;
+	}
+
+	private double[] randomCoordinates() {
+		return randomCoordinates(TEST_NUMBER_OF_DIMENSIONS);
+	}
+
+	private double[] randomCoordinates(final int numberOfDimensions) {
+		final double[] coordinates = new double[numberOfDimensions];
+		for (int i = 0; i < numberOfDimensions; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		return coordinates;
+	}
+
+	private List<KDPoint> search(final double radius, final double[] target, final DistanceFunction distanceFunction) {
+		final List<KDPoint> found = new ArrayList<>();
+		new BucketPRKDRadiusSearcher<>(tree, radius, target, distanceFunction).search(new KDPointVisitor<KDPoint>() {
+
+			@Override
+			public boolean visit(final KDPoint element) {
+				return found.add(element);
+			}
+
+		});
+
+		return found;
+	}
+
+}
@@ -0,0 +1,135 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointVisitor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link BucketPRKDRangeSearcher}
+ */
+public class BucketPRKDRangeSearcherTest {
+
+	private static final int NUMBER_OF_ELEMENTS = 5000;
+	private static final int NUMBER_OF_QUERIES = 200;
+	private static final int STOPPING_NUMBER_OF_VISITS = 5;
+	private static final int TEST_BUCKET_SIZE = 4;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+
+	private static boolean isInside(final KDPoint point, final double[] min, final double[] max) {
+		for (int i = 0; i < min.length; i++) {
+			if (point.getCoordinate(i) < min[i] || point.getCoordinate(i) > max[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private List<KDPoint> points;
+	private Random random;
+	private BucketPRKDTree<KDPoint> tree;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		random = new Random(23);
+		points = new ArrayList<>();
+		tree = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			final KDPoint point =
+					new KDPoint(new double[] { random.nextDouble(), random.nextDouble(), random.nextInt(10) }, i);
+			points.add(point);
+			tree.add(point);
+		}
+	}
+
+	@Test
+	public void testSearch() {
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			final double[] min = new double[TEST_NUMBER_OF_DIMENSIONS];
+			final double[] max = new double[TEST_NUMBER_OF_DIMENSIONS];
+			for (int j = 0; j < TEST_NUMBER_OF_DIMENSIONS; j++) {
+				final double a = random.nextDouble() * (j == 2 ? 10.0 : 1.0);
+				final double b = random.nextDouble() * (j == 2 ? 10.0 : 1.0);
+				min[j] = Math.min(a, b);
+				max[j] = Math.max(a, b);
+			}
+			/* Whole-number bounds exercise the inclusive edges. */
+			min[2] = Math.floor(min[2]);
+			max[2] = Math.floor(max[2]);
+
+			assertFound(min, max);
+		}
+	}
+
+	@Test
+	public void testSearchEverything() {
+		assertFound(new double[] { Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY },
+				new double[] { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY });
+	}
+
+	@Test
+	public void testSearchNothing() {
+		assertFound(new double[] { 2.0, 2.0, 2.0 }, new double[] { 3.0, 3.0, 3.0 });
+		assertFound(new double[] { 0.5, 0.5, 5.0 }, new double[] { 0.4, 0.6, 6.0 });
+	}
+
+	@Test
+	public void testSearchStopsWhenTheVisitorSaysSo() {
+		/* A box holding whole subtrees, so that the search also stops partway through one visited without tests. */
+		final double[] min = new double[] { 0.0, 0.0, 3.0 };
+		final double[] max = new double[] { 1.0, 1.0, 6.0 };
+
+		final List<KDPoint> found = new ArrayList<>();
+		new BucketPRKDRangeSearcher<>(tree, min, max).search(new KDPointVisitor<KDPoint>() {
+
+			@Override
+			public boolean visit(final KDPoint element) {
+				found.add(element);
+				return found.size() < STOPPING_NUMBER_OF_VISITS;
+			}
+
+		});
+
+		assertEquals(STOPPING_NUMBER_OF_VISITS, found.size());
+		for (final KDPoint point : found) {
+			assertTrue(isInside(point, min, max));
+		}
+	}
+
+	private void assertFound(final double[] min, final double[] max) {
+		final Set<KDPoint> expected = new HashSet<>();
+		for (final KDPoint point : points) {
+			if (isInside(point, min, max)) {
+				expected.add(point);
+			}
+		}
+
+		final List<KDPoint> found = new ArrayList<>();
+		new BucketPRKDRangeSearcher<>(tree, min, max).search(new KDPointVisitor<KDPoint>() {
+
+			@Override
+			public boolean visit(final KDPoint element) {
+				return found.add(element);
+			}
+
+		});
+
+		assertEquals(expected.size(), found.size());
+		assertTrue(expected.containsAll(found));
+	}
+
+}
@@ -0,0 +1,175 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import lessonz.collections.kdtree.KDPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link BucketPRKDTreeBuilder}
+ */
+public class BucketPRKDTreeBuilderTest {
+
+	private static final int NUMBER_OF_ELEMENTS = 10000;
+	private static final int TEST_BUCKET_SIZE = 8;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+	private static final int TEST_PARALLEL_THRESHOLD = 100;
+
+	private static int depth(final BucketPRKDTree<KDPoint> tree) {
+		final BucketPRKDTreeNode<KDPoint> node = tree.getNode();
+		if (node instanceof SplittingPlaneNode) {
+			final SplittingPlaneNode<KDPoint> splittingPlaneNode = (SplittingPlaneNode<KDPoint>) node;
+			return 1 + Math.max(depth(splittingPlaneNode.getLeftBucketPRKDTree()),
+					depth(splittingPlaneNode.getRightBucketPRKDTree()));
+		}
+
+		return 1;
+	}
+
+	private static void assertSplitsAreConsistent(final BucketPRKDTree<KDPoint> tree) {
+		final BucketPRKDTreeNode<KDPoint> node = tree.getNode();
+		if (node instanceof SplittingPlaneNode) {
+			final SplittingPlaneNode<KDPoint> splittingPlaneNode = (SplittingPlaneNode<KDPoint>) node;
+			final int index = splittingPlaneNode.getSplitDimensionIndex();
+			final double median = splittingPlaneNode.getSplitDimensionMedian();
+			assertTrue(splittingPlaneNode.getLeftBucketPRKDTree().size() > 0);
+			assertTrue(splittingPlaneNode.getRightBucketPRKDTree().size() > 0);
+			for (final KDPoint point : splittingPlaneNode.getLeftBucketPRKDTree()) {
+				assertTrue(point.getCoordinate(index) < median);
+			}
+			for (final KDPoint point : splittingPlaneNode.getRightBucketPRKDTree()) {
+				assertTrue(point.getCoordinate(index) >= median);
+			}
+
+			assertSplitsAreConsistent(splittingPlaneNode.getLeftBucketPRKDTree());
+			assertSplitsAreConsistent(splittingPlaneNode.getRightBucketPRKDTree());
+		} else {
+			assertTrue(node.size() <= TEST_BUCKET_SIZE);
+		}
+	}
+
+	private static void assertSameStructure(final BucketPRKDTree<KDPoint> expected,
+			final BucketPRKDTree<KDPoint> actual) {
+		final BucketPRKDTreeNode<KDPoint> expectedNode = expected.getNode();
+		final BucketPRKDTreeNode<KDPoint> actualNode = actual.getNode();
+		if (expectedNode instanceof SplittingPlaneNode) {
+			assertTrue(actualNode instanceof SplittingPlaneNode);
+			final SplittingPlaneNode<KDPoint> expectedSplit = (SplittingPlaneNode<KDPoint>) expectedNode;
+			final SplittingPlaneNode<KDPoint> actualSplit = (SplittingPlaneNode<KDPoint>) actualNode;
+			assertEquals(expectedSplit.getSplitDimensionIndex(), actualSplit.getSplitDimensionIndex());
+			assertEquals(expectedSplit.getSplitDimensionMedian(), actualSplit.getSplitDimensionMedian(), 0.0);
+			assertSameStructure(expectedSplit.getLeftBucketPRKDTree(), actualSplit.getLeftBucketPRKDTree());
+			assertSameStructure(expectedSplit.getRightBucketPRKDTree(), actualSplit.getRightBucketPRKDTree());
+		} else {
+			assertTrue(actualNode instanceof BucketNode);
+			assertEquals(((BucketNode<KDPoint>) expectedNode).getElements(),
+					((BucketNode<KDPoint>) actualNode).getElements());
+		}
+	}
+
+	private List<KDPoint> points;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		final Random random = new Random(7);
+		points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			points.add(new KDPoint(new double[] { random.nextDouble(), random.nextInt(100), random.nextGaussian() }, i));
+		}
+	}
+
+	@Test
+	public void testBuild() {
+		final BucketPRKDTree<KDPoint> sut =
+				new BucketPRKDTreeBuilder<KDPoint>(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE).build();
+
+		assertEquals(NUMBER_OF_ELEMENTS, sut.size());
+		assertTrue(new HashSet<KDPoint>(sut).containsAll(points));
+		assertSplitsAreConsistent(sut);
+	}
+
+	@Test
+	public void testBuildInParallelMatchesSequentialBuild() {
+		final BucketPRKDTree<KDPoint> sequential =
+				new BucketPRKDTreeBuilder<KDPoint>(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE).build();
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final BucketPRKDTree<KDPoint> parallel =
+					new BucketPRKDTreeBuilder<KDPoint>(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE).build(pool,
+							TEST_PARALLEL_THRESHOLD);
+			assertEquals(NUMBER_OF_ELEMENTS, parallel.size());
+			assertSameStructure(sequential, parallel);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testBuildIsBalanced() {
+		final BucketPRKDTree<KDPoint> sut =
+				new BucketPRKDTreeBuilder<KDPoint>(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE).build();
+
+		final int balancedDepth =
+				(int) Math.ceil(Math.log((double) NUMBER_OF_ELEMENTS / TEST_BUCKET_SIZE) / Math.log(2.0)) + 1;
+		/* Splits may land slightly off center where many elements share the median coordinate. */
+		assertTrue(depth(sut) <= balancedDepth + 2);
+	}
+
+	@Test
+	public void testBuildDoesNotDependOnElementOrder() {
+		final BucketPRKDTree<KDPoint> sut =
+				new BucketPRKDTreeBuilder<KDPoint>(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE).build();
+		Collections.shuffle(points, new Random(11));
+		final BucketPRKDTree<KDPoint> shuffled =
+				new BucketPRKDTreeBuilder<KDPoint>(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE).build();
+
+		assertEquals(depth(sut), depth(shuffled));
+		final double[] target = new double[] { 0.5, 50.0, 0.0 };
+		final List<KDPoint> expected = sut.getKNearestNeighbors(20, target);
+		final List<KDPoint> actual = shuffled.getKNearestNeighbors(20, target);
+		assertEquals(expected.size(), actual.size());
+		assertTrue(actual.containsAll(expected));
+	}
+
+	@Test
+	public void testBuildWithIdenticalElements() {
+		final List<KDPoint> identical = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			identical.add(new KDPoint(new double[] { 1.0, 2.0, 3.0 }, i));
+		}
+		identical.add(new KDPoint(new double[] { 1.0, 2.0, 4.0 }, -1));
+
+		final BucketPRKDTree<KDPoint> sut =
+				new BucketPRKDTreeBuilder<KDPoint>(identical, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE).build();
+		assertEquals(identical.size(), sut.size());
+		assertTrue(sut.containsAll(identical));
+
+		sut.add(new KDPoint(new double[] { 1.0, 2.0, 3.0 }, 100));
+		assertEquals(identical.size() + 1, sut.size());
+	}
+
+	@Test
+	public void testBuildWithNoElements() {
+		final BucketPRKDTree<KDPoint> sut =
+				new BucketPRKDTreeBuilder<KDPoint>(new ArrayList<KDPoint>(), TEST_NUMBER_OF_DIMENSIONS,
+						TEST_BUCKET_SIZE).build();
+		assertTrue(sut.isEmpty());
+		sut.add(points.get(0));
+		assertEquals(1, sut.size());
+	}
+
+}
@@ -0,0 +1,206 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.Random;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.split.MedianSplitStrategy;
+import lessonz.collections.kdtree.split.SplitStrategy;
+import lessonz.collections.kdtree.split.SplittingPlane;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link BucketPRKDTreeSerializer}
+ */
+public class BucketPRKDTreeSerializerTest {
+
+	private static final ElementCodec<KDPoint<Integer>> CODEC = new ElementCodec<KDPoint<Integer>>() {
+
+		@Override
+		public KDPoint<Integer> read(final double[] coordinates, final DataInput input) throws IOException {
+			return new KDPoint<>(coordinates, input.readInt());
+		}
+
+		@Override
+		public void write(final KDPoint<Integer> element, final DataOutput output) throws IOException {
+			output.writeInt(element.getData());
+		}
+
+	};
+	private static final int NUMBER_OF_ELEMENTS = 5000;
+	private static final int TEST_BUCKET_SIZE = 4;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+
+	private static void assertSameTree(final BucketPRKDTree<KDPoint<Integer>> expected,
+			final BucketPRKDTree<KDPoint<Integer>> actual) {
+		final BucketPRKDTreeNode<KDPoint<Integer>> expectedNode = expected.getNode();
+		final BucketPRKDTreeNode<KDPoint<Integer>> actualNode = actual.getNode();
+		assertEquals(expectedNode.size(), actualNode.size());
+		if (expectedNode instanceof SplittingPlaneNode) {
+			assertTrue(actualNode instanceof SplittingPlaneNode);
+			final SplittingPlaneNode<KDPoint<Integer>> expectedSplit =
+					(SplittingPlaneNode<KDPoint<Integer>>) expectedNode;
+			final SplittingPlaneNode<KDPoint<Integer>> actualSplit = (SplittingPlaneNode<KDPoint<Integer>>) actualNode;
+			assertEquals(expectedSplit.getSplitDimensionIndex(), actualSplit.getSplitDimensionIndex());
+			assertEquals(expectedSplit.getSplitDimensionMedian(), actualSplit.getSplitDimensionMedian(), 0.0);
+			assertSameTree(expectedSplit.getLeftBucketPRKDTree(), actualSplit.getLeftBucketPRKDTree());
+			assertSameTree(expectedSplit.getRightBucketPRKDTree(), actualSplit.getRightBucketPRKDTree());
+		} else {
+			assertEquals(expectedNode.getClass(), actualNode.getClass());
+			final Iterator<KDPoint<Integer>> actualIterator = actualNode.iterator();
+			for (final Iterator<KDPoint<Integer>> iterator = expectedNode.iterator(); iterator.hasNext();) {
+				final KDPoint<Integer> expectedPoint = iterator.next();
+				final KDPoint<Integer> actualPoint = actualIterator.next();
+				assertArrayEquals(expectedPoint.getCoordinates(), actualPoint.getCoordinates(), 0.0);
+				assertEquals(expectedPoint.getData(), actualPoint.getData());
+			}
+		}
+	}
+
+	private BucketPRKDTree<KDPoint<Integer>> tree;
+
+	/**
+	 * Prepare for each test. Some points share coordinates so that co-located nodes are written too.
+	 */
+	@Before
+	public void setup() {
+		final Random random = new Random(37);
+		tree = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			if (i % 10 == 0) {
+				tree.add(new KDPoint<>(new double[] { 0.5, 0.5, 0.5 }, i));
+			} else {
+				tree.add(new KDPoint<>(new double[] { random.nextDouble(), random.nextInt(10), random.nextGaussian() },
+						i));
+			}
+		}
+	}
+
+	@Test
+	public void testReadEmptyTree() throws IOException {
+		final BucketPRKDTree<KDPoint<Integer>> emptyTree = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS);
+
+		final BucketPRKDTree<KDPoint<Integer>> sut = roundTrip(emptyTree);
+
+		assertEquals(0, sut.size());
+		sut.add(new KDPoint<>(new double[TEST_NUMBER_OF_DIMENSIONS], 1));
+		assertEquals(1, sut.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadNotATree() throws IOException {
+		BucketPRKDTree.readFrom(new ByteArrayInputStream(new byte[64]), CODEC);
+	}
+
+	@Test
+	public void testReadStopsAtEndOfTree() throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		tree.writeTo(output, CODEC);
+		output.write(42);
+
+		final InputStream input = new ByteArrayInputStream(output.toByteArray());
+		BucketPRKDTree.readFrom(input, CODEC);
+
+		assertEquals(42, new DataInputStream(input).readByte());
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		final BucketPRKDTree<KDPoint<Integer>> sut = roundTrip(tree);
+
+		assertEquals(NUMBER_OF_ELEMENTS, sut.size());
+		assertSameTree(tree, sut);
+	}
+
+	@Test
+	public void testRoundTripBuiltTree() throws IOException {
+		final BucketPRKDTree<KDPoint<Integer>> builtTree =
+				BucketPRKDTree.build(tree, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+
+		assertSameTree(builtTree, roundTrip(builtTree));
+	}
+
+	@Test
+	public void testRoundTripCoLocatedNode() throws IOException {
+		final BucketPRKDTree<KDPoint<Integer>> sut = roundTrip(tree);
+
+		final double[] target = { 0.5, 0.5, 0.5 };
+		assertEquals(NUMBER_OF_ELEMENTS / 10, sut.countNeighborsWithinRadius(0.0, target));
+		assertEquals(NUMBER_OF_ELEMENTS / 10, sut.getLargestBucketSize());
+	}
+
+	@Test
+	public void testReadWithSplitStrategy() throws IOException {
+		final int[] splits = new int[1];
+		final SplitStrategy splitStrategy = new SplitStrategy() {
+
+			private final SplitStrategy medianSplitStrategy = new MedianSplitStrategy();
+
+			@Override
+			public SplittingPlane split(final double[] coordinates, final int size, final int numberOfDimensions) {
+				splits[0]++;
+				return medianSplitStrategy.split(coordinates, size, numberOfDimensions);
+			}
+
+		};
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		tree.writeTo(output, CODEC);
+
+		final BucketPRKDTree<KDPoint<Integer>> sut =
+				BucketPRKDTree.readFrom(new ByteArrayInputStream(output.toByteArray()), CODEC, splitStrategy);
+		assertEquals(0, splits[0]);
+		final Random random = new Random(41);
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			sut.add(new KDPoint<>(new double[] { random.nextDouble(), random.nextDouble(), random.nextDouble() }, i));
+		}
+
+		assertTrue(splits[0] > 0);
+		assertEquals(NUMBER_OF_ELEMENTS * 2, sut.size());
+	}
+
+	@Test
+	public void testRoundTripUnpacked() throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		tree.writeTo(output, CODEC);
+		final BucketPRKDTree<KDPoint<Integer>> unpacked =
+				BucketPRKDTree.readFrom(new ByteArrayInputStream(output.toByteArray()), CODEC,
+						BucketPRKDTree.DEFAULT_SPLIT_STRATEGY, false);
+		assertSameTree(tree, unpacked);
+
+		/* An unpacked tree writes the same form, gathering its coordinates from its elements. */
+		assertSameTree(tree, roundTrip(unpacked));
+	}
+
+	@Test
+	public void testRoundTripRemainsModifiable() throws IOException {
+		final BucketPRKDTree<KDPoint<Integer>> sut = roundTrip(tree);
+
+		final KDPoint<Integer> first = sut.iterator().next();
+		assertTrue(sut.remove(first));
+		assertEquals(NUMBER_OF_ELEMENTS - 1, sut.size());
+		sut.add(first);
+		assertTrue(sut.contains(first));
+	}
+
+	private BucketPRKDTree<KDPoint<Integer>> roundTrip(final BucketPRKDTree<KDPoint<Integer>> original)
+			throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		original.writeTo(output, CODEC);
+
+		return BucketPRKDTree.readFrom(new ByteArrayInputStream(output.toByteArray()), CODEC);
+	}
+
+}
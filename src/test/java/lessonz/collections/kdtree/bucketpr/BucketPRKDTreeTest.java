@@ -2,13 +2,32 @@ package lessonz.collections.kdtree.bucketpr;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointFilter;
+import lessonz.collections.kdtree.KDPointVisitor;
 import lessonz.collections.kdtree.distance.SquaredEuclideanDistanceFunction;
+import lessonz.collections.kdtree.split.MedianSplitStrategy;
+import lessonz.collections.kdtree.split.MidpointSplitStrategy;
+import lessonz.collections.kdtree.split.SlidingMidpointSplitStrategy;
+import lessonz.collections.kdtree.split.SplitStrategy;
+import lessonz.collections.kdtree.split.SplittingPlane;
+import lessonz.collections.kdtree.split.VarianceSplitStrategy;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -18,7 +37,12 @@ import org.junit.Test;
  */
 public class BucketPRKDTreeTest {
 
+	private static final int CONCURRENT_NUMBER_OF_QUERIES = 200;
+	private static final int CONCURRENT_NUMBER_OF_THREADS = 8;
+	private static final int CONCURRENT_K = 10;
+	private static final int NUMBER_OF_CO_LOCATED_ELEMENTS = 2000000;
 	private static final int NUMBER_OF_ELEMENTS_TO_ADD = 1000;
+	private static final int SPLIT_STRATEGY_BUCKET_SIZE = 16;
 	private static final int TEST_BUCKET_SIZE = 2;
 	private static final KDPoint TEST_ELEMENT_1 = new KDPoint(new double[] { 0.0, 0.0, 0.0 }, 1);
 	private static final KDPoint TEST_ELEMENT_2 = new KDPoint(new double[] { 1.0, 1.0, 1.0 }, 2);
@@ -43,6 +67,88 @@ public class BucketPRKDTreeTest {
 		sut = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
 	}
 
+	/**
+	 * Tests {@link BucketPRKDTree#build(java.util.Collection, int, int)}.
+	 */
+	@Test
+	public void testBuild() {
+		final Random random = new Random(3);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			points.add(new KDPoint(randomCoordinates(random), i));
+		}
+
+		sut = BucketPRKDTree.build(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		assertEquals(points.size(), sut.size());
+
+		final double[] target = randomCoordinates(random);
+		final List<KDPoint> kNearestNeighbors = sut.getKNearestNeighbors(CONCURRENT_K, target);
+		assertEquals(CONCURRENT_K, kNearestNeighbors.size());
+		assertTrue(kNearestNeighbors.containsAll(bruteForceKNearestNeighbors(points, CONCURRENT_K, target)));
+
+		sut.add(TEST_ELEMENT_4);
+		assertEquals(points.size() + 1, sut.size());
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#buildInParallel(java.util.Collection, int, int)}.
+	 */
+	@Test
+	public void testBuildInParallel() {
+		final Random random = new Random(5);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			points.add(new KDPoint(randomCoordinates(random), i));
+		}
+
+		sut = BucketPRKDTree.buildInParallel(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		assertEquals(points.size(), sut.size());
+
+		final double[] target = randomCoordinates(random);
+		final List<KDPoint> kNearestNeighbors = sut.getKNearestNeighbors(CONCURRENT_K, target);
+		assertEquals(CONCURRENT_K, kNearestNeighbors.size());
+		assertTrue(kNearestNeighbors.containsAll(bruteForceKNearestNeighbors(points, CONCURRENT_K, target)));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#build(java.util.Collection, int, int, SplitStrategy)} and
+	 * {@link BucketPRKDTree#buildInParallel(java.util.Collection, int, int, SplitStrategy)}.
+	 */
+	@Test
+	public void testBuildWithSplitStrategy() {
+		final Random random = new Random(7);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			points.add(new KDPoint(randomCoordinates(random), i));
+		}
+		final int[] splits = new int[1];
+		final SplitStrategy splitStrategy = new SplitStrategy() {
+
+			private final SplitStrategy medianSplitStrategy = new MedianSplitStrategy();
+
+			@Override
+			public SplittingPlane split(final double[] coordinates, final int size, final int numberOfDimensions) {
+				splits[0]++;
+				return medianSplitStrategy.split(coordinates, size, numberOfDimensions);
+			}
+
+		};
+
+		for (final BucketPRKDTree<KDPoint> builtTree : Arrays.asList(
+				BucketPRKDTree.<KDPoint> build(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE, splitStrategy),
+				BucketPRKDTree.<KDPoint> buildInParallel(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE,
+						splitStrategy))) {
+			/* The build itself splits at the median without asking the strategy; later buckets must ask it. */
+			splits[0] = 0;
+			for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+				builtTree.add(new KDPoint(randomCoordinates(random), i));
+			}
+
+			assertTrue(splits[0] > 0);
+			assertEquals(points.size() + NUMBER_OF_ELEMENTS_TO_ADD, builtTree.size());
+		}
+	}
+
 	/**
 	 * Tests {@link BucketPRKDTree#clear()}.
 	 */
@@ -56,6 +162,182 @@ public class BucketPRKDTreeTest {
 		assertTrue(sut.isEmpty());
 	}
 
+	/**
+	 * Tests that millions of elements at the same coordinates are held without splitting and found in one step.
+	 */
+	@Test
+	public void testCoLocatedElements() {
+		final double[] coordinates = TEST_ELEMENT_2.getCoordinates();
+		for (int i = 0; i < NUMBER_OF_CO_LOCATED_ELEMENTS; i++) {
+			sut.add(new KDPoint(coordinates, null));
+		}
+		assertEquals(NUMBER_OF_CO_LOCATED_ELEMENTS, sut.size());
+		assertEquals(1, sut.getDepth());
+		assertEquals(NUMBER_OF_CO_LOCATED_ELEMENTS, sut.getLargestBucketSize());
+
+		final double[] target = TEST_ELEMENT_1.getCoordinates();
+		assertEquals(CONCURRENT_K, sut.getKNearestNeighbors(CONCURRENT_K, target).size());
+		assertEquals(NUMBER_OF_CO_LOCATED_ELEMENTS, sut.countNeighborsWithinRadius(3.0, target));
+		assertEquals(0, sut.countNeighborsWithinRadius(2.0, target));
+		assertEquals(NUMBER_OF_CO_LOCATED_ELEMENTS, sut.rangeQuery(target, coordinates).size());
+
+		addTestElements();
+		assertEquals(NUMBER_OF_CO_LOCATED_ELEMENTS + TEST_ELEMENTS.size(), sut.size());
+		assertTrue(sut.getDepth() > 1);
+		assertEquals(NUMBER_OF_CO_LOCATED_ELEMENTS + 1, sut.getLargestBucketSize());
+
+		final List<KDPoint> kNearestNeighbors = sut.getKNearestNeighbors(CONCURRENT_K, target);
+		assertTrue(kNearestNeighbors.contains(TEST_ELEMENT_1));
+		assertTrue(sut.contains(TEST_ELEMENT_2));
+		assertEquals(1, sut.countNeighborsWithinRadius(0.0, TEST_ELEMENT_3.getCoordinates()));
+
+		assertTrue(sut.remove(TEST_ELEMENT_2));
+		assertFalse(sut.contains(TEST_ELEMENT_2));
+		assertEquals(NUMBER_OF_CO_LOCATED_ELEMENTS + TEST_ELEMENTS.size() - 1, sut.size());
+	}
+
+	/**
+	 * Tests adding an element at different coordinates to a full bucket whose elements all share coordinates.
+	 */
+	@Test
+	public void testAddToFullCoLocatedBucket() {
+		for (int i = 0; i < TEST_BUCKET_SIZE; i++) {
+			sut.add(new KDPoint(TEST_ELEMENT_2.getCoordinates(), null));
+		}
+		sut.add(TEST_ELEMENT_1);
+		assertEquals(TEST_BUCKET_SIZE + 1, sut.size());
+		assertTrue(sut.contains(TEST_ELEMENT_1));
+		assertTrue(sut.getDepth() > 1);
+
+		final List<KDPoint> kNearestNeighbors = sut.getKNearestNeighbors(1, TEST_ELEMENT_1.getCoordinates());
+		assertEquals(1, kNearestNeighbors.size());
+		assertEquals(TEST_ELEMENT_1, kNearestNeighbors.get(0));
+		assertEquals(TEST_BUCKET_SIZE + 1, sut.getKNearestNeighbors(TEST_BUCKET_SIZE + 1,
+				TEST_ELEMENT_4.getCoordinates()).size());
+
+		sut.add(TEST_ELEMENT_3);
+		assertEquals(TEST_BUCKET_SIZE + 2, sut.size());
+		assertTrue(sut.contains(TEST_ELEMENT_3));
+		assertEquals(TEST_ELEMENT_3, sut.getKNearestNeighbors(1, TEST_ELEMENT_3.getCoordinates()).get(0));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#build(java.util.Collection, int, int)} when elements share coordinates.
+	 */
+	@Test
+	public void testBuildCoLocatedElements() {
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			points.add(new KDPoint(TEST_ELEMENT_2.getCoordinates(), i));
+		}
+		points.add(TEST_ELEMENT_1);
+
+		sut = BucketPRKDTree.build(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		assertEquals(points.size(), sut.size());
+		assertEquals(NUMBER_OF_ELEMENTS_TO_ADD, sut.getLargestBucketSize());
+		assertEquals(NUMBER_OF_ELEMENTS_TO_ADD,
+				sut.countNeighborsWithinRadius(0.0, TEST_ELEMENT_2.getCoordinates()));
+
+		assertTrue(sut.replace(points.get(0), new KDPoint(TEST_ELEMENT_2.getCoordinates(), -1)));
+		assertTrue(sut.replace(points.get(1), TEST_ELEMENT_3));
+		assertEquals(points.size(), sut.size());
+		assertEquals(NUMBER_OF_ELEMENTS_TO_ADD - 1,
+				sut.countNeighborsWithinRadius(0.0, TEST_ELEMENT_2.getCoordinates()));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#countNeighborsWithinRadius(double, double[])}.
+	 */
+	@Test
+	public void testCountNeighborsWithinRadius() {
+		addTestElements();
+		sut.add(TEST_ELEMENT_4);
+
+		assertEquals(1, sut.countNeighborsWithinRadius(0.0, TEST_ELEMENT_1.getCoordinates()));
+		assertEquals(2, sut.countNeighborsWithinRadius(3.0, TEST_ELEMENT_1.getCoordinates()));
+		assertEquals(4, sut.countNeighborsWithinRadius(12.0, TEST_ELEMENT_1.getCoordinates()));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#getApproximateKNearestNeighbors(int, double[], double, int)}.
+	 */
+	@Test
+	public void testGetApproximateKNearestNeighbors() {
+		final Random random = new Random(41);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			points.add(new KDPoint(randomCoordinates(random), i));
+		}
+		sut = BucketPRKDTree.build(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+
+		final SquaredEuclideanDistanceFunction distanceFunction = new SquaredEuclideanDistanceFunction();
+		final double epsilon = 0.5;
+		for (int i = 0; i < 50; i++) {
+			final double[] target = randomCoordinates(random);
+			final List<KDPoint> expected = bruteForceKNearestNeighbors(points, CONCURRENT_K, target);
+
+			final List<KDPoint> exact =
+					sut.getApproximateKNearestNeighbors(CONCURRENT_K, target, 0.0, Integer.MAX_VALUE);
+			assertTrue(exact.containsAll(expected));
+
+			final List<KDPoint> approximate =
+					sut.getApproximateKNearestNeighbors(CONCURRENT_K, target, epsilon, Integer.MAX_VALUE);
+			assertEquals(CONCURRENT_K, approximate.size());
+			final List<KDPoint> sortedApproximate = bruteForceKNearestNeighbors(approximate, CONCURRENT_K, target);
+			for (int j = 0; j < CONCURRENT_K; j++) {
+				assertTrue(distanceFunction.distance(target, sortedApproximate.get(j).getCoordinates())
+						<= (1.0 + epsilon) * distanceFunction.distance(target, expected.get(j).getCoordinates()));
+			}
+		}
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#getApproximateKNearestNeighbors(int, double[], double, int)} with a limit on the
+	 * buckets visited.
+	 */
+	@Test
+	public void testGetApproximateKNearestNeighborsMaxBucketsToVisit() {
+		final Random random = new Random(43);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			points.add(new KDPoint(randomCoordinates(random), i));
+		}
+		sut = BucketPRKDTree.build(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		final double[] target = randomCoordinates(random);
+
+		final List<KDPoint> oneBucket = sut.getApproximateKNearestNeighbors(CONCURRENT_K, target, 0.0, 1);
+		assertFalse(oneBucket.isEmpty());
+		assertTrue(oneBucket.size() <= TEST_BUCKET_SIZE);
+
+		final List<KDPoint> manyBuckets = sut.getApproximateKNearestNeighbors(CONCURRENT_K, target, 0.0, 100);
+		assertEquals(CONCURRENT_K, manyBuckets.size());
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#getApproximateKNearestNeighbors(int, double[], double, int)} with a negative
+	 * epsilon.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetApproximateKNearestNeighborsNegativeEpsilon() {
+		addTestElements();
+
+		sut.getApproximateKNearestNeighbors(1, TEST_ELEMENT_1.getCoordinates(), -1.0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#getDepth()} and {@link BucketPRKDTree#getLargestBucketSize()}.
+	 */
+	@Test
+	public void testGetDepthAndLargestBucketSize() {
+		assertEquals(1, sut.getDepth());
+		assertEquals(0, sut.getLargestBucketSize());
+
+		addTestElements();
+		sut.add(TEST_ELEMENT_4);
+		assertEquals(2, sut.getDepth());
+		assertEquals(TEST_BUCKET_SIZE, sut.getLargestBucketSize());
+	}
+
 	/**
 	 * Tests {@link BucketPRKDTree#getKNearestNeighbors(int, double[])}.
 	 */
@@ -96,6 +378,96 @@ public class BucketPRKDTreeTest {
 		assertEquals(TEST_ELEMENT_1, kNearestNeighbors.get(0));
 	}
 
+	/**
+	 * Tests {@link BucketPRKDTree#getKNearestNeighbors(int, double[], KDPointFilter)}.
+	 */
+	@Test
+	public void testGetKNearestNeighborsIntDoubleArrayFilter() {
+		final Random random = new Random(23);
+		final KDPointFilter<KDPoint> filter = new KDPointFilter<KDPoint>() {
+
+			@Override
+			public boolean accept(final KDPoint element) {
+				return (Integer) element.getData() % 10 == 0;
+			}
+
+		};
+		final List<KDPoint> accepted = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(random), i);
+			if (filter.accept(point)) {
+				accepted.add(point);
+			}
+			sut.add(point);
+		}
+
+		final double[] target = randomCoordinates(random);
+		final List<KDPoint> kNearestNeighbors = sut.getKNearestNeighbors(CONCURRENT_K, target, filter);
+		assertEquals(CONCURRENT_K, kNearestNeighbors.size());
+		assertTrue(kNearestNeighbors.containsAll(bruteForceKNearestNeighbors(accepted, CONCURRENT_K, target)));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#getKNearestNeighbors(int, double[])} when called from many threads at once.
+	 */
+	@Test
+	public void testGetKNearestNeighborsConcurrently() throws Exception {
+		final Random random = new Random(42);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(random), i);
+			points.add(point);
+			sut.add(point);
+		}
+
+		final List<Callable<Void>> queries = new ArrayList<>();
+		for (int i = 0; i < CONCURRENT_NUMBER_OF_THREADS; i++) {
+			final Random threadRandom = new Random(i);
+			queries.add(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					for (int j = 0; j < CONCURRENT_NUMBER_OF_QUERIES; j++) {
+						final double[] target = randomCoordinates(threadRandom);
+						final List<KDPoint> expected = bruteForceKNearestNeighbors(points, CONCURRENT_K, target);
+						final List<KDPoint> actual = sut.getKNearestNeighbors(CONCURRENT_K, target);
+						assertEquals(expected.size(), actual.size());
+						assertTrue(actual.containsAll(expected));
+					}
+
+					return null;
+				}
+
+			});
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_NUMBER_OF_THREADS);
+		try {
+			for (final Future<Void> future : executor.invokeAll(queries)) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#getKNearestNeighbors(int, double[][])}.
+	 */
+	@Test
+	public void testGetKNearestNeighborsIntDoubleArrayArray() {
+		addTestElements();
+		final double[][] targets =
+				new double[][] { TEST_ELEMENT_1.getCoordinates(), TEST_ELEMENT_4.getCoordinates(),
+						TEST_ELEMENT_3.getCoordinates() };
+
+		final List<List<KDPoint>> kNearestNeighbors = sut.getKNearestNeighbors(1, targets);
+		assertEquals(targets.length, kNearestNeighbors.size());
+		assertEquals(TEST_ELEMENT_1, kNearestNeighbors.get(0).get(0));
+		assertEquals(TEST_ELEMENT_1, kNearestNeighbors.get(1).get(0));
+		assertEquals(TEST_ELEMENT_3, kNearestNeighbors.get(2).get(0));
+	}
+
 	/**
 	 * Tests {@link BucketPRKDTree#getKNearestNeighbors(int, KDPoint)}.
 	 */
@@ -134,6 +506,66 @@ public class BucketPRKDTreeTest {
 		assertEquals(TEST_ELEMENT_1, kNearestNeighbors.get(0));
 	}
 
+	/**
+	 * Tests {@link BucketPRKDTree#contains(Object)}.
+	 */
+	@Test
+	public void testContains() {
+		addABunchOfElements();
+		for (final KDPoint point : TEST_ELEMENTS) {
+			assertTrue(sut.contains(point));
+		}
+
+		assertFalse(sut.contains(TEST_ELEMENT_4));
+		assertFalse(sut.contains(new KDPoint(TEST_ELEMENT_1.getCoordinates(), 1)));
+		assertFalse(sut.contains("Not a KDPoint"));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#getNeighborsWithinRadius(double, double[])}.
+	 */
+	@Test
+	public void testGetNeighborsWithinRadius() {
+		addTestElements();
+		sut.add(TEST_ELEMENT_4);
+
+		final List<KDPoint> neighbors = sut.getNeighborsWithinRadius(3.0, TEST_ELEMENT_2.getCoordinates());
+		assertEquals(3, neighbors.size());
+		assertTrue(neighbors.containsAll(TEST_ELEMENTS));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#getSortedKNearestNeighbors(int, double[], NeighborResult)}.
+	 */
+	@Test
+	public void testGetSortedKNearestNeighbors() {
+		final Random random = new Random(31);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(random), i);
+			points.add(point);
+			sut.add(point);
+		}
+
+		final SquaredEuclideanDistanceFunction distanceFunction = new SquaredEuclideanDistanceFunction();
+		final NeighborResult<KDPoint> result = new NeighborResult<>();
+		for (int i = 0; i < CONCURRENT_NUMBER_OF_QUERIES; i++) {
+			final double[] target = randomCoordinates(random);
+			assertSame(result, sut.getSortedKNearestNeighbors(CONCURRENT_K, target, result));
+
+			final List<KDPoint> expected = bruteForceKNearestNeighbors(points, CONCURRENT_K, target);
+			assertEquals(CONCURRENT_K, result.size());
+			for (int j = 0; j < CONCURRENT_K; j++) {
+				assertEquals(distanceFunction.distance(target, expected.get(j).getCoordinates()),
+						result.getDistance(j), 0.0);
+				assertEquals(distanceFunction.distance(target, result.getElement(j).getCoordinates()),
+						result.getDistance(j), 0.0);
+			}
+		}
+
+		assertEquals(3, sut.getSortedKNearestNeighbors(3, randomCoordinates(random)).size());
+	}
+
 	/**
 	 * Tests {@link BucketPRKDTree#iterator()}.
 	 */
@@ -150,6 +582,43 @@ public class BucketPRKDTreeTest {
 		assertTrue(allPoints.isEmpty());
 	}
 
+	/**
+	 * Tests {@link BucketPRKDTree#nearestNeighborIterator(double[])}.
+	 */
+	@Test
+	public void testNearestNeighborIterator() {
+		addTestElements();
+		sut.add(TEST_ELEMENT_4);
+
+		final Iterator<KDPoint> iterator = sut.nearestNeighborIterator(TEST_ELEMENT_1.getCoordinates());
+		assertEquals(TEST_ELEMENT_1, iterator.next());
+		assertEquals(TEST_ELEMENT_2, iterator.next());
+		final List<KDPoint> farthest = new ArrayList<>();
+		farthest.add(iterator.next());
+		farthest.add(iterator.next());
+		assertTrue(farthest.contains(TEST_ELEMENT_3));
+		assertTrue(farthest.contains(TEST_ELEMENT_4));
+		assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#rangeQuery(double[], double[])}.
+	 */
+	@Test
+	public void testRangeQuery() {
+		addTestElements();
+		sut.add(TEST_ELEMENT_4);
+
+		List<KDPoint> elements = sut.rangeQuery(new double[] { 0.0, 0.0, 0.0 }, new double[] { 1.0, 1.0, 1.0 });
+		assertEquals(2, elements.size());
+		assertTrue(elements.contains(TEST_ELEMENT_1));
+		assertTrue(elements.contains(TEST_ELEMENT_2));
+
+		elements = sut.rangeQuery(new double[] { -3.0, -3.0, -3.0 }, new double[] { -1.0, 3.0, 3.0 });
+		assertEquals(1, elements.size());
+		assertTrue(elements.contains(TEST_ELEMENT_4));
+	}
+
 	/**
 	 * Tests {@link BucketPRKDTree#remove(Object)}.
 	 */
@@ -170,6 +639,372 @@ public class BucketPRKDTreeTest {
 		assertTrue(sut.isEmpty());
 	}
 
+	/**
+	 * Tests {@link BucketPRKDTree#remove(Object)} collapses splitting planes once few enough elements remain.
+	 */
+	@Test
+	public void testRemoveCollapsesSplittingPlaneNodes() {
+		final Random random = new Random(17);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(random), i);
+			points.add(point);
+			sut.add(point);
+		}
+		assertTrue(sut.getNode() instanceof SplittingPlaneNode);
+
+		for (int i = 0; i < points.size() - 1; i++) {
+			assertTrue(sut.remove(points.get(i)));
+			assertEquals(points.size() - i - 1, sut.size());
+		}
+		assertTrue(sut.getNode() instanceof BucketNode);
+		assertTrue(sut.contains(points.get(points.size() - 1)));
+
+		assertFalse(sut.remove(points.get(0)));
+	}
+
+	/**
+	 * Tests that regions emptied through {@link BucketPRKDTree#iterator()} are collapsed into single buckets.
+	 */
+	@Test
+	public void testIteratorRemoveCollapsesSplittingPlaneNodes() {
+		final Random random = new Random(29);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(random), i);
+			points.add(point);
+			sut.add(point);
+		}
+		assertTrue(sut.getDepth() > 2);
+
+		final KDPoint kept = points.get(0);
+		assertTrue(sut.retainAll(Collections.singleton(kept)));
+		assertEquals(1, sut.size());
+		assertTrue(sut.getNode() instanceof BucketNode);
+		assertTrue(sut.contains(kept));
+
+		sut.addAll(points.subList(1, points.size()));
+		assertTrue(sut.getDepth() > 2);
+		for (final Iterator<KDPoint> iterator = sut.iterator(); iterator.hasNext();) {
+			iterator.next();
+			iterator.remove();
+		}
+		assertTrue(sut.isEmpty());
+		assertTrue(sut.getNode() instanceof BucketNode);
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#replace(KDPoint, KDPoint)}.
+	 */
+	@Test
+	public void testReplace() {
+		final Random random = new Random(19);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(random), i);
+			points.add(point);
+			sut.add(point);
+		}
+
+		for (int i = 0; i < points.size(); i++) {
+			final KDPoint moved = new KDPoint(randomCoordinates(random), i);
+			assertTrue(sut.replace(points.get(i), moved));
+			points.set(i, moved);
+		}
+		assertEquals(points.size(), sut.size());
+
+		final double[] target = randomCoordinates(random);
+		final List<KDPoint> kNearestNeighbors = sut.getKNearestNeighbors(CONCURRENT_K, target);
+		assertTrue(kNearestNeighbors.containsAll(bruteForceKNearestNeighbors(points, CONCURRENT_K, target)));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#replace(KDPoint, KDPoint)} when the element is not present.
+	 */
+	@Test
+	public void testReplaceMissingElement() {
+		addTestElements();
+		assertFalse(sut.replace(TEST_ELEMENT_4, TEST_ELEMENT_4));
+		assertEquals(TEST_ELEMENTS.size(), sut.size());
+		assertFalse(sut.contains(TEST_ELEMENT_4));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#size()} is kept up to date by removals made through the iterator.
+	 */
+	@Test
+	public void testSizeAfterIteratorRemove() {
+		addABunchOfElements();
+		int expectedSize = NUMBER_OF_ELEMENTS_TO_ADD;
+		for (final Iterator<KDPoint> iterator = sut.iterator(); iterator.hasNext();) {
+			if (iterator.next() == TEST_ELEMENT_2) {
+				iterator.remove();
+				expectedSize--;
+				assertEquals(expectedSize, sut.size());
+			}
+		}
+		assertFalse(sut.contains(TEST_ELEMENT_2));
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#snapshot()} is unaffected by modifications made afterward, while those modifications
+	 * still take effect in the tree.
+	 */
+	@Test
+	public void testSnapshot() {
+		final Random random = new Random(53);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(random), i);
+			points.add(point);
+			sut.add(point);
+		}
+		final double[] target = randomCoordinates(random);
+		final List<KDPoint> expected = bruteForceKNearestNeighbors(points, CONCURRENT_K, target);
+
+		final BucketPRKDTree<KDPoint> snapshot = sut.snapshot();
+		final List<KDPoint> moved = new ArrayList<>();
+		for (int i = 0; i < points.size() / 2; i++) {
+			final KDPoint point = new KDPoint(randomCoordinates(random), i);
+			assertTrue(sut.replace(points.get(i), point));
+			moved.add(point);
+		}
+		for (int i = points.size() / 2; i < points.size() * 3 / 4; i++) {
+			assertTrue(sut.remove(points.get(i)));
+		}
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			sut.add(new KDPoint(randomCoordinates(random), -i));
+		}
+
+		assertEquals(points.size(), snapshot.size());
+		for (final KDPoint point : points) {
+			assertTrue(snapshot.contains(point));
+		}
+		for (final KDPoint point : moved) {
+			assertFalse(snapshot.contains(point));
+			assertTrue(sut.contains(point));
+		}
+		assertTrue(snapshot.getKNearestNeighbors(CONCURRENT_K, target).containsAll(expected));
+		assertEquals(points.size(), snapshot.rangeQuery(new double[] { 0.0, 0.0, 0.0 },
+				new double[] { 1.0, 1.0, 1.0 }).size());
+		assertEquals(points.size() * 3 / 4 + NUMBER_OF_ELEMENTS_TO_ADD, sut.size());
+
+		sut.clear();
+		assertTrue(sut.isEmpty());
+		assertEquals(points.size(), snapshot.size());
+	}
+
+	/**
+	 * Tests a {@link BucketPRKDTree#snapshot()} can't be modified.
+	 */
+	@Test
+	public void testSnapshotIsReadOnly() {
+		addTestElements();
+		final BucketPRKDTree<KDPoint> snapshot = sut.snapshot();
+		assertSame(snapshot, snapshot.snapshot());
+
+		try {
+			snapshot.add(TEST_ELEMENT_4);
+			fail();
+		} catch (final UnsupportedOperationException e) {
+			/* Expected. */
+		}
+		try {
+			snapshot.remove(TEST_ELEMENT_1);
+			fail();
+		} catch (final UnsupportedOperationException e) {
+			/* Expected. */
+		}
+		try {
+			final Iterator<KDPoint> iterator = snapshot.iterator();
+			iterator.next();
+			iterator.remove();
+			fail();
+		} catch (final UnsupportedOperationException e) {
+			/* Expected. */
+		}
+
+		assertEquals(TEST_ELEMENTS.size(), snapshot.size());
+		assertEquals(TEST_ELEMENTS.size(), sut.size());
+	}
+
+	/**
+	 * Tests elements removed through the iterator of a tree shared with a snapshot are removed from the tree alone.
+	 */
+	@Test
+	public void testSnapshotIteratorRemove() {
+		addABunchOfElements();
+		final BucketPRKDTree<KDPoint> snapshot = sut.snapshot();
+		int count = 0;
+		for (final Iterator<KDPoint> iterator = sut.iterator(); iterator.hasNext();) {
+			iterator.next();
+			if (count++ % 2 == 0) {
+				iterator.remove();
+			}
+		}
+
+		assertEquals(NUMBER_OF_ELEMENTS_TO_ADD, count);
+		assertEquals(NUMBER_OF_ELEMENTS_TO_ADD / 2, sut.size());
+		assertEquals(NUMBER_OF_ELEMENTS_TO_ADD, snapshot.size());
+		int snapshotCount = 0;
+		for (final Iterator<KDPoint> iterator = snapshot.iterator(); iterator.hasNext();) {
+			iterator.next();
+			snapshotCount++;
+		}
+		assertEquals(NUMBER_OF_ELEMENTS_TO_ADD, snapshotCount);
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#BucketPRKDTree(int, int, SplitStrategy)} with every {@link SplitStrategy} on skewed
+	 * data.
+	 */
+	@Test
+	public void testSplitStrategies() {
+		final Random random = new Random(47);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD * 10; i++) {
+			final double[] coordinates = randomCoordinates(random);
+			for (int j = 0; j < coordinates.length; j++) {
+				coordinates[j] = Math.pow(coordinates[j], 8);
+			}
+			points.add(new KDPoint(coordinates, i));
+		}
+		final double[] target = randomCoordinates(random);
+		final List<KDPoint> expected = bruteForceKNearestNeighbors(points, CONCURRENT_K, target);
+
+		final int[] depths = new int[4];
+		int i = 0;
+		for (final SplitStrategy splitStrategy : new SplitStrategy[] { new MidpointSplitStrategy(),
+				new MedianSplitStrategy(), new SlidingMidpointSplitStrategy(), new VarianceSplitStrategy() }) {
+			sut = new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, SPLIT_STRATEGY_BUCKET_SIZE, splitStrategy);
+			for (final KDPoint point : points) {
+				sut.add(point);
+			}
+
+			assertEquals(points.size(), sut.size());
+			assertTrue(sut.getKNearestNeighbors(CONCURRENT_K, target).containsAll(expected));
+			assertTrue(sut.getLargestBucketSize() <= SPLIT_STRATEGY_BUCKET_SIZE);
+			depths[i++] = sut.getDepth();
+		}
+
+		/* On skewed data the median keeps the tree far shallower than the midpoint does. */
+		assertTrue(depths[1] < depths[0]);
+	}
+
+	/**
+	 * Tests that a {@link SlidingMidpointSplitStrategy} divides the cell of a bucket, bounded by the planes above it.
+	 */
+	@Test
+	public void testSlidingMidpointSplitStrategyDividesCell() {
+		final BucketPRKDTree<KDPoint> tree =
+				new BucketPRKDTree<>(1, TEST_BUCKET_SIZE, new SlidingMidpointSplitStrategy());
+		for (final double coordinate : new double[] { 0.0, 100.0, 1.0, 2.0 }) {
+			tree.add(new KDPoint(new double[] { coordinate }, null));
+		}
+
+		/* The root divides the points' range at 50; its left cell, up to 50, is divided at 25, sliding down to 1. */
+		final SplittingPlaneNode<KDPoint> root = (SplittingPlaneNode<KDPoint>) tree.getNode();
+		assertEquals(50.0, root.getSplitDimensionMedian(), 0.0);
+		final SplittingPlaneNode<KDPoint> left = (SplittingPlaneNode<KDPoint>) root.getLeftBucketPRKDTree().getNode();
+		assertEquals(1.0, left.getSplitDimensionMedian(), 0.0);
+		assertEquals(4, tree.size());
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#BucketPRKDTree(int, int, SplitStrategy, boolean)} and
+	 * {@link BucketPRKDTree#build(java.util.Collection, int, int, SplitStrategy, boolean)} without packed coordinates.
+	 * Each query must find what it finds in a tree that packs them. Some points share coordinates so that buckets
+	 * which can't be split are detected without the packed copy too.
+	 */
+	@Test
+	public void testUnpackedCoordinates() {
+		final Random random = new Random(59);
+		final List<KDPoint> points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
+			points.add(new KDPoint(i % 10 == 0 ? TEST_ELEMENT_2.getCoordinates() : randomCoordinates(random), i));
+		}
+		final BucketPRKDTree<KDPoint> unpacked =
+				new BucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE, new MidpointSplitStrategy(), false);
+		assertFalse(((BucketNode<KDPoint>) unpacked.getNode()).isPacked());
+		sut.addAll(points);
+		unpacked.addAll(points);
+		final BucketPRKDTree<KDPoint> builtUnpacked = BucketPRKDTree.<KDPoint> build(points, TEST_NUMBER_OF_DIMENSIONS,
+				TEST_BUCKET_SIZE, new MidpointSplitStrategy(), false);
+
+		for (final BucketPRKDTree<KDPoint> tree : Arrays.asList(unpacked, builtUnpacked)) {
+			assertEquals(points.size(), tree.size());
+			for (int i = 0; i < CONCURRENT_NUMBER_OF_QUERIES; i++) {
+				final double[] target = randomCoordinates(random);
+				final NeighborResult<KDPoint> expected = sut.getSortedKNearestNeighbors(CONCURRENT_K, target);
+				final NeighborResult<KDPoint> actual = tree.getSortedKNearestNeighbors(CONCURRENT_K, target);
+				for (int j = 0; j < CONCURRENT_K; j++) {
+					assertEquals(expected.getDistance(j), actual.getDistance(j), 0.0);
+				}
+				assertEquals(sut.nearestNeighborIterator(target).next(),
+						tree.nearestNeighborIterator(target).next());
+				assertEquals(sut.countNeighborsWithinRadius(0.1, target), tree.countNeighborsWithinRadius(0.1, target));
+
+				final double[] maxCoordinates = { target[0] + 0.2, target[1] + 0.2, target[2] + 0.2 };
+				assertEquals(sut.rangeQuery(target, maxCoordinates).size(),
+						tree.rangeQuery(target, maxCoordinates).size());
+			}
+
+			for (final Iterator<KDPoint> iterator = tree.iterator(); iterator.hasNext();) {
+				iterator.next();
+				iterator.remove();
+			}
+			assertTrue(tree.isEmpty());
+		}
+	}
+
+	/**
+	 * Tests {@link BucketPRKDTree#visitNeighborsWithinRadius(double, double[], KDPointVisitor)}.
+	 */
+	@Test
+	public void testVisitNeighborsWithinRadius() {
+		addTestElements();
+		sut.add(TEST_ELEMENT_4);
+
+		final List<KDPoint> neighbors = new ArrayList<>();
+		sut.visitNeighborsWithinRadius(3.0, TEST_ELEMENT_2.getCoordinates(), new KDPointVisitor<KDPoint>() {
+
+			@Override
+			public boolean visit(final KDPoint element) {
+				return neighbors.add(element);
+			}
+
+		});
+
+		assertEquals(3, neighbors.size());
+		assertTrue(neighbors.containsAll(TEST_ELEMENTS));
+	}
+
+	private static List<KDPoint> bruteForceKNearestNeighbors(final List<KDPoint> points, final int k,
+			final double[] target) {
+		final SquaredEuclideanDistanceFunction distanceFunction = new SquaredEuclideanDistanceFunction();
+		final List<KDPoint> sorted = new ArrayList<>(points);
+		Collections.sort(sorted, new Comparator<KDPoint>() {
+
+			@Override
+			public int compare(final KDPoint o1, final KDPoint o2) {
+				return Double.compare(distanceFunction.distance(target, o1.getCoordinates()),
+						distanceFunction.distance(target, o2.getCoordinates()));
+			}
+
+		});
+
+		return sorted.subList(0, k);
+	}
+
+	private static double[] randomCoordinates(final Random random) {
+		final double[] coordinates = new double[TEST_NUMBER_OF_DIMENSIONS];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		return coordinates;
+	}
+
 	private void addABunchOfElements() {
 		for (int i = 0; i < NUMBER_OF_ELEMENTS_TO_ADD; i++) {
 			sut.add(TEST_ELEMENTS.get(i % TEST_ELEMENTS.size()));
@@ -0,0 +1,112 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link CoLocatedNode}
+ */
+public class CoLocatedNodeTest {
+
+	private static final double[] TEST_COORDINATES = { 1.0, 1.0, 1.0 };
+	private static final int TEST_BUCKET_SIZE = 2;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+	private static final int TEST_NUMBER_OF_ELEMENTS = 5;
+
+	private List<KDPoint> elements;
+	private CoLocatedNode<KDPoint> sut;
+
+	@Before
+	public void setup() {
+		elements = new ArrayList<>();
+		for (int i = 0; i < TEST_NUMBER_OF_ELEMENTS; i++) {
+			elements.add(new KDPoint(TEST_COORDINATES, i));
+		}
+		sut = new CoLocatedNode<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE, elements,
+				BucketPRKDTree.DEFAULT_SPLIT_STRATEGY, true);
+	}
+
+	@Test
+	public void testAddCoLocatedElement() {
+		final BucketPRKDTreeNode<KDPoint> node = sut.add(new KDPoint(TEST_COORDINATES, -1), null, null);
+
+		assertSame(sut, node);
+		assertEquals(TEST_NUMBER_OF_ELEMENTS + 1, sut.size());
+	}
+
+	@Test
+	public void testAddElementElsewhere() {
+		final KDPoint lesser = new KDPoint(new double[] { 1.0, 0.0, 0.5 }, -1);
+		final KDPoint greater = new KDPoint(new double[] { 1.0, 1.0, 4.0 }, -2);
+
+		final BucketPRKDTreeNode<KDPoint> node = sut.add(lesser, null, null).add(greater, null, null);
+
+		assertTrue(node instanceof SplittingPlaneNode);
+		assertEquals(TEST_NUMBER_OF_ELEMENTS + 2, node.size());
+		final SplittingPlaneNode<KDPoint> splittingPlaneNode = (SplittingPlaneNode<KDPoint>) node;
+		assertEquals(1, splittingPlaneNode.getSplitDimensionIndex());
+		assertEquals(1, splittingPlaneNode.getLeftBucketPRKDTree().size());
+		assertTrue(splittingPlaneNode.getLeftBucketPRKDTree().contains(lesser));
+
+		final BucketPRKDTreeNode<KDPoint> right = splittingPlaneNode.getRightBucketPRKDTree().getNode();
+		assertTrue(right instanceof SplittingPlaneNode);
+		assertEquals(2, ((SplittingPlaneNode<KDPoint>) right).getSplitDimensionIndex());
+		assertTrue(splittingPlaneNode.getRightBucketPRKDTree().contains(greater));
+	}
+
+	@Test
+	public void testAddElementBetweenAdjacentCoordinates() {
+		final double[] coordinates = TEST_COORDINATES.clone();
+		coordinates[0] = Math.nextUp(coordinates[0]);
+		final KDPoint adjacent = new KDPoint(coordinates, -1);
+
+		final BucketPRKDTreeNode<KDPoint> node = sut.add(adjacent, null, null);
+
+		final SplittingPlaneNode<KDPoint> splittingPlaneNode = (SplittingPlaneNode<KDPoint>) node;
+		assertEquals(TEST_NUMBER_OF_ELEMENTS, splittingPlaneNode.getLeftBucketPRKDTree().size());
+		assertEquals(1, splittingPlaneNode.getRightBucketPRKDTree().size());
+	}
+
+	@Test
+	public void testGetCoordinates() {
+		assertArrayEquals(TEST_COORDINATES, sut.getCoordinates(), 0.0);
+	}
+
+	@Test
+	public void testIterator() {
+		int i = 0;
+		for (final Iterator<KDPoint> iterator = sut.iterator(); iterator.hasNext();) {
+			assertSame(elements.get(i++), iterator.next());
+		}
+		assertEquals(TEST_NUMBER_OF_ELEMENTS, i);
+	}
+
+	@Test
+	public void testRemove() {
+		assertTrue(sut.remove(elements.get(0)));
+		assertFalse(sut.remove(elements.get(0)));
+		assertEquals(TEST_NUMBER_OF_ELEMENTS - 1, sut.size());
+	}
+
+	@Test
+	public void testReplace() {
+		final KDPoint replacement = new KDPoint(TEST_COORDINATES, -1);
+
+		assertTrue(sut.replace(elements.get(1), replacement));
+		assertFalse(sut.replace(elements.get(1), replacement));
+		assertSame(replacement, sut.getElements().get(1));
+	}
+
+}
@@ -0,0 +1,246 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import lessonz.collections.kdtree.KDPoint;
+import lessonz.collections.kdtree.KDPointVisitor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link ConcurrentBucketPRKDTree}
+ */
+public class ConcurrentBucketPRKDTreeTest {
+
+	private static final int K = 10;
+	private static final int NUMBER_OF_ELEMENTS = 2000;
+	private static final int NUMBER_OF_READERS = 4;
+	private static final int NUMBER_OF_SNAPSHOT_QUERIES = 200;
+	private static final int NUMBER_OF_WRITES = 20000;
+	private static final double[] TEST_MAX_COORDINATES = { 1.0, 1.0, 1.0 };
+	private static final double[] TEST_MIN_COORDINATES = { 0.0, 0.0, 0.0 };
+	private static final int TEST_BUCKET_SIZE = 4;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+
+	private List<KDPoint> points;
+	private Random random;
+	private ConcurrentBucketPRKDTree<KDPoint> sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		random = new Random(43);
+		points = new ArrayList<>();
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			points.add(new KDPoint(randomCoordinates(random), i));
+		}
+		sut = new ConcurrentBucketPRKDTree<>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		sut.addAll(points);
+	}
+
+	@Test
+	public void testAddAndRemove() {
+		assertEquals(NUMBER_OF_ELEMENTS, sut.size());
+		final KDPoint point = points.get(0);
+		assertTrue(sut.contains(point));
+
+		assertTrue(sut.remove(point));
+		assertFalse(sut.contains(point));
+		assertEquals(NUMBER_OF_ELEMENTS - 1, sut.size());
+
+		sut.clear();
+		assertTrue(sut.isEmpty());
+	}
+
+	@Test
+	public void testIteratorIteratesACopy() {
+		int count = 0;
+		for (final Iterator<KDPoint> iterator = sut.iterator(); iterator.hasNext();) {
+			final KDPoint point = iterator.next();
+			if (count++ % 2 == 0) {
+				iterator.remove();
+			}
+			sut.add(new KDPoint(point.getCoordinates(), -1));
+		}
+
+		assertEquals(NUMBER_OF_ELEMENTS, count);
+		assertEquals(NUMBER_OF_ELEMENTS * 3 / 2, sut.size());
+	}
+
+	@Test
+	public void testQueriesAgreeWithBucketPRKDTree() {
+		final BucketPRKDTree<KDPoint> tree = BucketPRKDTree.build(points, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+		final double[] target = randomCoordinates(random);
+
+		assertTrue(sut.getKNearestNeighbors(K, target).containsAll(tree.getKNearestNeighbors(K, target)));
+		assertTrue(sut.getApproximateKNearestNeighbors(K, target, 0.0, Integer.MAX_VALUE).containsAll(
+				tree.getKNearestNeighbors(K, target)));
+		assertTrue(sut.getKNearestNeighbors(K, new double[][] { target }).get(0).containsAll(
+				tree.getKNearestNeighbors(K, target)));
+		assertEquals(tree.nearestNeighborIterator(target).next(), sut.nearestNeighborIterator(target).next());
+		assertEquals(tree.rangeQuery(TEST_MIN_COORDINATES, target).size(),
+				sut.rangeQuery(TEST_MIN_COORDINATES, target).size());
+		assertEquals(tree.countNeighborsWithinRadius(0.1, target), sut.countNeighborsWithinRadius(0.1, target));
+	}
+
+	/**
+	 * While one thread continually moves elements, every query must see all of them, each exactly once.
+	 */
+	@Test
+	public void testQueriesWhileReplacing() throws Exception {
+		final AtomicBoolean writing = new AtomicBoolean(true);
+		final ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_READERS + 1);
+		try {
+			final Future<?> writer = executorService.submit(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					try {
+						final Random writerRandom = new Random(47);
+						for (int i = 0; i < NUMBER_OF_WRITES; i++) {
+							final int index = writerRandom.nextInt(NUMBER_OF_ELEMENTS);
+							final KDPoint moved = new KDPoint(randomCoordinates(writerRandom), index);
+							assertTrue(sut.replace(points.get(index), moved));
+							points.set(index, moved);
+						}
+					} finally {
+						writing.set(false);
+					}
+
+					return null;
+				}
+
+			});
+
+			final List<Future<Integer>> readers = new ArrayList<>();
+			for (int i = 0; i < NUMBER_OF_READERS; i++) {
+				final long seed = i;
+				readers.add(executorService.submit(new Callable<Integer>() {
+
+					@Override
+					public Integer call() {
+						final Random readerRandom = new Random(seed);
+						int queries = 0;
+						while (writing.get()) {
+							assertEquals(K, sut.getKNearestNeighbors(K, randomCoordinates(readerRandom)).size());
+							assertEquals(NUMBER_OF_ELEMENTS,
+									sut.rangeQuery(TEST_MIN_COORDINATES, TEST_MAX_COORDINATES).size());
+							queries++;
+						}
+
+						return queries;
+					}
+
+				}));
+			}
+
+			writer.get();
+			for (final Future<Integer> reader : readers) {
+				reader.get();
+			}
+		} finally {
+			executorService.shutdown();
+		}
+
+		assertEquals(NUMBER_OF_ELEMENTS, sut.size());
+		for (final KDPoint point : points) {
+			assertTrue(sut.contains(point));
+		}
+	}
+
+	/**
+	 * While one thread continually moves elements, snapshots taken along the way must hold every element as it was,
+	 * even though they are queried without any lock.
+	 */
+	@Test
+	public void testSnapshotsWhileReplacing() throws Exception {
+		final ExecutorService executorService = Executors.newFixedThreadPool(NUMBER_OF_READERS);
+		try {
+			final Random writerRandom = new Random(59);
+			final List<Future<?>> readers = new ArrayList<>();
+			for (int i = 0; i < NUMBER_OF_WRITES; i++) {
+				if (i % (NUMBER_OF_WRITES / NUMBER_OF_READERS) == 0) {
+					final BucketPRKDTree<KDPoint> snapshot = sut.snapshot();
+					final List<KDPoint> expected = new ArrayList<>(points);
+					readers.add(executorService.submit(new Callable<Void>() {
+
+						@Override
+						public Void call() {
+							final Random readerRandom = new Random(expected.size());
+							for (int j = 0; j < NUMBER_OF_SNAPSHOT_QUERIES; j++) {
+								final double[] target = randomCoordinates(readerRandom);
+								assertEquals(K, snapshot.getKNearestNeighbors(K, target).size());
+								assertEquals(NUMBER_OF_ELEMENTS,
+										snapshot.rangeQuery(TEST_MIN_COORDINATES, TEST_MAX_COORDINATES).size());
+							}
+							for (final KDPoint point : expected) {
+								assertTrue(snapshot.contains(point));
+							}
+
+							return null;
+						}
+
+					}));
+				}
+
+				final int index = writerRandom.nextInt(NUMBER_OF_ELEMENTS);
+				final KDPoint moved = new KDPoint(randomCoordinates(writerRandom), index);
+				assertTrue(sut.replace(points.get(index), moved));
+				points.set(index, moved);
+			}
+
+			for (final Future<?> reader : readers) {
+				reader.get();
+			}
+		} finally {
+			executorService.shutdown();
+		}
+
+		assertEquals(NUMBER_OF_ELEMENTS, sut.size());
+	}
+
+	/**
+	 * Queries hold no lock, so a {@link KDPointVisitor} may modify the tree; the query sees the tree as it began.
+	 */
+	@Test
+	public void testVisitorMayModify() {
+		final List<KDPoint> visited = new ArrayList<>();
+		sut.rangeQuery(TEST_MIN_COORDINATES, TEST_MAX_COORDINATES, new KDPointVisitor<KDPoint>() {
+
+			@Override
+			public boolean visit(final KDPoint element) {
+				visited.add(element);
+				return sut.remove(element);
+			}
+
+		});
+
+		assertEquals(NUMBER_OF_ELEMENTS, visited.size());
+		assertTrue(sut.isEmpty());
+	}
+
+	private static double[] randomCoordinates(final Random random) {
+		final double[] coordinates = new double[TEST_NUMBER_OF_DIMENSIONS];
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = random.nextDouble();
+		}
+
+		return coordinates;
+	}
+
+}
@@ -0,0 +1,91 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link NearestNeighborHeap}
+ */
+public class NearestNeighborHeapTest {
+
+	private static final int TEST_CAPACITY = 3;
+	private static final KDPoint TEST_ELEMENT_1 = new KDPoint(new double[] { 1.0 }, 1);
+	private static final KDPoint TEST_ELEMENT_2 = new KDPoint(new double[] { 2.0 }, 2);
+	private static final KDPoint TEST_ELEMENT_3 = new KDPoint(new double[] { 3.0 }, 3);
+	private static final KDPoint TEST_ELEMENT_4 = new KDPoint(new double[] { 4.0 }, 4);
+
+	private NearestNeighborHeap<KDPoint> sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new NearestNeighborHeap<>(TEST_CAPACITY);
+	}
+
+	@Test
+	public void testAdd() {
+		assertEquals(0, sut.size());
+		sut.add(TEST_ELEMENT_2, 2.0);
+		sut.add(TEST_ELEMENT_3, 3.0);
+		assertEquals(2, sut.size());
+		assertFalse(sut.isFull());
+		assertEquals(Double.POSITIVE_INFINITY, sut.peekDistance(), 0.0);
+
+		sut.add(TEST_ELEMENT_4, 4.0);
+		assertTrue(sut.isFull());
+		assertEquals(4.0, sut.peekDistance(), 0.0);
+	}
+
+	@Test
+	public void testAddWhenFullEvictsFarthest() {
+		sut.add(TEST_ELEMENT_4, 4.0);
+		sut.add(TEST_ELEMENT_2, 2.0);
+		sut.add(TEST_ELEMENT_3, 3.0);
+		sut.add(TEST_ELEMENT_1, 1.0);
+
+		assertEquals(TEST_CAPACITY, sut.size());
+		assertEquals(3.0, sut.peekDistance(), 0.0);
+
+		final List<KDPoint> elements = sut.toList();
+		assertEquals(TEST_CAPACITY, elements.size());
+		assertTrue(elements.contains(TEST_ELEMENT_1));
+		assertTrue(elements.contains(TEST_ELEMENT_2));
+		assertTrue(elements.contains(TEST_ELEMENT_3));
+	}
+
+	@Test
+	public void testDrainSorted() {
+		sut.add(TEST_ELEMENT_3, 3.0);
+		sut.add(TEST_ELEMENT_1, 1.0);
+		sut.add(TEST_ELEMENT_4, 4.0);
+		sut.add(TEST_ELEMENT_2, 2.0);
+
+		final Object[] elements = new Object[TEST_CAPACITY];
+		final double[] distances = new double[TEST_CAPACITY];
+		assertEquals(TEST_CAPACITY, sut.drainSorted(elements, distances));
+
+		assertEquals(0, sut.size());
+		assertEquals(TEST_ELEMENT_1, elements[0]);
+		assertEquals(TEST_ELEMENT_2, elements[1]);
+		assertEquals(TEST_ELEMENT_3, elements[2]);
+		assertEquals(1.0, distances[0], 0.0);
+		assertEquals(2.0, distances[1], 0.0);
+		assertEquals(3.0, distances[2], 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorRejectsZeroCapacity() {
+		new NearestNeighborHeap<KDPoint>(0);
+	}
+
+}
@@ -0,0 +1,87 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link NeighborResult}
+ */
+public class NeighborResultTest {
+
+	private static final KDPoint TEST_ELEMENT_1 = new KDPoint(new double[] { 1.0 }, 1);
+	private static final KDPoint TEST_ELEMENT_2 = new KDPoint(new double[] { 2.0 }, 2);
+	private static final KDPoint TEST_ELEMENT_3 = new KDPoint(new double[] { 3.0 }, 3);
+
+	private NeighborResult<KDPoint> sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new NeighborResult<>();
+	}
+
+	@Test
+	public void testFill() {
+		final NearestNeighborHeap<KDPoint> heap = new NearestNeighborHeap<>(3);
+		heap.add(TEST_ELEMENT_2, 2.0);
+		heap.add(TEST_ELEMENT_3, 3.0);
+		heap.add(TEST_ELEMENT_1, 1.0);
+
+		sut.fill(heap);
+
+		assertEquals(3, sut.size());
+		assertEquals(0, heap.size());
+		assertSame(TEST_ELEMENT_1, sut.getElement(0));
+		assertSame(TEST_ELEMENT_3, sut.getElement(2));
+		assertEquals(2.0, sut.getDistance(1), 0.0);
+
+		final List<KDPoint> elements = sut.getElements();
+		assertEquals(3, elements.size());
+		assertSame(TEST_ELEMENT_2, elements.get(1));
+	}
+
+	@Test
+	public void testFillReplacesPreviousResult() {
+		final NearestNeighborHeap<KDPoint> heap = new NearestNeighborHeap<>(3);
+		heap.add(TEST_ELEMENT_2, 2.0);
+		heap.add(TEST_ELEMENT_3, 3.0);
+		sut.fill(heap);
+
+		heap.add(TEST_ELEMENT_1, 1.0);
+		sut.fill(heap);
+
+		assertEquals(1, sut.size());
+		assertSame(TEST_ELEMENT_1, sut.getElement(0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetElementBeyondSize() {
+		sut.getElement(0);
+	}
+
+	@Test
+	public void testGetSearcherIsReusedForTheSameTree() {
+		final BucketPRKDTree<KDPoint> tree = new BucketPRKDTree<>(1);
+
+		final BucketPRKDKNearestNeighborSearcher<KDPoint> searcher = sut.getSearcher(tree);
+
+		assertSame(searcher, sut.getSearcher(tree));
+		assertTrue(searcher != sut.getSearcher(new BucketPRKDTree<KDPoint>(1)));
+	}
+
+	@Test
+	public void testIsEmpty() {
+		assertTrue(sut.isEmpty());
+	}
+
+}
@@ -0,0 +1,68 @@
+package lessonz.collections.kdtree.bucketpr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lessonz.collections.kdtree.KDPoint;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link NodeDistanceQueue}
+ */
+public class NodeDistanceQueueTest {
+
+	private static final int TEST_BUCKET_SIZE = 2;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 2;
+
+	private NodeDistanceQueue<KDPoint> sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new NodeDistanceQueue<>(TEST_NUMBER_OF_DIMENSIONS);
+	}
+
+	@Test
+	public void testPollReturnsNodesInOrderOfBound() {
+		final List<BucketPRKDTreeNode<KDPoint>> nodes = new ArrayList<>();
+		final int numberOfNodes = 100;
+		for (int i = 0; i < numberOfNodes; i++) {
+			nodes.add(new BucketNode<KDPoint>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE));
+		}
+
+		/* Add the nodes in a scrambled order, each carrying its own index as its coordinates. */
+		for (int i = 0; i < numberOfNodes; i++) {
+			final int index = i * 37 % numberOfNodes;
+			sut.add(nodes.get(index), index, new double[] { index, -index });
+		}
+		assertEquals(numberOfNodes, sut.size());
+
+		final double[] coordinates = new double[TEST_NUMBER_OF_DIMENSIONS];
+		for (int i = 0; i < numberOfNodes; i++) {
+			assertEquals(i, sut.peekBound(), 0.0);
+			assertSame(nodes.get(i), sut.poll(coordinates));
+			assertArrayEquals(new double[] { i, -i }, coordinates, 0.0);
+		}
+		assertTrue(sut.isEmpty());
+	}
+
+	@Test
+	public void testAddCopiesCoordinates() {
+		final double[] coordinates = new double[] { 1.0, 2.0 };
+		sut.add(new BucketNode<KDPoint>(TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE), 0.0, coordinates);
+		coordinates[0] = 5.0;
+
+		sut.poll(coordinates);
+		assertArrayEquals(new double[] { 1.0, 2.0 }, coordinates, 0.0);
+	}
+
+}
@@ -44,7 +44,7 @@ public class SplittingPlaneNodeTest {
 	@Test
 	public void testAdd() {
 		assertEquals(TEST_ELEMENTS.size(), sut.size());
-		sut.add(TEST_ELEMENT_1);
+		sut.add(TEST_ELEMENT_1, null, null);
 		assertEquals(TEST_ELEMENTS.size() + 1, sut.size());
 	}
 
@@ -58,6 +58,14 @@ public class SplittingPlaneNodeTest {
 		assertEquals(1.0, sut.getSplitDimensionMedian(), 0.0);
 	}
 
+	@Test
+	public void testRemove() {
+		assertTrue(sut.remove(TEST_ELEMENT_3));
+		assertFalse(sut.remove(TEST_ELEMENT_3));
+		assertEquals(TEST_ELEMENTS.size() - 1, sut.size());
+		assertEquals(1, sut.getRightBucketPRKDTree().size());
+	}
+
 	@Test
 	public void testIterator() {
 		final List<KDPoint> allPoints = new ArrayList<>(TEST_ELEMENTS);
@@ -0,0 +1,97 @@
+package lessonz.collections.kdtree.distance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link ChebyshevDistanceFunction}
+ */
+public class ChebyshevDistanceFunctionTest {
+
+	private ChebyshevDistanceFunction sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new ChebyshevDistanceFunction();
+	}
+
+	/**
+	 * Tests {@link ChebyshevDistanceFunction#distance(double[], double[])}.
+	 */
+	@Test
+	public void testDistance() {
+		assertEquals(4.0, sut.distance(new double[] { 0.0, 0.0 }, new double[] { 3.0, 4.0 }), 0.0);
+		assertEquals(4.0, sut.distance(new double[] { 13.0, 14.0 }, new double[] { 10.0, 10.0 }), 0.0);
+		assertEquals(10.0, sut.distance(new double[] { 0.0, 0.0 }, new double[] { -10.0, 10.0 }), 0.0);
+		assertEquals(1.0, sut.distance(new double[] { 0.0, 0.0, 0.0 }, new double[] { 1.0, 1.0, 1.0 }), 0.0);
+	}
+
+	/**
+	 * Tests {@link ChebyshevDistanceFunction#distance(double[], double[], int)}.
+	 */
+	@Test
+	public void testDistanceToPackedCoordinates() {
+		final double[] packedCoordinates = new double[] { 0.0, 0.0, 3.0, -4.0, 10.0, 10.0 };
+		assertEquals(0.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 0), 0.0);
+		assertEquals(4.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 2), 0.0);
+		assertEquals(10.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 4), 0.0);
+	}
+
+	/**
+	 * Tests {@link ChebyshevDistanceFunction#distance(double[], double[], int, double)} in enough dimensions that a
+	 * point beyond the bound is abandoned before it is fully measured.
+	 */
+	@Test
+	public void testDistanceToPackedCoordinatesWithBound() {
+		final double[] target = new double[128];
+		final double[] packedCoordinates = new double[256];
+		Arrays.fill(packedCoordinates, 128, 256, 1.0);
+		assertEquals(0.0, sut.distance(target, packedCoordinates, 0, 0.5), 0.0);
+		final double distance = sut.distance(target, packedCoordinates, 128, 0.5);
+		assertTrue(distance > 0.5);
+		assertTrue(distance <= 1.0);
+		assertEquals(1.0, sut.distance(target, packedCoordinates, 128, 1.0), 0.0);
+	}
+
+	/**
+	 * Tests {@link ChebyshevDistanceFunction#distances(double[], double[], int, double[])}.
+	 */
+	@Test
+	public void testDistances() {
+		final double[] packedCoordinates = new double[] { 0.0, 0.0, 3.0, -4.0, 10.0, 10.0 };
+		final double[] distances = new double[] { -1.0, -1.0, -1.0, -1.0 };
+		sut.distances(new double[] { 0.0, 0.0 }, packedCoordinates, 3, distances);
+		assertArrayEquals(new double[] { 0.0, 4.0, 10.0, -1.0 }, distances, 0.0);
+	}
+
+	/**
+	 * Tests {@link ChebyshevDistanceFunction#distances(double[], double[], int, double, double[])} measures distances
+	 * within the bound exactly and reports those beyond it as greater than the bound.
+	 */
+	@Test
+	public void testDistancesWithBound() {
+		final double[] distances = new double[3];
+		sut.distances(new double[] { 0.0, 0.0 }, new double[] { 0.0, 0.0, 3.0, -4.0, 10.0, 10.0 }, 3, 4.0, distances);
+		assertEquals(0.0, distances[0], 0.0);
+		assertEquals(4.0, distances[1], 0.0);
+		assertTrue(distances[2] > 4.0);
+
+		final double[] packedCoordinates =
+				new double[] { 0.0, 0.0, 0.0, 0.0, 1.0, 1.0, 1.0, 1.0, -2.0, 2.0, -2.0, 2.0 };
+		sut.distances(new double[] { 0.0, 0.0, 0.0, 0.0 }, packedCoordinates, 3, 1.5, distances);
+		assertEquals(0.0, distances[0], 0.0);
+		assertEquals(1.0, distances[1], 0.0);
+		assertTrue(distances[2] > 1.5);
+		assertTrue(distances[2] <= 2.0);
+	}
+
+}
@@ -0,0 +1,25 @@
+package lessonz.collections.kdtree.distance;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link DistanceFunctions}
+ */
+public class DistanceFunctionsTest {
+
+	/**
+	 * With no {@link BulkDistanceFunctionProvider} on the class path the scalar functions are used, the same instance
+	 * each time.
+	 */
+	@Test
+	public void testScalarFallback() {
+		assertTrue(DistanceFunctions.chebyshev() instanceof ChebyshevDistanceFunction);
+		assertTrue(DistanceFunctions.manhattan() instanceof ManhattanDistanceFunction);
+		assertTrue(DistanceFunctions.squaredEuclidean() instanceof SquaredEuclideanDistanceFunction);
+		assertSame(DistanceFunctions.squaredEuclidean(), DistanceFunctions.squaredEuclidean());
+	}
+
+}
@@ -0,0 +1,105 @@
+package lessonz.collections.kdtree.distance;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link ManhattanDistanceFunction}
+ */
+public class ManhattanDistanceFunctionTest {
+
+	private ManhattanDistanceFunction sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new ManhattanDistanceFunction();
+	}
+
+	/**
+	 * Tests {@link ManhattanDistanceFunction#distance(double[], double[])}.
+	 */
+	@Test
+	public void testDistance() {
+		assertEquals(7.0, sut.distance(new double[] { 0.0, 0.0 }, new double[] { 3.0, 4.0 }), 0.0);
+		assertEquals(7.0, sut.distance(new double[] { 13.0, 14.0 }, new double[] { 10.0, 10.0 }), 0.0);
+		assertEquals(20.0, sut.distance(new double[] { 0.0, 0.0 }, new double[] { -10.0, 10.0 }), 0.0);
+		assertEquals(3.0, sut.distance(new double[] { 0.0, 0.0, 0.0 }, new double[] { 1.0, 1.0, 1.0 }), 0.0);
+	}
+
+	/**
+	 * Tests {@link ManhattanDistanceFunction#distance(double[], double[], int)}.
+	 */
+	@Test
+	public void testDistanceToPackedCoordinates() {
+		final double[] packedCoordinates = new double[] { 0.0, 0.0, 3.0, -4.0, 10.0, 10.0 };
+		assertEquals(0.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 0), 0.0);
+		assertEquals(7.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 2), 0.0);
+		assertEquals(20.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 4), 0.0);
+	}
+
+	/**
+	 * Tests {@link ManhattanDistanceFunction#distance(double[], double[], int, double)} in enough dimensions that a
+	 * point beyond the bound is abandoned before it is fully measured.
+	 */
+	@Test
+	public void testDistanceToPackedCoordinatesWithBound() {
+		final double[] target = new double[128];
+		final double[] packedCoordinates = new double[256];
+		Arrays.fill(packedCoordinates, 128, 256, 1.0);
+		assertEquals(0.0, sut.distance(target, packedCoordinates, 0, 5.0), 0.0);
+		final double distance = sut.distance(target, packedCoordinates, 128, 5.0);
+		assertTrue(distance > 5.0);
+		assertTrue(distance < 128.0);
+		assertEquals(128.0, sut.distance(target, packedCoordinates, 128, 128.0), 0.0);
+	}
+
+	/**
+	 * Tests {@link ManhattanDistanceFunction#distances(double[], double[], int, double[])} in two, three and four
+	 * dimensions.
+	 */
+	@Test
+	public void testDistances() {
+		final double[] distances = new double[] { -1.0, -1.0, -1.0, -1.0 };
+		sut.distances(new double[] { 0.0, 0.0 }, new double[] { 0.0, 0.0, 3.0, -4.0, 10.0, 10.0 }, 3, distances);
+		assertArrayEquals(new double[] { 0.0, 7.0, 20.0, -1.0 }, distances, 0.0);
+
+		sut.distances(new double[] { 0.0, 0.0, 0.0 },
+				new double[] { 0.0, 0.0, 0.0, 1.0, 1.0, 1.0, -2.0, 2.0, -2.0 }, 3, distances);
+		assertArrayEquals(new double[] { 0.0, 3.0, 6.0, -1.0 }, distances, 0.0);
+
+		sut.distances(new double[] { 0.0, 0.0, 0.0, 0.0 },
+				new double[] { 0.0, 0.0, 0.0, 0.0, 1.0, 1.0, 1.0, 1.0, -2.0, 2.0, -2.0, 2.0 }, 3, distances);
+		assertArrayEquals(new double[] { 0.0, 4.0, 8.0, -1.0 }, distances, 0.0);
+	}
+
+	/**
+	 * Tests {@link ManhattanDistanceFunction#distances(double[], double[], int, double, double[])} measures distances
+	 * within the bound exactly and reports those beyond it as greater than the bound.
+	 */
+	@Test
+	public void testDistancesWithBound() {
+		final double[] distances = new double[3];
+		sut.distances(new double[] { 0.0, 0.0 }, new double[] { 0.0, 0.0, 3.0, -4.0, 10.0, 10.0 }, 3, 7.0, distances);
+		assertEquals(0.0, distances[0], 0.0);
+		assertEquals(7.0, distances[1], 0.0);
+		assertTrue(distances[2] > 7.0);
+
+		final double[] packedCoordinates =
+				new double[] { 0.0, 0.0, 0.0, 0.0, 1.0, 1.0, 1.0, 1.0, -2.0, 2.0, -2.0, 2.0 };
+		sut.distances(new double[] { 0.0, 0.0, 0.0, 0.0 }, packedCoordinates, 3, 5.0, distances);
+		assertEquals(0.0, distances[0], 0.0);
+		assertEquals(4.0, distances[1], 0.0);
+		assertTrue(distances[2] > 5.0);
+		assertTrue(distances[2] <= 8.0);
+	}
+
+}
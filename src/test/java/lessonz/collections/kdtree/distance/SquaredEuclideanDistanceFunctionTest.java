@@ -1,6 +1,10 @@
 package lessonz.collections.kdtree.distance;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -31,4 +35,71 @@ public class SquaredEuclideanDistanceFunctionTest {
 		assertEquals(3.0, sut.distance(new double[] { 0.0, 0.0, 0.0 }, new double[] { 1.0, 1.0, 1.0 }), 0.0);
 	}
 
+	/**
+	 * Tests {@link SquaredEuclideanDistanceFunction#distance(double[], double[], int)}.
+	 */
+	@Test
+	public void testDistanceToPackedCoordinates() {
+		final double[] packedCoordinates = new double[] { 0.0, 0.0, 3.0, 4.0, 10.0, 10.0 };
+		assertEquals(0.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 0), 0.0);
+		assertEquals(25.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 2), 0.0);
+		assertEquals(200.0, sut.distance(new double[] { 0.0, 0.0 }, packedCoordinates, 4), 0.0);
+	}
+
+	/**
+	 * Tests {@link SquaredEuclideanDistanceFunction#distance(double[], double[], int, double)} in enough dimensions that
+	 * a point beyond the bound is abandoned before it is fully measured.
+	 */
+	@Test
+	public void testDistanceToPackedCoordinatesWithBound() {
+		final double[] target = new double[128];
+		final double[] packedCoordinates = new double[256];
+		Arrays.fill(packedCoordinates, 128, 256, 1.0);
+		assertEquals(0.0, sut.distance(target, packedCoordinates, 0, 5.0), 0.0);
+		final double distance = sut.distance(target, packedCoordinates, 128, 5.0);
+		assertTrue(distance > 5.0);
+		assertTrue(distance < 128.0);
+		assertEquals(128.0, sut.distance(target, packedCoordinates, 128, 128.0), 0.0);
+	}
+
+	/**
+	 * Tests {@link SquaredEuclideanDistanceFunction#distances(double[], double[], int, double[])} in two, three and
+	 * four dimensions.
+	 */
+	@Test
+	public void testDistances() {
+		final double[] distances = new double[] { -1.0, -1.0, -1.0, -1.0 };
+		sut.distances(new double[] { 0.0, 0.0 }, new double[] { 0.0, 0.0, 3.0, 4.0, 10.0, 10.0 }, 3, distances);
+		assertArrayEquals(new double[] { 0.0, 25.0, 200.0, -1.0 }, distances, 0.0);
+
+		sut.distances(new double[] { 0.0, 0.0, 0.0 },
+				new double[] { 0.0, 0.0, 0.0, 1.0, 1.0, 1.0, -2.0, 2.0, -2.0 }, 3, distances);
+		assertArrayEquals(new double[] { 0.0, 3.0, 12.0, -1.0 }, distances, 0.0);
+
+		sut.distances(new double[] { 0.0, 0.0, 0.0, 0.0 },
+				new double[] { 0.0, 0.0, 0.0, 0.0, 1.0, 1.0, 1.0, 1.0, -2.0, 2.0, -2.0, 2.0 }, 3, distances);
+		assertArrayEquals(new double[] { 0.0, 4.0, 16.0, -1.0 }, distances, 0.0);
+	}
+
+	/**
+	 * Tests {@link SquaredEuclideanDistanceFunction#distances(double[], double[], int, double, double[])} measures
+	 * distances within the bound exactly and reports those beyond it as greater than the bound.
+	 */
+	@Test
+	public void testDistancesWithBound() {
+		final double[] distances = new double[3];
+		sut.distances(new double[] { 0.0, 0.0 }, new double[] { 0.0, 0.0, 3.0, 4.0, 10.0, 10.0 }, 3, 25.0, distances);
+		assertEquals(0.0, distances[0], 0.0);
+		assertEquals(25.0, distances[1], 0.0);
+		assertTrue(distances[2] > 25.0);
+
+		final double[] packedCoordinates =
+				new double[] { 0.0, 0.0, 0.0, 0.0, 1.0, 1.0, 1.0, 1.0, -2.0, 2.0, -2.0, 2.0 };
+		sut.distances(new double[] { 0.0, 0.0, 0.0, 0.0 }, packedCoordinates, 3, 5.0, distances);
+		assertEquals(0.0, distances[0], 0.0);
+		assertEquals(4.0, distances[1], 0.0);
+		assertTrue(distances[2] > 5.0);
+		assertTrue(distances[2] <= 16.0);
+	}
+
 }
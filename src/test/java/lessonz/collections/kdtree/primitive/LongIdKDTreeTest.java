@@ -0,0 +1,200 @@
+package lessonz.collections.kdtree.primitive;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import lessonz.collections.kdtree.distance.ChebyshevDistanceFunction;
+import lessonz.collections.kdtree.distance.DistanceFunction;
+import lessonz.collections.kdtree.distance.ManhattanDistanceFunction;
+import lessonz.collections.kdtree.distance.SquaredEuclideanDistanceFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link LongIdKDTree}
+ */
+public class LongIdKDTreeTest {
+
+	private static final int HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS = 128;
+	private static final int NUMBER_OF_ELEMENTS = 5000;
+	private static final int NUMBER_OF_QUERIES = 100;
+	private static final int TEST_BUCKET_SIZE = 4;
+	private static final int TEST_K = 10;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+
+	private double[] coordinates;
+	private long[] ids;
+	private Random random;
+	private LongIdKDTree sut;
+
+	/**
+	 * Prepare for each test. Ids are offset from the indexes so that returning an index instead of an id is caught, and
+	 * one dimension has many repeated values.
+	 */
+	@Before
+	public void setup() {
+		random = new Random(29);
+		coordinates = new double[NUMBER_OF_ELEMENTS * TEST_NUMBER_OF_DIMENSIONS];
+		ids = new long[NUMBER_OF_ELEMENTS];
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			coordinates[i * TEST_NUMBER_OF_DIMENSIONS] = random.nextDouble();
+			coordinates[i * TEST_NUMBER_OF_DIMENSIONS + 1] = random.nextDouble();
+			coordinates[i * TEST_NUMBER_OF_DIMENSIONS + 2] = random.nextInt(10);
+			ids[i] = 1000000000000L + i;
+		}
+
+		sut =
+				LongIdKDTree.build(Arrays.copyOf(coordinates, coordinates.length), Arrays.copyOf(ids, ids.length),
+						TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBuildMismatchedArrays() {
+		LongIdKDTree.build(new double[5], new long[2], 3);
+	}
+
+	@Test
+	public void testBuildIdenticalPoints() {
+		final LongIdKDTree identical = LongIdKDTree.build(new double[200], new long[100], 2, TEST_BUCKET_SIZE);
+
+		assertEquals(100, identical.size());
+		assertEquals(TEST_K, identical.getKNearestNeighbors(TEST_K, new double[2]).length);
+	}
+
+	@Test
+	public void testGetKNearestNeighbors() {
+		for (final DistanceFunction distanceFunction : new DistanceFunction[] { new SquaredEuclideanDistanceFunction(),
+				new ManhattanDistanceFunction() }) {
+			for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+				final double[] target = { random.nextDouble(), random.nextDouble(), random.nextInt(10) };
+
+				final long[] nearestNeighbors = sut.getKNearestNeighbors(TEST_K, target, distanceFunction);
+
+				assertArrayEquals(bruteForceDistances(target, distanceFunction), distances(nearestNeighbors, target,
+						distanceFunction), 0.0);
+			}
+		}
+	}
+
+	/**
+	 * In many dimensions most points are abandoned before they are fully measured, which must not change the neighbors
+	 * found.
+	 */
+	@Test
+	public void testGetKNearestNeighborsInManyDimensions() {
+		final double[] highDimensionalCoordinates =
+				new double[NUMBER_OF_ELEMENTS * HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS];
+		for (int i = 0; i < highDimensionalCoordinates.length; i++) {
+			highDimensionalCoordinates[i] = random.nextDouble();
+		}
+		final LongIdKDTree highDimensionalTree =
+				LongIdKDTree.build(Arrays.copyOf(highDimensionalCoordinates, highDimensionalCoordinates.length),
+						Arrays.copyOf(ids, ids.length), HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+
+		for (final DistanceFunction distanceFunction : new DistanceFunction[] { new SquaredEuclideanDistanceFunction(),
+				new ManhattanDistanceFunction(), new ChebyshevDistanceFunction() }) {
+			final double[] target = new double[HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS];
+			for (int i = 0; i < target.length; i++) {
+				target[i] = random.nextDouble();
+			}
+
+			final double[] expected = new double[NUMBER_OF_ELEMENTS];
+			for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+				expected[i] = distanceFunction.distance(target,
+						point(highDimensionalCoordinates, i, HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS));
+			}
+			Arrays.sort(expected);
+
+			final long[] nearestNeighbors = highDimensionalTree.getKNearestNeighbors(TEST_K, target, distanceFunction);
+			final double[] distances = new double[nearestNeighbors.length];
+			for (int i = 0; i < nearestNeighbors.length; i++) {
+				distances[i] = distanceFunction.distance(target, point(highDimensionalCoordinates,
+						(int) (nearestNeighbors[i] - ids[0]), HIGH_DIMENSIONAL_NUMBER_OF_DIMENSIONS));
+			}
+			assertArrayEquals(Arrays.copyOf(expected, TEST_K), distances, 0.0);
+		}
+	}
+
+	@Test
+	public void testGetKNearestNeighborsMoreThanSize() {
+		final long[] nearestNeighbors = sut.getKNearestNeighbors(NUMBER_OF_ELEMENTS + 10, new double[3]);
+
+		assertEquals(NUMBER_OF_ELEMENTS, nearestNeighbors.length);
+		final long[] sorted = Arrays.copyOf(nearestNeighbors, nearestNeighbors.length);
+		Arrays.sort(sorted);
+		final long[] expected = Arrays.copyOf(ids, ids.length);
+		Arrays.sort(expected);
+		assertArrayEquals(expected, sorted);
+	}
+
+	@Test
+	public void testRangeQuery() {
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			final double[] min = { random.nextDouble() / 2, random.nextDouble() / 2, random.nextInt(5) };
+			final double[] max = { min[0] + random.nextDouble() / 2, min[1] + random.nextDouble() / 2, min[2] + 3 };
+
+			final long[] found = sut.rangeQuery(min, max);
+
+			long[] expected = new long[NUMBER_OF_ELEMENTS];
+			int size = 0;
+			for (int j = 0; j < NUMBER_OF_ELEMENTS; j++) {
+				if (isInside(j, min, max)) {
+					expected[size++] = ids[j];
+				}
+			}
+			expected = Arrays.copyOf(expected, size);
+			Arrays.sort(found);
+			assertArrayEquals(expected, found);
+		}
+	}
+
+	@Test
+	public void testSize() {
+		assertEquals(NUMBER_OF_ELEMENTS, sut.size());
+		assertEquals(TEST_NUMBER_OF_DIMENSIONS, sut.getNumberOfDimensions());
+	}
+
+	private double[] bruteForceDistances(final double[] target, final DistanceFunction distanceFunction) {
+		final double[] distances = new double[NUMBER_OF_ELEMENTS];
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			distances[i] = distanceFunction.distance(target, point(i));
+		}
+		Arrays.sort(distances);
+
+		return Arrays.copyOf(distances, TEST_K);
+	}
+
+	private double[] distances(final long[] foundIds, final double[] target, final DistanceFunction distanceFunction) {
+		final double[] distances = new double[foundIds.length];
+		for (int i = 0; i < foundIds.length; i++) {
+			distances[i] = distanceFunction.distance(target, point((int) (foundIds[i] - ids[0])));
+		}
+
+		return distances;
+	}
+
+	private boolean isInside(final int index, final double[] min, final double[] max) {
+		final double[] point = point(index);
+		for (int i = 0; i < min.length; i++) {
+			if (point[i] < min[i] || point[i] > max[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private double[] point(final int index) {
+		return Arrays.copyOfRange(coordinates, index * TEST_NUMBER_OF_DIMENSIONS, (index + 1)
+				* TEST_NUMBER_OF_DIMENSIONS);
+	}
+
+	private static double[] point(final double[] coordinates, final int index, final int numberOfDimensions) {
+		return Arrays.copyOfRange(coordinates, index * numberOfDimensions, (index + 1) * numberOfDimensions);
+	}
+
+}
@@ -0,0 +1,103 @@
+package lessonz.collections.kdtree.primitive;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import lessonz.collections.kdtree.distance.ManhattanDistanceFunction;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * System Under Test: {@link MappedLongIdKDTree}
+ */
+public class MappedLongIdKDTreeTest {
+
+	private static final int NUMBER_OF_ELEMENTS = 5000;
+	private static final int NUMBER_OF_QUERIES = 100;
+	private static final int TEST_BUCKET_SIZE = 4;
+	private static final int TEST_K = 10;
+	private static final int TEST_NUMBER_OF_DIMENSIONS = 3;
+
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private Path file;
+	private Random random;
+	private MappedLongIdKDTree sut;
+	private LongIdKDTree tree;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() throws IOException {
+		random = new Random(31);
+		final double[] coordinates = new double[NUMBER_OF_ELEMENTS * TEST_NUMBER_OF_DIMENSIONS];
+		final long[] ids = new long[NUMBER_OF_ELEMENTS];
+		for (int i = 0; i < NUMBER_OF_ELEMENTS; i++) {
+			coordinates[i * TEST_NUMBER_OF_DIMENSIONS] = random.nextDouble();
+			coordinates[i * TEST_NUMBER_OF_DIMENSIONS + 1] = random.nextDouble();
+			coordinates[i * TEST_NUMBER_OF_DIMENSIONS + 2] = random.nextInt(10);
+			ids[i] = -i;
+		}
+		tree = LongIdKDTree.build(coordinates, ids, TEST_NUMBER_OF_DIMENSIONS, TEST_BUCKET_SIZE);
+
+		file = temporaryFolder.newFile().toPath();
+		tree.writeTo(file);
+		sut = MappedLongIdKDTree.open(file);
+	}
+
+	@Test
+	public void testGetKNearestNeighbors() {
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			final double[] target = { random.nextDouble(), random.nextDouble(), random.nextInt(10) };
+
+			assertArrayEquals(tree.getKNearestNeighbors(TEST_K, target), sut.getKNearestNeighbors(TEST_K, target));
+			assertArrayEquals(tree.getKNearestNeighbors(TEST_K, target, new ManhattanDistanceFunction()),
+					sut.getKNearestNeighbors(TEST_K, target, new ManhattanDistanceFunction()));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testOpenNotATreeFile() throws IOException {
+		final Path notATreeFile = temporaryFolder.newFile().toPath();
+		Files.write(notATreeFile, new byte[64]);
+
+		MappedLongIdKDTree.open(notATreeFile);
+	}
+
+	@Test(expected = IOException.class)
+	public void testOpenTruncatedFile() throws IOException {
+		final byte[] bytes = Files.readAllBytes(file);
+		final Path truncatedFile = temporaryFolder.newFile().toPath();
+		Files.write(truncatedFile, Arrays.copyOf(bytes, bytes.length - 8));
+
+		MappedLongIdKDTree.open(truncatedFile);
+	}
+
+	@Test
+	public void testRangeQuery() {
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			final double[] min = { random.nextDouble() / 2, random.nextDouble() / 2, random.nextInt(5) };
+			final double[] max = { min[0] + random.nextDouble() / 2, min[1] + random.nextDouble() / 2, min[2] + 3 };
+
+			assertArrayEquals(tree.rangeQuery(min, max), sut.rangeQuery(min, max));
+		}
+	}
+
+	@Test
+	public void testSize() {
+		assertEquals(NUMBER_OF_ELEMENTS, sut.size());
+		assertEquals(TEST_NUMBER_OF_DIMENSIONS, sut.getNumberOfDimensions());
+	}
+
+}
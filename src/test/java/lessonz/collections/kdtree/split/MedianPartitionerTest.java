@@ -0,0 +1,93 @@
+package lessonz.collections.kdtree.split;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link MedianPartitioner}
+ */
+public class MedianPartitionerTest {
+
+	/**
+	 * A {@link MedianPartitioner} whose keys are the original indexes of the points.
+	 */
+	private static class IndexPartitioner extends MedianPartitioner {
+
+		private final int[] keys;
+
+		IndexPartitioner(final double[] coordinates, final int numberOfDimensions) {
+			super(coordinates, numberOfDimensions);
+			keys = new int[coordinates.length / numberOfDimensions];
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = i;
+			}
+		}
+
+		@Override
+		protected void swapKeys(final int i, final int j) {
+			final int temp = keys[i];
+			keys[i] = keys[j];
+			keys[j] = temp;
+		}
+
+	}
+
+	/**
+	 * Tests {@link MedianPartitioner#selectMedianPlane(int, int)} and
+	 * {@link MedianPartitioner#partition(int, int, SplittingPlane)}.
+	 */
+	@Test
+	public void testPartition() {
+		/* The second dimension is the widest; its median is 3 despite the outlier. */
+		final double[] originalCoordinates =
+				new double[] { 9.0, 9.0, 0.0, 4.0, 1.0, 3.0, 2.0, 100.0, 3.0, 0.0, 4.0, 2.0, 9.0, 9.0 };
+		final double[] coordinates = originalCoordinates.clone();
+		final IndexPartitioner sut = new IndexPartitioner(coordinates, 2);
+
+		final SplittingPlane splittingPlane = sut.selectMedianPlane(1, 6);
+		final int index = sut.partition(1, 6, splittingPlane);
+
+		assertEquals(1, splittingPlane.getDimensionIndex());
+		assertEquals(3.0, splittingPlane.getValue(), 0.0);
+		assertEquals(3, index);
+		for (int i = 1; i < 6; i++) {
+			/* Each key still identifies the coordinates now at its index. */
+			assertEquals(originalCoordinates[sut.keys[i] * 2], coordinates[i * 2], 0.0);
+			assertEquals(originalCoordinates[sut.keys[i] * 2 + 1], coordinates[i * 2 + 1], 0.0);
+			assertTrue(coordinates[i * 2 + 1] < 3.0 == i < index);
+		}
+		/* Points outside the range are left alone. */
+		assertEquals(0, sut.keys[0]);
+		assertEquals(6, sut.keys[6]);
+	}
+
+	/**
+	 * Tests {@link MedianPartitioner#selectMedianPlane(int, int)} when the median is also the minimum.
+	 */
+	@Test
+	public void testSelectMedianPlaneMedianIsMinimum() {
+		final double[] coordinates = new double[] { 0.0, 0.0, 0.0, 5.0, 7.0 };
+		final IndexPartitioner sut = new IndexPartitioner(coordinates, 1);
+
+		final SplittingPlane splittingPlane = sut.selectMedianPlane(0, 5);
+
+		assertEquals(0, splittingPlane.getDimensionIndex());
+		assertEquals(5.0, splittingPlane.getValue(), 0.0);
+		assertEquals(3, sut.partition(0, 5, splittingPlane));
+	}
+
+	/**
+	 * Tests {@link MedianPartitioner#selectMedianPlane(int, int)} when every point shares the same coordinates.
+	 */
+	@Test
+	public void testSelectMedianPlaneCoLocated() {
+		final double[] coordinates = new double[] { 1.0, 2.0, 1.0, 2.0, 1.0, 2.0 };
+		final IndexPartitioner sut = new IndexPartitioner(coordinates, 2);
+
+		assertNull(sut.selectMedianPlane(0, 3));
+	}
+
+}
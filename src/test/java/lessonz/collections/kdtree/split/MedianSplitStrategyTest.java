@@ -0,0 +1,66 @@
+package lessonz.collections.kdtree.split;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link MedianSplitStrategy}
+ */
+public class MedianSplitStrategyTest {
+
+	private MedianSplitStrategy sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new MedianSplitStrategy();
+	}
+
+	/**
+	 * Tests {@link MedianSplitStrategy#split(double[], int, int)}.
+	 */
+	@Test
+	public void testSplit() {
+		/* The second dimension is the widest; its median is 2 despite the outlier. */
+		final double[] coordinates = new double[] { 0.0, 0.0, 1.0, 1.0, 2.0, 2.0, 3.0, 100.0, 99.0, 99.0 };
+
+		final SplittingPlane splittingPlane = sut.split(coordinates, 4, 2);
+
+		assertEquals(1, splittingPlane.getDimensionIndex());
+		assertEquals(2.0, splittingPlane.getValue(), 0.0);
+	}
+
+	/**
+	 * Tests {@link MedianSplitStrategy#split(double[], int, int)} when the median is also the minimum.
+	 */
+	@Test
+	public void testSplitMedianIsMinimum() {
+		final double[] coordinates = new double[] { 0.0, 0.0, 0.0, 5.0, 7.0 };
+
+		final SplittingPlane splittingPlane = sut.split(coordinates, 5, 1);
+
+		assertEquals(0, splittingPlane.getDimensionIndex());
+		assertEquals(5.0, splittingPlane.getValue(), 0.0);
+	}
+
+	/**
+	 * Tests that {@link MedianSplitStrategy#split(double[], int, int)} leaves the coordinates as they were.
+	 */
+	@Test
+	public void testSplitLeavesCoordinatesUnchanged() {
+		final double[] coordinates = new double[] { 9.0, 0.0, 4.0, 1.0, 7.0, 2.0, 1.0, 3.0, 5.0, 4.0 };
+		final double[] original = coordinates.clone();
+
+		final SplittingPlane splittingPlane = sut.split(coordinates, 5, 2);
+
+		assertEquals(0, splittingPlane.getDimensionIndex());
+		assertEquals(5.0, splittingPlane.getValue(), 0.0);
+		assertArrayEquals(original, coordinates, 0.0);
+	}
+
+}
@@ -0,0 +1,37 @@
+package lessonz.collections.kdtree.split;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link MidpointSplitStrategy}
+ */
+public class MidpointSplitStrategyTest {
+
+	private MidpointSplitStrategy sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new MidpointSplitStrategy();
+	}
+
+	/**
+	 * Tests {@link MidpointSplitStrategy#split(double[], int, int)}.
+	 */
+	@Test
+	public void testSplit() {
+		/* The second dimension is the widest, ranging from 0 to 100. */
+		final double[] coordinates = new double[] { 0.0, 0.0, 1.0, 1.0, 2.0, 2.0, 3.0, 100.0, 99.0, 99.0 };
+
+		final SplittingPlane splittingPlane = sut.split(coordinates, 4, 2);
+
+		assertEquals(1, splittingPlane.getDimensionIndex());
+		assertEquals(50.0, splittingPlane.getValue(), 0.0);
+	}
+
+}
@@ -0,0 +1,92 @@
+package lessonz.collections.kdtree.split;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link SlidingMidpointSplitStrategy}
+ */
+public class SlidingMidpointSplitStrategyTest {
+
+	private SlidingMidpointSplitStrategy sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new SlidingMidpointSplitStrategy();
+	}
+
+	/**
+	 * Tests {@link SlidingMidpointSplitStrategy#split(double[], int, int)}, which divides the points' range.
+	 */
+	@Test
+	public void testSplit() {
+		final double[] coordinates = new double[] { 0.0, 0.0, 1.0, 1.0, 2.0, 2.0, 3.0, 100.0 };
+
+		final SplittingPlane splittingPlane = sut.split(coordinates, 4, 2);
+
+		assertEquals(1, splittingPlane.getDimensionIndex());
+		assertEquals(50.0, splittingPlane.getValue(), 0.0);
+	}
+
+	/**
+	 * Tests {@link SlidingMidpointSplitStrategy#split(double[], int, int, double[], double[])} when the midpoint of the
+	 * cell lies between the points.
+	 */
+	@Test
+	public void testSplitCellAtMidpoint() {
+		final double[] coordinates = new double[] { 1.0, 2.0, 9.0, 3.0 };
+
+		final SplittingPlane splittingPlane =
+				sut.split(coordinates, 2, 2, new double[] { 0.0, 0.0 }, new double[] { 10.0, 4.0 });
+
+		assertEquals(0, splittingPlane.getDimensionIndex());
+		assertEquals(5.0, splittingPlane.getValue(), 0.0);
+	}
+
+	/**
+	 * Tests {@link SlidingMidpointSplitStrategy#split(double[], int, int, double[], double[])} when every point lies
+	 * below the midpoint of the cell, so the plane slides down to the greatest point.
+	 */
+	@Test
+	public void testSplitSlidesDown() {
+		final double[] coordinates = new double[] { 1.0, 3.0, 2.0 };
+
+		final SplittingPlane splittingPlane = sut.split(coordinates, 3, 1, new double[] { 0.0 }, new double[] { 10.0 });
+
+		assertEquals(3.0, splittingPlane.getValue(), 0.0);
+	}
+
+	/**
+	 * Tests {@link SlidingMidpointSplitStrategy#split(double[], int, int, double[], double[])} when every point lies
+	 * above the midpoint of the cell, so the plane slides up past the least point.
+	 */
+	@Test
+	public void testSplitSlidesUp() {
+		final double[] coordinates = new double[] { 9.0, 7.0, 8.0, 7.0 };
+
+		final SplittingPlane splittingPlane = sut.split(coordinates, 4, 1, new double[] { 0.0 }, new double[] { 10.0 });
+
+		assertEquals(8.0, splittingPlane.getValue(), 0.0);
+	}
+
+	/**
+	 * Tests {@link SlidingMidpointSplitStrategy#split(double[], int, int, double[], double[])} when the longest side of
+	 * the cell is a dimension in which the points don't differ.
+	 */
+	@Test
+	public void testSplitSkipsDimensionWithoutSpread() {
+		final double[] coordinates = new double[] { 5.0, 1.0, 5.0, 2.0 };
+
+		final SplittingPlane splittingPlane =
+				sut.split(coordinates, 2, 2, new double[] { 0.0, 0.0 }, new double[] { 100.0, 4.0 });
+
+		assertEquals(1, splittingPlane.getDimensionIndex());
+		assertEquals(2.0, splittingPlane.getValue(), 0.0);
+	}
+
+}
@@ -0,0 +1,37 @@
+package lessonz.collections.kdtree.split;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link VarianceSplitStrategy}
+ */
+public class VarianceSplitStrategyTest {
+
+	private VarianceSplitStrategy sut;
+
+	/**
+	 * Prepare for each test.
+	 */
+	@Before
+	public void setup() {
+		sut = new VarianceSplitStrategy();
+	}
+
+	/**
+	 * Tests {@link VarianceSplitStrategy#split(double[], int, int)}.
+	 */
+	@Test
+	public void testSplit() {
+		/* The first dimension has the wider range, but the second has the greater variance. */
+		final double[] coordinates = new double[] { 0.0, 0.0, 0.0, 11.0, 0.0, 0.0, 0.0, 11.0, 12.0, 0.0 };
+
+		final SplittingPlane splittingPlane = sut.split(coordinates, 5, 2);
+
+		assertEquals(1, splittingPlane.getDimensionIndex());
+		assertEquals(4.4, splittingPlane.getValue(), 1e-12);
+	}
+
+}
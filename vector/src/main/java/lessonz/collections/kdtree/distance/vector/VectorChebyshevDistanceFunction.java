@@ -0,0 +1,50 @@
+package lessonz.collections.kdtree.distance.vector;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+
+import lessonz.collections.kdtree.distance.ChebyshevDistanceFunction;
+
+/**
+ * The {@link VectorChebyshevDistanceFunction} calculates the same distance as {@link ChebyshevDistanceFunction},
+ * taking the greatest absolute difference of a vector of dimensions at a time. Taking a maximum involves no rounding,
+ * so the two agree exactly.
+ */
+public final class VectorChebyshevDistanceFunction extends AbstractVectorDistanceFunction {
+
+	public VectorChebyshevDistanceFunction() {
+		super(new ChebyshevDistanceFunction());
+	}
+
+	@Override
+	double distanceAcrossDimensions(final double[] coordinates, final double[] packedCoordinates, final int offset) {
+		final int numberOfDimensions = coordinates.length;
+		final int vectorEnd = SPECIES.loopBound(numberOfDimensions);
+		DoubleVector maxima = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (; i < vectorEnd; i += SPECIES.length()) {
+			maxima = maxima.max(DoubleVector.fromArray(SPECIES, coordinates, i)
+					.sub(DoubleVector.fromArray(SPECIES, packedCoordinates, offset + i)).abs());
+		}
+
+		double chebyshevDistance = maxima.reduceLanes(VectorOperators.MAX);
+		for (; i < numberOfDimensions; i++) {
+			chebyshevDistance = Math.max(chebyshevDistance, Math.abs(coordinates[i] - packedCoordinates[offset + i]));
+		}
+
+		return chebyshevDistance;
+	}
+
+	@Override
+	DoubleVector distancesAcrossPoints(final double[] coordinates, final double[] packedCoordinates, final int offset,
+			final int[] indexMap) {
+		DoubleVector chebyshevDistances = DoubleVector.zero(SPECIES);
+		for (int i = 0; i < coordinates.length; i++) {
+			chebyshevDistances = chebyshevDistances.max(DoubleVector
+					.fromArray(SPECIES, packedCoordinates, offset + i, indexMap, 0).sub(coordinates[i]).abs());
+		}
+
+		return chebyshevDistances;
+	}
+
+}
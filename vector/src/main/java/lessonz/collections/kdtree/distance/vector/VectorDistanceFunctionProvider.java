@@ -0,0 +1,29 @@
+package lessonz.collections.kdtree.distance.vector;
+
+import lessonz.collections.kdtree.distance.BulkDistanceFunction;
+import lessonz.collections.kdtree.distance.BulkDistanceFunctionProvider;
+
+/**
+ * The {@link VectorDistanceFunctionProvider} hands the vectorized distance functions to
+ * {@link lessonz.collections.kdtree.distance.DistanceFunctions}, which finds it through the service file of this
+ * module. Where the JVM was started without <code>--add-modules jdk.incubator.vector</code>, creating the functions
+ * fails with a {@link LinkageError}, and the scalar functions are used instead.
+ */
+public class VectorDistanceFunctionProvider implements BulkDistanceFunctionProvider {
+
+	@Override
+	public BulkDistanceFunction getChebyshevDistanceFunction() {
+		return new VectorChebyshevDistanceFunction();
+	}
+
+	@Override
+	public BulkDistanceFunction getManhattanDistanceFunction() {
+		return new VectorManhattanDistanceFunction();
+	}
+
+	@Override
+	public BulkDistanceFunction getSquaredEuclideanDistanceFunction() {
+		return new VectorSquaredEuclideanDistanceFunction();
+	}
+
+}
@@ -0,0 +1,50 @@
+package lessonz.collections.kdtree.distance.vector;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+
+import lessonz.collections.kdtree.distance.ManhattanDistanceFunction;
+
+/**
+ * The {@link VectorManhattanDistanceFunction} calculates the same distance as {@link ManhattanDistanceFunction},
+ * summing the absolute differences of a vector of dimensions at a time. The sums are added in a different order, so the
+ * two may differ in the last bits once there are enough dimensions to fill a vector.
+ */
+public final class VectorManhattanDistanceFunction extends AbstractVectorDistanceFunction {
+
+	public VectorManhattanDistanceFunction() {
+		super(new ManhattanDistanceFunction());
+	}
+
+	@Override
+	double distanceAcrossDimensions(final double[] coordinates, final double[] packedCoordinates, final int offset) {
+		final int numberOfDimensions = coordinates.length;
+		final int vectorEnd = SPECIES.loopBound(numberOfDimensions);
+		DoubleVector sums = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (; i < vectorEnd; i += SPECIES.length()) {
+			sums = sums.add(DoubleVector.fromArray(SPECIES, coordinates, i)
+					.sub(DoubleVector.fromArray(SPECIES, packedCoordinates, offset + i)).abs());
+		}
+
+		double manhattanDistance = sums.reduceLanes(VectorOperators.ADD);
+		for (; i < numberOfDimensions; i++) {
+			manhattanDistance += Math.abs(coordinates[i] - packedCoordinates[offset + i]);
+		}
+
+		return manhattanDistance;
+	}
+
+	@Override
+	DoubleVector distancesAcrossPoints(final double[] coordinates, final double[] packedCoordinates, final int offset,
+			final int[] indexMap) {
+		DoubleVector manhattanDistances = DoubleVector.zero(SPECIES);
+		for (int i = 0; i < coordinates.length; i++) {
+			manhattanDistances = manhattanDistances.add(DoubleVector
+					.fromArray(SPECIES, packedCoordinates, offset + i, indexMap, 0).sub(coordinates[i]).abs());
+		}
+
+		return manhattanDistances;
+	}
+
+}
@@ -0,0 +1,56 @@
+package lessonz.collections.kdtree.distance.vector;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+
+import lessonz.collections.kdtree.distance.SquaredEuclideanDistanceFunction;
+
+/**
+ * The {@link VectorSquaredEuclideanDistanceFunction} calculates the same distance as
+ * {@link SquaredEuclideanDistanceFunction}, summing the squared differences of a vector of dimensions at a time. The
+ * sums are added in a different order, so the two may differ in the last bits once there are enough dimensions to
+ * fill a vector.
+ */
+public final class VectorSquaredEuclideanDistanceFunction extends AbstractVectorDistanceFunction {
+
+	public VectorSquaredEuclideanDistanceFunction() {
+		super(new SquaredEuclideanDistanceFunction());
+	}
+
+	@Override
+	double distanceAcrossDimensions(final double[] coordinates, final double[] packedCoordinates, final int offset) {
+		final int numberOfDimensions = coordinates.length;
+		final int vectorEnd = SPECIES.loopBound(numberOfDimensions);
+		DoubleVector sums = DoubleVector.zero(SPECIES);
+		int i = 0;
+		for (; i < vectorEnd; i += SPECIES.length()) {
+			final DoubleVector differences =
+					DoubleVector.fromArray(SPECIES, coordinates, i).sub(
+							DoubleVector.fromArray(SPECIES, packedCoordinates, offset + i));
+			sums = sums.add(differences.mul(differences));
+		}
+
+		double squaredDistance = sums.reduceLanes(VectorOperators.ADD);
+		double difference;
+		for (; i < numberOfDimensions; i++) {
+			difference = coordinates[i] - packedCoordinates[offset + i];
+			squaredDistance += difference * difference;
+		}
+
+		return squaredDistance;
+	}
+
+	@Override
+	DoubleVector distancesAcrossPoints(final double[] coordinates, final double[] packedCoordinates, final int offset,
+			final int[] indexMap) {
+		DoubleVector squaredDistances = DoubleVector.zero(SPECIES);
+		for (int i = 0; i < coordinates.length; i++) {
+			final DoubleVector differences =
+					DoubleVector.fromArray(SPECIES, packedCoordinates, offset + i, indexMap, 0).sub(coordinates[i]);
+			squaredDistances = squaredDistances.add(differences.mul(differences));
+		}
+
+		return squaredDistances;
+	}
+
+}
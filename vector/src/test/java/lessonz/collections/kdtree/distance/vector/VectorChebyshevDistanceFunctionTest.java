@@ -0,0 +1,55 @@
+package lessonz.collections.kdtree.distance.vector;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import lessonz.collections.kdtree.distance.ChebyshevDistanceFunction;
+
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link VectorChebyshevDistanceFunction}
+ */
+public class VectorChebyshevDistanceFunctionTest {
+
+	private static final int MAX_DIMENSIONS = 130;
+	private static final int NUMBER_OF_POINTS = 37;
+
+	/**
+	 * Every number of dimensions up to more than a few vectors, so that each has a different remainder of dimensions
+	 * past the last whole vector, and more points than a few vectors, so that points with too few dimensions to fill
+	 * a vector are measured a vector of points at a time with a remainder of points too. A maximum involves no
+	 * rounding, so the two agree exactly.
+	 */
+	@Test
+	public void testAgreesWithScalar() {
+		final Random random = new Random(61);
+		final ChebyshevDistanceFunction scalar = new ChebyshevDistanceFunction();
+		final VectorChebyshevDistanceFunction sut = new VectorChebyshevDistanceFunction();
+		for (int numberOfDimensions = 1; numberOfDimensions <= MAX_DIMENSIONS; numberOfDimensions++) {
+			final double[] target = randomCoordinates(random, numberOfDimensions);
+			final double[] packedCoordinates = randomCoordinates(random, numberOfDimensions * NUMBER_OF_POINTS);
+			final double[] distances = new double[NUMBER_OF_POINTS];
+			sut.distances(target, packedCoordinates, NUMBER_OF_POINTS, distances);
+			for (int i = 0, offset = 0; i < NUMBER_OF_POINTS; i++, offset += numberOfDimensions) {
+				final double expected = scalar.distance(target, packedCoordinates, offset);
+				final double delta = 0.0;
+				assertEquals(expected, sut.distance(target, packedCoordinates, offset), delta);
+				assertEquals(sut.distance(target, packedCoordinates, offset), distances[i], 0.0);
+				assertEquals(sut.distance(target, packedCoordinates, offset),
+						sut.distance(target, packedCoordinates, offset, 0.0), 0.0);
+			}
+		}
+	}
+
+	private static double[] randomCoordinates(final Random random, final int length) {
+		final double[] coordinates = new double[length];
+		for (int i = 0; i < length; i++) {
+			coordinates[i] = random.nextDouble() * 2.0 - 1.0;
+		}
+
+		return coordinates;
+	}
+
+}
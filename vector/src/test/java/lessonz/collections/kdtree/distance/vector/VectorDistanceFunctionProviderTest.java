@@ -0,0 +1,25 @@
+package lessonz.collections.kdtree.distance.vector;
+
+import static org.junit.Assert.assertTrue;
+
+import lessonz.collections.kdtree.distance.DistanceFunctions;
+
+import org.junit.Test;
+
+/**
+ * System Under Test: {@link VectorDistanceFunctionProvider}
+ */
+public class VectorDistanceFunctionProviderTest {
+
+	/**
+	 * The tests run with the Vector API enabled and this module on the class path, so its functions replace the
+	 * scalar ones.
+	 */
+	@Test
+	public void testFoundByDistanceFunctions() {
+		assertTrue(DistanceFunctions.chebyshev() instanceof VectorChebyshevDistanceFunction);
+		assertTrue(DistanceFunctions.manhattan() instanceof VectorManhattanDistanceFunction);
+		assertTrue(DistanceFunctions.squaredEuclidean() instanceof VectorSquaredEuclideanDistanceFunction);
+	}
+
+}